@@ -0,0 +1,94 @@
+package org.jboss.pnc.rex.benchmarks;
+
+import org.jboss.pnc.rex.common.util.GraphUtils;
+import org.jboss.pnc.rex.dto.EdgeDTO;
+import org.jboss.pnc.rex.dto.requests.CreateGraphRequest;
+import org.jboss.pnc.rex.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.jboss.pnc.rex.core.common.RandomDAGGeneration.generateDAG;
+
+/**
+ * Measures cycle detection used during graph installation on a randomly generated DAG of ~100k Tasks.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks install -DskipTests && java -jar benchmarks/target/benchmarks.jar}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CycleDetectionBenchmark {
+
+    @Param({"42"})
+    int seed;
+
+    /**
+     * Graph in the same shape as the local Task cache built during installation
+     */
+    Map<String, Task> taskCache;
+
+    /**
+     * Same graph with one added edge closing a loop across the whole graph
+     */
+    Map<String, Task> cyclicTaskCache;
+
+    @Setup
+    public void setup() {
+        // 1000 ranks with 50-149 Tasks each
+        CreateGraphRequest graph = generateDAG(seed, 50, 100, 1000, 1, 0.05F);
+
+        taskCache = toTaskCache(graph);
+        cyclicTaskCache = toTaskCache(graph);
+
+        // edges go from lower ranks to higher ranks, the last Task depending on the first one closes a loop through
+        // the whole height of the graph
+        String first = "0";
+        String last = String.valueOf(graph.getVertices().size() - 1);
+        cyclicTaskCache.get(last).getDependencies().add(first);
+    }
+
+    @Benchmark
+    public List<String> acyclic() {
+        return GraphUtils.findCycle(taskCache.keySet(), name -> taskCache.get(name).getDependencies());
+    }
+
+    @Benchmark
+    public List<String> cyclic() {
+        return GraphUtils.findCycle(cyclicTaskCache.keySet(), name -> cyclicTaskCache.get(name).getDependencies());
+    }
+
+    private static Map<String, Task> toTaskCache(CreateGraphRequest graph) {
+        Map<String, Task> tasks = new HashMap<>();
+        for (String name : graph.getVertices().keySet()) {
+            Task task = Task.builder().name(name).build();
+
+            // workaround for lombok builder's immutable collections
+            task.setDependants(new HashSet<>());
+            task.setDependencies(new HashSet<>());
+            tasks.put(name, task);
+        }
+        for (EdgeDTO edge : graph.getEdges()) {
+            tasks.get(edge.getSource()).getDependencies().add(edge.getTarget());
+            tasks.get(edge.getTarget()).getDependants().add(edge.getSource());
+        }
+        return tasks;
+    }
+}
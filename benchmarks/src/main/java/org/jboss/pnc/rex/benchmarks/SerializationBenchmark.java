@@ -0,0 +1,79 @@
+package org.jboss.pnc.rex.benchmarks;
+
+import org.jboss.pnc.rex.common.util.JavaSerializationCodec;
+import org.jboss.pnc.rex.common.util.JsonAttachmentCodec;
+import org.jboss.pnc.rex.common.util.SerializationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures round-trips of attachments and response bodies through {@link SerializationUtils} with both codecs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SerializationBenchmark {
+
+    @Param({"json", "java"})
+    String codec;
+
+    /**
+     * Amount of entries in the attachment
+     */
+    @Param({"10", "1000"})
+    int size;
+
+    Object attachment;
+
+    byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        SerializationUtils.setAttachmentCodec("json".equals(codec)
+                ? new JsonAttachmentCodec()
+                : new JavaSerializationCodec());
+
+        // attachments arrive as JSON, so they are maps, lists and primitives
+        Map<String, Object> attachment = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            List<Object> values = new ArrayList<>(List.of("value-" + i, i, i % 2 == 0));
+            attachment.put("key-" + i, values);
+        }
+        this.attachment = attachment;
+        this.encoded = SerializationUtils.encodeAttachment(attachment);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return SerializationUtils.encodeAttachment(attachment);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException, ClassNotFoundException {
+        return SerializationUtils.decodeAttachment(encoded);
+    }
+
+    @Benchmark
+    public Object roundTrip() throws IOException, ClassNotFoundException {
+        return SerializationUtils.decodeAttachment(SerializationUtils.encodeAttachment(attachment));
+    }
+}
@@ -0,0 +1,196 @@
+package org.jboss.pnc.rex.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jboss.pnc.rex.dto.requests.FinishRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Stand-in for remote entities driven by Rex during a load test. It is an HTTP server with three endpoints:
+ * <ul>
+ *     <li>{@code POST /start} accepts the start request (or rejects it with 500 with the configured probability) and
+ *     after a sampled latency calls back {@code /rest/internal/{task}/finish} with a positive or a negative result</li>
+ *     <li>{@code POST /stop} accepts the cancel request and calls back positively after the minimal latency</li>
+ *     <li>{@code POST /notify} receives single or batched transition notifications and passes them to a listener</li>
+ * </ul>
+ * The latency of a remote Task is the minimal latency plus an exponentially distributed delay with the configured
+ * mean. The minimal latency also guarantees that the finish callback does not overtake the response to the start.
+ */
+public class FakeRemoteEntity implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(FakeRemoteEntity.class);
+
+    private static final int CALLBACK_ATTEMPTS = 5;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final HttpServer server;
+
+    private final ExecutorService serverExecutor;
+
+    private final ScheduledExecutorService callbackExecutor;
+
+    private final long minLatencyMillis;
+
+    private final long meanLatencyMillis;
+
+    private final double startErrorProbability;
+
+    private final double failureProbability;
+
+    private final Consumer<JsonNode> notificationListener;
+
+    private final AtomicLong failedCallbacks = new AtomicLong();
+
+    /**
+     * @param port port to listen on
+     * @param minLatencyMillis minimal time between the start request and the finish callback
+     * @param meanLatencyMillis mean of the exponentially distributed delay added to the minimal latency
+     * @param startErrorProbability probability that the start request is answered with 500
+     * @param failureProbability probability that an accepted Task finishes negatively
+     * @param notificationListener receives every single notification
+     */
+    public FakeRemoteEntity(int port,
+                            long minLatencyMillis,
+                            long meanLatencyMillis,
+                            double startErrorProbability,
+                            double failureProbability,
+                            Consumer<JsonNode> notificationListener) throws IOException {
+        this.minLatencyMillis = minLatencyMillis;
+        this.meanLatencyMillis = meanLatencyMillis;
+        this.startErrorProbability = startErrorProbability;
+        this.failureProbability = failureProbability;
+        this.notificationListener = notificationListener;
+
+        this.serverExecutor = Executors.newFixedThreadPool(16);
+        this.callbackExecutor = Executors.newScheduledThreadPool(4);
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/start", this::start);
+        server.createContext("/stop", this::stop);
+        server.createContext("/notify", this::notify);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    public long getFailedCallbacks() {
+        return failedCallbacks.get();
+    }
+
+    private void start(HttpExchange exchange) throws IOException {
+        JsonNode request = readBody(exchange);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < startErrorProbability) {
+            respond(exchange, 500);
+            return;
+        }
+        boolean positive = random.nextDouble() >= failureProbability;
+        respond(exchange, 200);
+        scheduleCallback(request.path("callback").asText(), positive, sampleLatency());
+    }
+
+    private void stop(HttpExchange exchange) throws IOException {
+        JsonNode request = readBody(exchange);
+        respond(exchange, 200);
+        scheduleCallback(request.path("callback").asText(), true, minLatencyMillis);
+    }
+
+    private void notify(HttpExchange exchange) throws IOException {
+        JsonNode body = readBody(exchange);
+        respond(exchange, 200);
+        if (body.isArray()) {
+            body.forEach(notificationListener);
+        } else {
+            notificationListener.accept(body);
+        }
+    }
+
+    private long sampleLatency() {
+        if (meanLatencyMillis <= 0) {
+            return minLatencyMillis;
+        }
+        double exponential = -meanLatencyMillis * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return minLatencyMillis + (long) exponential;
+    }
+
+    private void scheduleCallback(String callback, boolean positive, long delayMillis) {
+        callbackExecutor.schedule(() -> callback(callback, positive, 1), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void callback(String callback, boolean positive, int attempt) {
+        byte[] body;
+        try {
+            body = mapper.writeValueAsBytes(new FinishRequest(positive, positive ? "ALL IS OK" : "REMOTE FAILURE"));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(callback))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, throwable) -> {
+                    if (throwable == null && response.statusCode() < 400) {
+                        return;
+                    }
+                    if (attempt < CALLBACK_ATTEMPTS) {
+                        callbackExecutor.schedule(() -> callback(callback, positive, attempt + 1),
+                                100L * attempt,
+                                TimeUnit.MILLISECONDS);
+                        return;
+                    }
+                    failedCallbacks.incrementAndGet();
+                    if (throwable != null) {
+                        log.warn("Callback to {} failed.", callback, throwable);
+                    } else {
+                        log.warn("Callback to {} rejected with {}: {}", callback, response.statusCode(), response.body());
+                    }
+                });
+    }
+
+    private JsonNode readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            return mapper.readTree(body);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        callbackExecutor.shutdownNow();
+        serverExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,139 @@
+package org.jboss.pnc.rex.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.jboss.pnc.rex.common.enums.State;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Collects transitions of Tasks submitted during a load test and summarizes them.
+ * <p>
+ * End-to-end latency is measured from the submission of the graph to the final state of a Task and therefore includes
+ * the time spent waiting for dependencies. Queue wait is the time between ENQUEUED and STARTING.
+ */
+public class LoadReport {
+
+    private final Map<String, Timeline> timelines = new ConcurrentHashMap<>();
+
+    private final CountDownLatch unfinished;
+
+    private volatile long started;
+
+    private volatile long finished;
+
+    public LoadReport(Collection<String> tasks) {
+        tasks.forEach(name -> timelines.put(name, new Timeline()));
+        this.unfinished = new CountDownLatch(tasks.size());
+    }
+
+    public void submitted(Collection<String> tasks) {
+        long now = System.nanoTime();
+        if (started == 0) {
+            started = now;
+        }
+        tasks.forEach(name -> timelines.get(name).submitted = now);
+    }
+
+    /**
+     * Records a single notification sent by Rex.
+     */
+    public void notification(JsonNode notification) {
+        long now = System.nanoTime();
+        Timeline timeline = timelines.get(notification.path("task").path("name").asText());
+        if (timeline == null) {
+            // Task of a different run
+            return;
+        }
+        State after = State.valueOf(notification.path("after").asText());
+        synchronized (timeline) {
+            switch (after) {
+                case ENQUEUED:
+                    timeline.enqueued = now;
+                    break;
+                case STARTING:
+                    timeline.starting = now;
+                    break;
+                default:
+                    if (after.isFinal() && timeline.state == null) {
+                        timeline.finished = now;
+                        timeline.state = after;
+                        finished = now;
+                        unfinished.countDown();
+                    }
+            }
+        }
+    }
+
+    /**
+     * @return true if all Tasks reached a final state before the timeout
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return unfinished.await(timeout, unit);
+    }
+
+    public void print(PrintStream out, long conflicts, long retries, long failedCallbacks) {
+        Map<State, Integer> states = new EnumMap<>(State.class);
+        List<Timeline> done = new ArrayList<>();
+        for (Timeline timeline : timelines.values()) {
+            if (timeline.state != null) {
+                states.merge(timeline.state, 1, Integer::sum);
+                done.add(timeline);
+            }
+        }
+        double seconds = (finished - started) / 1e9;
+
+        out.println("Tasks:            " + timelines.size() + " submitted, " + done.size() + " finished "
+                + states);
+        out.printf("Duration:         %.2f s%n", seconds);
+        out.printf("Throughput:       %.2f tasks/s%n", seconds > 0 ? done.size() / seconds : 0D);
+        // Tasks stopped before they were started have neither queue wait nor remote execution
+        List<Timeline> executed = done.stream().filter(t -> t.starting != 0).collect(Collectors.toList());
+
+        out.println("End-to-end:       " + percentiles(done, t -> t.finished - t.submitted));
+        out.println("Queue wait:       " + percentiles(executed, t -> t.starting - t.enqueued));
+        out.println("Remote execution: " + percentiles(executed, t -> t.finished - t.starting));
+        out.println("Update conflicts: " + conflicts);
+        out.println("HTTP retries:     " + retries);
+        out.println("Failed callbacks: " + failedCallbacks);
+    }
+
+    private static String percentiles(List<Timeline> timelines, ToLongFunction<Timeline> metric) {
+        List<Long> values = new ArrayList<>();
+        for (Timeline timeline : timelines) {
+            values.add(TimeUnit.NANOSECONDS.toMillis(metric.applyAsLong(timeline)));
+        }
+        if (values.isEmpty()) {
+            return "n/a";
+        }
+        Collections.sort(values);
+        return String.format("p50=%d ms, p90=%d ms, p99=%d ms, max=%d ms",
+                percentile(values, 0.5),
+                percentile(values, 0.9),
+                percentile(values, 0.99),
+                values.get(values.size() - 1));
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile * sorted.size());
+        return sorted.get(Math.max(rank - 1, 0));
+    }
+
+    private static class Timeline {
+        volatile long submitted;
+        volatile long enqueued;
+        volatile long starting;
+        volatile long finished;
+        volatile State state;
+    }
+}
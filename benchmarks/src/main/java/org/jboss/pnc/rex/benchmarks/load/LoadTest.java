@@ -0,0 +1,194 @@
+package org.jboss.pnc.rex.benchmarks.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.pnc.rex.common.enums.Method;
+import org.jboss.pnc.rex.common.enums.Mode;
+import org.jboss.pnc.rex.dto.CreateTaskDTO;
+import org.jboss.pnc.rex.dto.EdgeDTO;
+import org.jboss.pnc.rex.dto.HeaderDTO;
+import org.jboss.pnc.rex.dto.HttpRequest;
+import org.jboss.pnc.rex.dto.requests.CreateGraphRequest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.jboss.pnc.rex.core.common.RandomDAGGeneration.generateDAG;
+
+/**
+ * Drives randomly generated graphs of Tasks through one or more running Rex nodes and reports throughput, latencies
+ * and contention. Remote entities are simulated by {@link FakeRemoteEntity}.
+ * <p>
+ * Configured with system properties:
+ * <ul>
+ *     <li>{@code rex.urls} comma separated base URLs of Rex nodes; graphs are submitted round-robin
+ *     (default http://localhost:8080)</li>
+ *     <li>{@code entity.host} and {@code entity.port} address of the fake remote entity as seen by Rex nodes
+ *     (default localhost:9090)</li>
+ *     <li>{@code graphs} amount of submitted graphs (default 1)</li>
+ *     <li>{@code seed} seed of the first graph, every next graph uses seed + 1 (default 42)</li>
+ *     <li>{@code ranks}, {@code min-per-rank}, {@code max-per-rank} and {@code edge-probability} shape of the graphs;
+ *     every rank has min-per-rank to min-per-rank + max-per-rank - 1 Tasks (default 10, 10, 10, 0.1)</li>
+ *     <li>{@code latency.min-ms} and {@code latency.mean-ms} latency of remote Tasks (default 100, 500)</li>
+ *     <li>{@code start.error-probability} probability of a rejected start request (default 0)</li>
+ *     <li>{@code failure.probability} probability of a negative finish callback (default 0)</li>
+ *     <li>{@code notifications.batched} whether notifications are batched (default true)</li>
+ *     <li>{@code timeout-s} how long to wait for all Tasks to finish (default 600)</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    private static final String CONFLICTS = "rex_task_update_conflicts_total";
+
+    private static final String RETRIES = "rex_http_client_retries_total";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final String[] rexUrls = System.getProperty("rex.urls", "http://localhost:8080").split(",");
+
+    private final String entityUrl = "http://" + System.getProperty("entity.host", "localhost") + ":"
+            + Integer.getInteger("entity.port", 9090);
+
+    private final int graphs = Integer.getInteger("graphs", 1);
+
+    private final int seed = Integer.getInteger("seed", 42);
+
+    private final int ranks = Integer.getInteger("ranks", 10);
+
+    private final int minPerRank = Integer.getInteger("min-per-rank", 10);
+
+    private final int maxPerRank = Integer.getInteger("max-per-rank", 10);
+
+    private final float edgeProbability = Float.parseFloat(System.getProperty("edge-probability", "0.1"));
+
+    private final boolean batched = Boolean.parseBoolean(System.getProperty("notifications.batched", "true"));
+
+    private final long timeout = Long.getLong("timeout-s", 600);
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest().run();
+    }
+
+    public void run() throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<CreateGraphRequest> requests = new ArrayList<>();
+        List<String> tasks = new ArrayList<>();
+        for (int i = 0; i < graphs; i++) {
+            CreateGraphRequest request = rewrite(
+                    generateDAG(seed + i, minPerRank, maxPerRank, ranks, 1, edgeProbability),
+                    "load-" + runId + "-" + i + "-");
+            requests.add(request);
+            tasks.addAll(request.getVertices().keySet());
+        }
+        System.out.println("Generated " + graphs + " graphs with " + tasks.size() + " Tasks");
+
+        LoadReport report = new LoadReport(tasks);
+        try (FakeRemoteEntity entity = new FakeRemoteEntity(
+                Integer.getInteger("entity.port", 9090),
+                Long.getLong("latency.min-ms", 100),
+                Long.getLong("latency.mean-ms", 500),
+                Double.parseDouble(System.getProperty("start.error-probability", "0")),
+                Double.parseDouble(System.getProperty("failure.probability", "0")),
+                report::notification)) {
+
+            long conflicts = scrape(CONFLICTS);
+            long retries = scrape(RETRIES);
+
+            List<CompletableFuture<?>> submits = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                CreateGraphRequest request = requests.get(i);
+                report.submitted(request.getVertices().keySet());
+                submits.add(submit(rexUrls[i % rexUrls.length], request));
+            }
+            CompletableFuture.allOf(submits.toArray(new CompletableFuture[0])).join();
+
+            if (!report.await(timeout, TimeUnit.SECONDS)) {
+                System.out.println("Not all Tasks finished in " + timeout + " s");
+            }
+
+            report.print(System.out,
+                    scrape(CONFLICTS) - conflicts,
+                    scrape(RETRIES) - retries,
+                    entity.getFailedCallbacks());
+        }
+    }
+
+    /**
+     * Makes names of Tasks unique for this run and points all remote requests to the fake remote entity.
+     */
+    private CreateGraphRequest rewrite(CreateGraphRequest generated, String prefix) {
+        CreateGraphRequest.CreateGraphRequestBuilder builder = CreateGraphRequest.builder();
+        for (Map.Entry<String, CreateTaskDTO> vertex : generated.getVertices().entrySet()) {
+            String name = prefix + vertex.getKey();
+            builder.vertex(name, vertex.getValue().toBuilder()
+                    .name(name)
+                    .controllerMode(Mode.ACTIVE)
+                    .remoteStart(request("/start", name, false))
+                    .remoteCancel(request("/stop", name, false))
+                    .callerNotifications(request("/notify", null, batched))
+                    .build());
+        }
+        for (EdgeDTO edge : generated.getEdges()) {
+            builder.edge(new EdgeDTO(prefix + edge.getSource(), prefix + edge.getTarget()));
+        }
+        return builder.build();
+    }
+
+    private HttpRequest request(String path, Object attachment, boolean batched) {
+        return HttpRequest.builder()
+                .url(entityUrl + path)
+                .method(Method.POST)
+                .headers(List.of(new HeaderDTO("Content-Type", "application/json")))
+                .attachment(attachment)
+                .batched(batched)
+                .build();
+    }
+
+    private CompletableFuture<?> submit(String rexUrl, CreateGraphRequest graph) throws IOException {
+        java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder(URI.create(rexUrl + "/rest/tasks"))
+                .header("Content-Type", "application/json")
+                .POST(java.net.http.HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(graph)))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenAccept(response -> {
+                    if (response.statusCode() >= 400) {
+                        throw new IllegalStateException("Graph was rejected by " + rexUrl + " with "
+                                + response.statusCode() + ": " + response.body());
+                    }
+                });
+    }
+
+    /**
+     * Sums a counter over all label combinations and all Rex nodes. Returns 0 for a node that doesn't expose metrics.
+     */
+    private long scrape(String counter) throws InterruptedException {
+        long sum = 0;
+        for (String rexUrl : rexUrls) {
+            java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder(URI.create(rexUrl + "/q/metrics"))
+                    .GET()
+                    .build();
+            try {
+                String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+                for (String line : body.split("\n")) {
+                    if (line.startsWith(counter)) {
+                        sum += (long) Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Couldn't scrape metrics of " + rexUrl + ": " + e.getMessage());
+            }
+        }
+        return sum;
+    }
+}
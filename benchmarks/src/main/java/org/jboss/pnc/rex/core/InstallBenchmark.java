@@ -0,0 +1,77 @@
+package org.jboss.pnc.rex.core;
+
+import org.jboss.pnc.rex.common.enums.Mode;
+import org.jboss.pnc.rex.core.model.Edge;
+import org.jboss.pnc.rex.core.model.InitialTask;
+import org.jboss.pnc.rex.core.model.TaskGraph;
+import org.jboss.pnc.rex.dto.EdgeDTO;
+import org.jboss.pnc.rex.dto.requests.CreateGraphRequest;
+import org.jboss.pnc.rex.facade.mapper.InitialTaskMapperImpl;
+import org.jboss.pnc.rex.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.jboss.pnc.rex.core.common.RandomDAGGeneration.generateDAG;
+
+/**
+ * Measures the in-memory part of graph installation (building new Tasks, linking dependencies and dependants and
+ * cycle detection) on a randomly generated graph of new Tasks. Graphs of new Tasks are built without reading the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class InstallBenchmark {
+
+    @Param({"42"})
+    int seed;
+
+    /**
+     * Amount of ranks of the graph; every rank has 50-149 Tasks
+     */
+    @Param({"10", "100"})
+    int ranks;
+
+    TaskContainerImpl container;
+
+    TaskGraph graph;
+
+    @Setup
+    public void setup() {
+        container = TaskContainerImpl.forGraphBuilding(new InitialTaskMapperImpl());
+        graph = toTaskGraph(generateDAG(seed, 50, 100, ranks, 1, 0.05F));
+    }
+
+    @Benchmark
+    public Map<String, Task> buildGraph() {
+        return container.buildGraph(graph, new HashMap<>());
+    }
+
+    private static TaskGraph toTaskGraph(CreateGraphRequest request) {
+        TaskGraph.TaskGraphBuilder builder = TaskGraph.builder();
+        for (String name : request.getVertices().keySet()) {
+            builder.vertex(name, InitialTask.builder()
+                    .name(name)
+                    .controllerMode(Mode.IDLE)
+                    .build());
+        }
+        for (EdgeDTO edge : request.getEdges()) {
+            builder.edge(new Edge(edge.getSource(), edge.getTarget()));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,107 @@
+package org.jboss.pnc.rex.core;
+
+import org.jboss.pnc.rex.common.enums.Mode;
+import org.jboss.pnc.rex.common.enums.State;
+import org.jboss.pnc.rex.common.enums.StopFlag;
+import org.jboss.pnc.rex.common.enums.Transition;
+import org.jboss.pnc.rex.model.ServerResponse;
+import org.jboss.pnc.rex.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decision of the next transition on synthetic Tasks in every state the controller handles, alone and
+ * together with applying the transition to the Task.
+ * <p>
+ * Scheduling the Jobs of a transition, metrics and tracing need the CDI container and are not measured.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TransitionBenchmark {
+
+    TaskControllerImpl controller;
+
+    Task[] tasks;
+
+    @Setup
+    public void setup() {
+        controller = TaskControllerImpl.forDecisions();
+
+        List<Task> tasks = new ArrayList<>();
+        // NEW_to_ENQUEUED
+        tasks.add(task(State.NEW, Mode.ACTIVE, 0, false));
+        // NEW_to_WAITING
+        tasks.add(task(State.NEW, Mode.ACTIVE, 3, false));
+        // WAITING_to_ENQUEUED
+        tasks.add(task(State.WAITING, Mode.ACTIVE, 0, false));
+        // ENQUEUED_to_STARTING
+        tasks.add(task(State.ENQUEUED, Mode.ACTIVE, 0, true));
+        // STARTING_to_UP
+        Task starting = task(State.STARTING, Mode.ACTIVE, 0, true);
+        starting.getServerResponses().add(new ServerResponse(State.STARTING, true, "started"));
+        tasks.add(starting);
+        // UP_to_SUCCESSFUL after a response to the start
+        Task up = task(State.UP, Mode.ACTIVE, 0, true);
+        up.getServerResponses().add(new ServerResponse(State.STARTING, true, "started"));
+        up.getServerResponses().add(new ServerResponse(State.UP, true, "finished"));
+        tasks.add(up);
+        // no transition, falls through to the final states
+        tasks.add(task(State.UP, Mode.ACTIVE, 0, true));
+        tasks.add(task(State.SUCCESSFUL, Mode.ACTIVE, 0, false));
+        this.tasks = tasks.toArray(new Task[0]);
+    }
+
+    @Benchmark
+    public void getTransition(Blackhole blackhole) {
+        for (Task task : tasks) {
+            Transition transition = controller.getTransition(task);
+            blackhole.consume(transition);
+        }
+    }
+
+    @Benchmark
+    public void transition(Blackhole blackhole) {
+        for (Task task : tasks) {
+            Transition transition = controller.getTransition(task);
+            if (transition != null) {
+                controller.applyTransition(task, transition);
+                // every invocation starts from the same states
+                task.setState(transition.getBefore());
+            }
+            blackhole.consume(task);
+        }
+    }
+
+    private static Task task(State state, Mode mode, int unfinishedDependencies, boolean starting) {
+        Task task = Task.builder()
+                .name(state + "." + unfinishedDependencies)
+                .state(state)
+                .controllerMode(mode)
+                .stopFlag(StopFlag.NONE)
+                .unfinishedDependencies(unfinishedDependencies)
+                .starting(starting)
+                .build();
+
+        // workaround for lombok builder's immutable collections
+        task.setServerResponses(new ArrayList<>());
+        task.setDependants(new HashSet<>());
+        task.setDependencies(new HashSet<>());
+        return task;
+    }
+}
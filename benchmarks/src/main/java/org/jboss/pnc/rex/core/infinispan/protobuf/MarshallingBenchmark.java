@@ -0,0 +1,111 @@
+package org.jboss.pnc.rex.core.infinispan.protobuf;
+
+import org.infinispan.protostream.ProtobufUtil;
+import org.infinispan.protostream.SerializationContext;
+import org.jboss.pnc.rex.common.enums.Method;
+import org.jboss.pnc.rex.common.enums.Mode;
+import org.jboss.pnc.rex.common.enums.State;
+import org.jboss.pnc.rex.common.enums.StopFlag;
+import org.jboss.pnc.rex.model.Header;
+import org.jboss.pnc.rex.model.Request;
+import org.jboss.pnc.rex.model.Task;
+import org.jboss.pnc.rex.model.TaskDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures protobuf marshalling of cache entries with the schema and marshallers generated by
+ * {@link TaskProtobufContextInitializer}. This is the work done by the Hot Rod client on every read and write of an
+ * entry.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MarshallingBenchmark {
+
+    SerializationContext context;
+
+    Task task;
+
+    byte[] taskBytes;
+
+    TaskDefinition definition;
+
+    byte[] definitionBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        context = ProtobufUtil.newSerializationContext();
+        TaskProtobufContextInitializer initializer = new TaskProtobufContextInitializerImpl();
+        initializer.registerSchema(context);
+        initializer.registerMarshallers(context);
+
+        Set<String> dependants = new HashSet<>();
+        Set<String> dependencies = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            dependants.add("org.jboss.pnc:dependant-" + i);
+            dependencies.add("org.jboss.pnc:dependency-" + i);
+        }
+        task = Task.builder()
+                .name("org.jboss.pnc:task")
+                .controllerMode(Mode.ACTIVE)
+                .state(State.UP)
+                .stopFlag(StopFlag.NONE)
+                .dependants(dependants)
+                .dependencies(dependencies)
+                .unfinishedDependencies(0)
+                .starting(false)
+                .priority(5)
+                .group("default")
+                .responseCount(1)
+                .traceParent("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01")
+                .build();
+        taskBytes = ProtobufUtil.toWrappedByteArray(context, task);
+
+        Request request = Request.builder()
+                .url("http://localhost:8080/build/start")
+                .method(Method.POST)
+                .headers(List.of(new Header("Content-Type", "application/json")))
+                .attachment(Map.of("id", 100, "scm", "https://github.com/project-ncl/rex.git", "tags",
+                        List.of("a", "b", "c")))
+                .build();
+        definition = new TaskDefinition(task.getName(), request, request, null);
+        definitionBytes = ProtobufUtil.toWrappedByteArray(context, definition);
+    }
+
+    @Benchmark
+    public byte[] marshallTask() throws IOException {
+        return ProtobufUtil.toWrappedByteArray(context, task);
+    }
+
+    @Benchmark
+    public Object unmarshallTask() throws IOException {
+        return ProtobufUtil.fromWrappedByteArray(context, taskBytes);
+    }
+
+    @Benchmark
+    public byte[] marshallDefinition() throws IOException {
+        return ProtobufUtil.toWrappedByteArray(context, definition);
+    }
+
+    @Benchmark
+    public Object unmarshallDefinition() throws IOException {
+        return ProtobufUtil.fromWrappedByteArray(context, definitionBytes);
+    }
+}
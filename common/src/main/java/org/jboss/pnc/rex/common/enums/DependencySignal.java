@@ -0,0 +1,21 @@
+package org.jboss.pnc.rex.common.enums;
+
+/**
+ * Message propagated from a finished Task to its dependants.
+ */
+public enum DependencySignal {
+    /**
+     * Dependency has succeeded.
+     */
+    SUCCEEDED,
+
+    /**
+     * Dependency has failed or was stopped because of its own dependency.
+     */
+    STOPPED,
+
+    /**
+     * Dependency has been cancelled.
+     */
+    CANCELLED
+}
@@ -0,0 +1,22 @@
+package org.jboss.pnc.rex.common.enums;
+
+/**
+ * Edges followed when traversing a graph of Tasks.
+ */
+public enum GraphDirection {
+    /**
+     * Follow Tasks that a Task depends on.
+     */
+    DEPENDENCIES,
+
+    /**
+     * Follow Tasks that depend on a Task.
+     */
+    DEPENDANTS,
+
+    /**
+     * Follow dependencies and dependants separately (all upstream and all downstream Tasks). Siblings, such as other
+     * dependants of a dependency, are not included.
+     */
+    BOTH
+}
@@ -0,0 +1,38 @@
+package org.jboss.pnc.rex.common.enums;
+
+import org.infinispan.protostream.annotations.ProtoEnumValue;
+
+/**
+ * Type of a Job that runs after a successful transaction and is persisted in the outbox until it is completed.
+ */
+public enum JobType {
+    /**
+     * Request to remote entity to start the Task.
+     */
+    @ProtoEnumValue(number = 0)
+    INVOKE_START,
+
+    /**
+     * Request to remote entity to stop the Task.
+     */
+    @ProtoEnumValue(number = 1)
+    INVOKE_STOP,
+
+    /**
+     * Notification of the caller about a transition of the Task.
+     */
+    @ProtoEnumValue(number = 2)
+    NOTIFY_CALLER,
+
+    /**
+     * Poke of the queue to start ENQUEUED Tasks.
+     */
+    @ProtoEnumValue(number = 3)
+    POKE_QUEUE,
+
+    /**
+     * Continuation of a propagation to dependants that did not fit into the previous transaction.
+     */
+    @ProtoEnumValue(number = 4)
+    PROPAGATE
+}
@@ -79,6 +79,12 @@ public enum Transition {
      * Controller received positive response that remote Task has successfully started its execution.
      */
     STARTING_to_UP(State.STARTING, State.UP),
+    /**
+     * Remote entity could not be reached because its circuit breaker is open.
+     *
+     * Controller returns the Task into the queue.
+     */
+    STARTING_to_ENQUEUED(State.STARTING, State.ENQUEUED),
     /**
      * Controller received negative response that remote Task failed to start its execution.
      *
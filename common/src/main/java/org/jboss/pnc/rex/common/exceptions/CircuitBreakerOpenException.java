@@ -0,0 +1,23 @@
+package org.jboss.pnc.rex.common.exceptions;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a call to a remote destination was not made because the circuit breaker of the destination is open.
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public CircuitBreakerOpenException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return time after which the breaker lets a trial call through
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
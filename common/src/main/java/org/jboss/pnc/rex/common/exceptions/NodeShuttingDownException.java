@@ -0,0 +1,19 @@
+package org.jboss.pnc.rex.common.exceptions;
+
+public class NodeShuttingDownException extends RuntimeException {
+    public NodeShuttingDownException() {
+        super();
+    }
+
+    public NodeShuttingDownException(String message) {
+        super(message);
+    }
+
+    public NodeShuttingDownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public NodeShuttingDownException(Throwable cause) {
+        super(cause);
+    }
+}
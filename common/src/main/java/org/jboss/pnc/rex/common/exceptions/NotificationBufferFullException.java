@@ -0,0 +1,11 @@
+package org.jboss.pnc.rex.common.exceptions;
+
+/**
+ * Thrown when a batched notification was not buffered because the buffer of its batch is full.
+ */
+public class NotificationBufferFullException extends RuntimeException {
+
+    public NotificationBufferFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+package org.jboss.pnc.rex.common.exceptions;
+
+/**
+ * Thrown when a request forwarded to the owner of a Task timed out. The owner may still apply it, so the request is
+ * not handled by the forwarding node and the caller has to repeat it.
+ */
+public class OwnerUnavailableException extends RuntimeException {
+    public OwnerUnavailableException() {
+        super();
+    }
+
+    public OwnerUnavailableException(String message) {
+        super(message);
+    }
+
+    public OwnerUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OwnerUnavailableException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,27 @@
+package org.jboss.pnc.rex.common.util;
+
+import java.io.IOException;
+
+/**
+ * Encodes arbitrary objects (attachments of Requests, bodies of ServerResponses) into bytes stored in Infinispan.
+ */
+public interface AttachmentCodec {
+
+    /**
+     * @param object non-null object to encode
+     * @return encoded bytes
+     */
+    byte[] encode(Object object) throws IOException;
+
+    /**
+     * @param bytes bytes produced by {@link #encode(Object)}
+     * @return decoded object
+     */
+    Object decode(byte[] bytes) throws IOException, ClassNotFoundException;
+
+    /**
+     * @param bytes encoded bytes
+     * @return true if the bytes look like they were encoded by this codec
+     */
+    boolean canDecode(byte[] bytes);
+}
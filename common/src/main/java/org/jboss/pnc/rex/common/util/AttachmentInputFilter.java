@@ -0,0 +1,74 @@
+package org.jboss.pnc.rex.common.util;
+
+import java.io.ObjectInputFilter;
+import java.util.Set;
+
+/**
+ * Allow-list of classes that can be read from Java-serialized attachments. Attachments arrive as JSON through the REST
+ * API, so legacy entries only ever contain JDK value types and collections of them. Everything else is rejected
+ * before it is instantiated.
+ */
+class AttachmentInputFilter implements ObjectInputFilter {
+
+    private static final long MAX_DEPTH = 64;
+
+    private static final long MAX_REFERENCES = 1_000_000;
+
+    private static final long MAX_ARRAY_LENGTH = 1_000_000;
+
+    private static final Set<String> ALLOWED = Set.of(
+            // values
+            "java.lang.String",
+            "java.lang.Boolean",
+            "java.lang.Character",
+            "java.lang.Number",
+            "java.lang.Byte",
+            "java.lang.Short",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.lang.Float",
+            "java.lang.Double",
+            "java.math.BigInteger",
+            "java.math.BigDecimal",
+            // collections
+            "java.util.ArrayList",
+            "java.util.LinkedList",
+            "java.util.Arrays$ArrayList",
+            "java.util.HashMap",
+            "java.util.LinkedHashMap",
+            "java.util.TreeMap",
+            "java.util.HashSet",
+            "java.util.LinkedHashSet",
+            "java.util.TreeSet",
+            "java.util.Collections$EmptyList",
+            "java.util.Collections$EmptyMap",
+            "java.util.Collections$EmptySet",
+            "java.util.Collections$SingletonList",
+            "java.util.Collections$SingletonMap",
+            "java.util.Collections$SingletonSet",
+            "java.util.Collections$UnmodifiableCollection",
+            "java.util.Collections$UnmodifiableList",
+            "java.util.Collections$UnmodifiableRandomAccessList",
+            "java.util.Collections$UnmodifiableMap",
+            "java.util.Collections$UnmodifiableSet",
+            // serial form of List.of(), Set.of() and Map.of()
+            "java.util.ImmutableCollections$CollSer");
+
+    @Override
+    public Status checkInput(FilterInfo info) {
+        if (info.depth() > MAX_DEPTH || info.references() > MAX_REFERENCES || info.arrayLength() > MAX_ARRAY_LENGTH) {
+            return Status.REJECTED;
+        }
+        Class<?> clazz = info.serialClass();
+        if (clazz == null) {
+            return Status.UNDECIDED;
+        }
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive() || clazz == Object.class || ALLOWED.contains(clazz.getName())) {
+            return Status.ALLOWED;
+        }
+        return Status.REJECTED;
+    }
+}
@@ -0,0 +1,88 @@
+package org.jboss.pnc.rex.common.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public class GraphUtils {
+
+    /**
+     * Iterative depth-first search for a cycle in a directed graph. Every node is explored only once and the recursion
+     * is replaced by an explicit stack, therefore the search is linear in the size of the graph and deep chains cannot
+     * overflow the call stack.
+     *
+     * @param nodes nodes to start the search from
+     * @param adjacency returns successors of a node; returning null is the same as no successors
+     * @return path of the first found cycle starting and ending with the same node (e.g. [a, b, c, a]); an empty
+     *         list if the graph is acyclic
+     */
+    public static <T> List<T> findCycle(Collection<T> nodes, Function<T, ? extends Collection<T>> adjacency) {
+        // FALSE = on the current path, TRUE = fully explored
+        Map<T, Boolean> explored = new HashMap<>();
+        Deque<Frame<T>> path = new ArrayDeque<>();
+
+        for (T root : nodes) {
+            if (explored.containsKey(root)) {
+                continue;
+            }
+            explored.put(root, Boolean.FALSE);
+            path.push(new Frame<>(root, successors(root, adjacency)));
+
+            while (!path.isEmpty()) {
+                Frame<T> current = path.peek();
+                if (!current.successors.hasNext()) {
+                    explored.put(current.node, Boolean.TRUE);
+                    path.pop();
+                    continue;
+                }
+
+                T next = current.successors.next();
+                Boolean state = explored.get(next);
+                if (state == null) {
+                    explored.put(next, Boolean.FALSE);
+                    path.push(new Frame<>(next, successors(next, adjacency)));
+                } else if (!state) {
+                    return formatPath(path, next);
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static <T> Iterator<T> successors(T node, Function<T, ? extends Collection<T>> adjacency) {
+        Collection<T> successors = adjacency.apply(node);
+        return successors == null ? Collections.emptyIterator() : successors.iterator();
+    }
+
+    private static <T> List<T> formatPath(Deque<Frame<T>> path, T loopStart) {
+        List<T> loop = new ArrayList<>();
+        Iterator<Frame<T>> fromRoot = path.descendingIterator();
+        boolean inLoop = false;
+        while (fromRoot.hasNext()) {
+            T node = fromRoot.next().node;
+            inLoop = inLoop || node.equals(loopStart);
+            if (inLoop) {
+                loop.add(node);
+            }
+        }
+        loop.add(loopStart);
+        return loop;
+    }
+
+    private static class Frame<T> {
+        private final T node;
+        private final Iterator<T> successors;
+
+        private Frame(T node, Iterator<T> successors) {
+            this.node = node;
+            this.successors = successors;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.jboss.pnc.rex.common.util;
+
+import java.io.IOException;
+
+import static org.jboss.pnc.rex.common.util.SerializationUtils.convertToByteArray;
+import static org.jboss.pnc.rex.common.util.SerializationUtils.convertToObject;
+
+/**
+ * Encodes objects with Java serialization. Used to read entries written by older versions and for writing while older
+ * nodes are still part of the cluster.
+ */
+public class JavaSerializationCodec implements AttachmentCodec {
+
+    /**
+     * Every Java serialization stream starts with these bytes (STREAM_MAGIC)
+     */
+    private static final byte MAGIC_0 = (byte) 0xAC;
+    private static final byte MAGIC_1 = (byte) 0xED;
+
+    @Override
+    public byte[] encode(Object object) throws IOException {
+        return convertToByteArray(object);
+    }
+
+    @Override
+    public Object decode(byte[] bytes) throws IOException, ClassNotFoundException {
+        return convertToObject(bytes);
+    }
+
+    @Override
+    public boolean canDecode(byte[] bytes) {
+        return isJavaSerialized(bytes);
+    }
+
+    static boolean isJavaSerialized(byte[] bytes) {
+        return bytes.length >= 2 && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+}
@@ -0,0 +1,29 @@
+package org.jboss.pnc.rex.common.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Encodes objects as JSON. Attachments arrive as JSON through the REST API, so they decode back into the same
+ * structure of maps, lists and primitives.
+ */
+public class JsonAttachmentCodec implements AttachmentCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public byte[] encode(Object object) throws IOException {
+        return MAPPER.writeValueAsBytes(object);
+    }
+
+    @Override
+    public Object decode(byte[] bytes) throws IOException {
+        return MAPPER.readValue(bytes, Object.class);
+    }
+
+    @Override
+    public boolean canDecode(byte[] bytes) {
+        return !JavaSerializationCodec.isJavaSerialized(bytes);
+    }
+}
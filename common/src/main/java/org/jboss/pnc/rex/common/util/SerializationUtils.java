@@ -3,11 +3,22 @@ package org.jboss.pnc.rex.common.util;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputFilter;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
 public class SerializationUtils {
 
+    private static final AttachmentCodec JSON = new JsonAttachmentCodec();
+
+    private static final AttachmentCodec JAVA = new JavaSerializationCodec();
+
+    private static final ObjectInputFilter FILTER = new AttachmentInputFilter();
+
+    private static volatile AttachmentCodec attachmentCodec = JSON;
+
+    private static volatile boolean legacyDecoding = false;
+
     public static byte[] convertToByteArray(Object object) throws IOException {
         ByteArrayOutputStream bStream = new ByteArrayOutputStream();
         try (ObjectOutputStream stream = new ObjectOutputStream(bStream)) {
@@ -17,9 +28,72 @@ public class SerializationUtils {
         return bStream.toByteArray();
     }
 
+    /**
+     * Reads a Java-serialized object. Only JDK value and collection types are accepted.
+     */
     public static Object convertToObject(byte[] attachment) throws IOException, ClassNotFoundException {
         try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(attachment))) {
+            stream.setObjectInputFilter(FILTER);
             return stream.readObject();
         }
     }
+
+    /**
+     * Sets the codec used for encoding attachments. Already encoded attachments stay readable.
+     *
+     * @param codec the codec
+     */
+    public static void setAttachmentCodec(AttachmentCodec codec) {
+        attachmentCodec = codec;
+    }
+
+    /**
+     * Enables reading of Java-serialized attachments while the current codec is JSON. Meant only for migration of
+     * entries written by older versions.
+     *
+     * @param enabled true to read Java-serialized attachments
+     */
+    public static void setLegacyDecoding(boolean enabled) {
+        legacyDecoding = enabled;
+    }
+
+    /**
+     * @param object attachment; can be null
+     * @return attachment encoded by the current codec; null for null attachment
+     */
+    public static byte[] encodeAttachment(Object object) throws IOException {
+        return object == null ? null : attachmentCodec.encode(object);
+    }
+
+    /**
+     * Decodes an attachment encoded by the current codec or by JSON. Java-serialized attachments are decoded only if
+     * legacy decoding is enabled.
+     *
+     * @param bytes encoded attachment; can be null
+     * @return the attachment; null for null or empty bytes
+     */
+    public static Object decodeAttachment(byte[] bytes) throws IOException, ClassNotFoundException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        AttachmentCodec codec = attachmentCodec;
+        if (codec.canDecode(bytes)) {
+            return codec.decode(bytes);
+        }
+        if (!JAVA.canDecode(bytes)) {
+            return JSON.decode(bytes);
+        }
+        if (!legacyDecoding) {
+            throw new IOException("Attachment is Java-serialized and reading of Java serialization is disabled");
+        }
+        return JAVA.decode(bytes);
+    }
+
+    /**
+     * @param bytes encoded attachment
+     * @return true if the bytes can be kept as they are; false if they should be re-encoded by the current codec
+     */
+    public static boolean isCurrentEncoding(byte[] bytes) {
+        return bytes != null && attachmentCodec.canDecode(bytes);
+    }
 }
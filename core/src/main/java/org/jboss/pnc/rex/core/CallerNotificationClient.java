@@ -1,6 +1,7 @@
 package org.jboss.pnc.rex.core;
 
 import io.quarkus.arc.Unremovable;
+import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.core.buffer.Buffer;
 import io.vertx.mutiny.ext.web.client.HttpResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -12,7 +13,9 @@ import org.jboss.pnc.rex.model.requests.NotificationRequest;
 
 import javax.enterprise.context.ApplicationScoped;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.jboss.pnc.rex.core.GenericVertxHttpClient.invoking;
 
 @Unremovable
 @ApplicationScoped
@@ -23,23 +26,58 @@ public class CallerNotificationClient {
 
     private final GenericVertxHttpClient client;
 
-    public CallerNotificationClient(MiniTaskMapper miniMapper, GenericVertxHttpClient client) {
+    private final NotificationBatcher batcher;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public CallerNotificationClient(MiniTaskMapper miniMapper,
+                                    GenericVertxHttpClient client,
+                                    NotificationBatcher batcher) {
         this.miniMapper = miniMapper;
         this.client = client;
+        this.batcher = batcher;
+    }
+
+    /**
+     * Reserves a place for a notification in the order of transitions. Called within the transaction of the transition.
+     * A batched notification with a reserved place holds back later notifications of the same Task until it is
+     * buffered or the transaction does not commit.
+     *
+     * @param taskName name of the Task in transition
+     * @param requestDefinition caller notifications definition of the Task
+     * @return sequence of the notification
+     */
+    public long reserve(String taskName, Request requestDefinition) {
+        long next = sequence.incrementAndGet();
+        if (requestDefinition != null && Boolean.TRUE.equals(requestDefinition.getBatched())) {
+            batcher.reserve(taskName, next);
+        }
+        return next;
     }
 
-    public void notifyCaller(Transition transition, Task task) {
+    /**
+     * Notifies the caller about a transition of the Task. Batched notifications are buffered and sent with their batch.
+     *
+     * @param transition transition of the Task
+     * @param task the Task after the transition
+     * @param sequence sequence reserved with {@link #reserve(String, Request)}
+     * @return Uni that completes after the notification was sent, for batched notifications after its batch was sent
+     */
+    public Uni<Void> notifyCaller(Transition transition, Task task, long sequence) {
         Request requestDefinition = task.getCallerNotifications();
 
         if (requestDefinition == null) {
             log.warn("NOTIFICATION {}: DISABLED", task.getName());
-            return;
+            return Uni.createFrom().voidItem();
         }
 
         URI uri;
         try {
-            uri = new URI(requestDefinition.getUrl());
-        } catch (URISyntaxException e) {
+            uri = requestDefinition.getUri();
+        } catch (IllegalArgumentException e) {
+            if (Boolean.TRUE.equals(requestDefinition.getBatched())) {
+                batcher.cancel(task.getName(), sequence);
+            }
             throw new IllegalArgumentException("Url for notifications is not a valid URL for task with name "
                     + task.getName(), e);
         }
@@ -51,17 +89,25 @@ public class CallerNotificationClient {
                 .task(miniMapper.minimize(task))
                 .build();
 
+        if (Boolean.TRUE.equals(requestDefinition.getBatched())) {
+            log.info("NOTIFICATION {}: {} transition. Buffering notification. REQUEST: {}.",
+                    task.getName(),
+                    transition,
+                    request.toString());
+            return batcher.add(requestDefinition, request, sequence);
+        }
+
         log.info("NOTIFICATION {}: {} transition. Sending notification. REQUEST: {}.",
                 task.getName(),
                 transition,
                 request.toString());
 
-        client.makeRequest(uri,
+        return client.makeRequest(uri,
                 requestDefinition.getMethod(),
                 requestDefinition.getHeaders(),
                 request,
-                response -> handleResponse(response, transition, task),
-                throwable -> onConnectionFailure(throwable, task));
+                invoking(response -> handleResponse(response, transition, task)),
+                invoking(throwable -> onConnectionFailure(throwable, task)));
     }
 
     private void handleResponse(HttpResponse<Buffer> response, Transition transition, Task task) {
@@ -0,0 +1,190 @@
+package org.jboss.pnc.rex.core;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.Cancellable;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.rex.core.api.TaskQueue;
+import org.jboss.pnc.rex.core.api.TaskRegistry;
+import org.jboss.pnc.rex.core.counter.ConcurrencyLimiter;
+import org.jboss.pnc.rex.core.counter.GroupLimiters;
+import org.jboss.pnc.rex.core.counter.QueueDepths;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Periodically corrects counters that are kept next to the Tasks: the RUNNING counters (global and per group) to the
+ * amount of Tasks that hold a permit (STARTING, UP and STOPPING) and the depths of the queue to the amount of ENQUEUED
+ * Tasks in every group. Counters are not transactional, so a node that dies between committing a transaction and
+ * updating a counter (or the other way around) leaves the counter off.
+ * <p>
+ * Counters and Tasks are read at different moments and legitimately differ while a transition is in progress. A
+ * counter is corrected only if it differed by the same amount in two consecutive checks, and only if it did not change
+ * in the meantime.
+ */
+@Slf4j
+@ApplicationScoped
+public class CounterReconciler {
+
+    private static final String RUNNING = "RUNNING";
+
+    private static final String RUNNING_GROUP = "RUNNING of group ";
+
+    private static final String DEPTH_GROUP = "queue depth of group ";
+
+    private final TaskRegistry registry;
+
+    private final TaskQueue queue;
+
+    private final ConcurrencyLimiter limiter;
+
+    private final GroupLimiters groupLimiters;
+
+    private final QueueDepths depths;
+
+    private final QueueLeaderElection election;
+
+    private final Map<String, Observation> observations = new ConcurrentHashMap<>();
+
+    private volatile Cancellable ticks;
+
+    @ConfigProperty(name = "scheduler.options.concurrency.reconcile-interval-ms", defaultValue = "30000")
+    long interval;
+
+    public CounterReconciler(TaskRegistry registry,
+                             TaskQueue queue,
+                             ConcurrencyLimiter limiter,
+                             GroupLimiters groupLimiters,
+                             QueueDepths depths,
+                             QueueLeaderElection election) {
+        this.registry = registry;
+        this.queue = queue;
+        this.limiter = limiter;
+        this.groupLimiters = groupLimiters;
+        this.depths = depths;
+        this.election = election;
+    }
+
+    void start(@Observes StartupEvent event) {
+        ticks = Multi.createFrom().ticks().every(Duration.ofMillis(interval))
+                .onOverflow().drop()
+                .subscribe().with(tick -> {
+                            if (election.isLeader()) {
+                                reconcile();
+                            }
+                        },
+                        t -> log.error("COUNTER: Reconciliation has stopped.", t));
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        if (ticks != null) {
+            ticks.cancel();
+        }
+    }
+
+    /**
+     * Compares the counters with the Tasks and corrects counters that stayed off since the last check.
+     *
+     * @return amount of corrected counters
+     */
+    public synchronized int reconcile() {
+        try {
+            return reconcileRunning() + reconcileDepths();
+        } catch (RuntimeException e) {
+            log.error("COUNTER: Reconciliation failed.", e);
+            return 0;
+        }
+    }
+
+    private int reconcileRunning() {
+        Map<String, Long> running = registry.countRunningTasksByGroup();
+        int corrected = 0;
+        long total = running.values().stream().mapToLong(Long::longValue).sum();
+        if (check(RUNNING, limiter.getAcquired(), total,
+                expected -> limiter.compareAndReset(expected, total))) {
+            corrected++;
+        }
+        Set<String> groups = new HashSet<>(groupLimiters.getGroups());
+        groups.addAll(running.keySet());
+        for (String group : groups) {
+            ConcurrencyLimiter groupLimiter = groupLimiters.get(group);
+            long actual = running.getOrDefault(group, 0L);
+            if (check(RUNNING_GROUP + group, groupLimiter.getAcquired(), actual,
+                    expected -> groupLimiter.compareAndReset(expected, actual))) {
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+
+    private int reconcileDepths() {
+        Map<String, Long> enqueued = queue.countGroups();
+        Map<String, Long> counted = depths.getAll();
+        Set<String> groups = new HashSet<>(counted.keySet());
+        groups.addAll(enqueued.keySet());
+        int corrected = 0;
+        for (String group : groups) {
+            long actual = enqueued.getOrDefault(group, 0L);
+            if (check(DEPTH_GROUP + group, counted.getOrDefault(group, 0L), actual,
+                    expected -> depths.compareAndSet(group, expected, actual))) {
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+
+    private boolean check(String key, long value, long actual, Correction correction) {
+        Observation current = new Observation(value, actual);
+        Observation previous = observations.put(key, current);
+        if (value == actual || !current.equals(previous)) {
+            return false;
+        }
+        if (!correction.apply(value)) {
+            return false;
+        }
+        observations.remove(key);
+        log.warn("COUNTER: {} was {} while there are {} Task(s). Corrected.", key, value, actual);
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface Correction {
+        /**
+         * @return true if the counter still had the expected value and was corrected
+         */
+        boolean apply(long expected);
+    }
+
+    private static class Observation {
+        private final long value;
+        private final long actual;
+
+        private Observation(long value, long actual) {
+            this.value = value;
+            this.actual = actual;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Observation)) {
+                return false;
+            }
+            Observation other = (Observation) o;
+            return value == other.value && actual == other.actual;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(value, actual);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.jboss.pnc.rex.core;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.rex.common.enums.DependencySignal;
+import org.jboss.pnc.rex.core.api.DependantPropagator;
+import org.jboss.pnc.rex.core.api.DependentMessenger;
+import org.jboss.pnc.rex.core.api.Outbox;
+import org.jboss.pnc.rex.core.jobs.ControllerJob;
+import org.jboss.pnc.rex.core.jobs.PropagateJob;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.Transactional;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static javax.transaction.Transactional.TxType.MANDATORY;
+
+/**
+ * Propagates signals breadth-first, one level of the graph at a time. Dependants that transition during the
+ * propagation do not recurse; their own dependants are appended to the next level. Tasks of a level are read from the
+ * cache in a single pipelined round and their updates are sent together when the transaction commits.
+ * <p>
+ * A transaction informs at most a configured number of dependants. Signals that did not fit are continued by
+ * {@link PropagateJob}s after the transaction commits; each continuation runs in a transaction of its own.
+ */
+@Slf4j
+@ApplicationScoped
+public class DependantPropagatorImpl implements DependantPropagator {
+
+    private final TaskContainerImpl container;
+
+    private final DependentMessenger messenger;
+
+    private final Outbox outbox;
+
+    private final TransactionSynchronizationRegistry synchronizationRegistry;
+
+    private final Event<ControllerJob> scheduleJob;
+
+    @ConfigProperty(name = "scheduler.options.propagation.max-tasks-per-transaction", defaultValue = "1000")
+    int maxTasksPerTransaction;
+
+    public DependantPropagatorImpl(TaskContainerImpl container,
+                                   DependentMessenger messenger,
+                                   Outbox outbox,
+                                   TransactionSynchronizationRegistry synchronizationRegistry,
+                                   Event<ControllerJob> scheduleJob) {
+        this.container = container;
+        this.messenger = messenger;
+        this.outbox = outbox;
+        this.synchronizationRegistry = synchronizationRegistry;
+        this.scheduleJob = scheduleJob;
+    }
+
+    @Override
+    @Transactional(MANDATORY)
+    public void propagate(DependencySignal signal, Collection<String> dependants) {
+        Propagation ongoing = (Propagation) synchronizationRegistry.getResource(Propagation.class);
+        if (ongoing != null) {
+            // a dependant transitioned during the propagation, its dependants are informed in the next level
+            ongoing.add(signal, dependants);
+            return;
+        }
+
+        Propagation propagation = new Propagation();
+        propagation.add(signal, dependants);
+        synchronizationRegistry.putResource(Propagation.class, propagation);
+        try {
+            drain(propagation);
+        } finally {
+            synchronizationRegistry.putResource(Propagation.class, null);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void resume(String outboxId, DependencySignal signal, List<String> dependants) {
+        if (outboxId != null && !outbox.consume(outboxId)) {
+            log.info("PROPAGATION: Continuation {} was already applied. Skipping.", outboxId);
+            return;
+        }
+        propagate(signal, dependants);
+    }
+
+    private void drain(Propagation propagation) {
+        int informed = 0;
+        while (propagation.hasPending()) {
+            if (informed >= maxTasksPerTransaction) {
+                continueLater(propagation.takeAll());
+                return;
+            }
+
+            List<Signal> level = propagation.takeLevel(maxTasksPerTransaction - informed);
+            prefetch(level);
+            for (Signal signal : level) {
+                inform(signal);
+            }
+            informed += level.size();
+        }
+    }
+
+    /**
+     * Loads all Tasks of the level into the transaction at once instead of a round trip per Task.
+     */
+    private void prefetch(List<Signal> level) {
+        if (level.size() < 2) {
+            return;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        level.forEach(signal -> names.add(signal.getDependant()));
+
+        CompletableFuture<?>[] reads = names.stream()
+                .map(name -> container.getCache().getWithMetadataAsync(name))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(reads).join();
+    }
+
+    private void inform(Signal signal) {
+        switch (signal.getSignal()) {
+            case SUCCEEDED:
+                messenger.dependencySucceeded(signal.getDependant());
+                break;
+            case STOPPED:
+                messenger.dependencyStopped(signal.getDependant());
+                break;
+            case CANCELLED:
+                messenger.dependencyCancelled(signal.getDependant());
+                break;
+            default:
+                throw new IllegalStateException("Unknown signal: " + signal.getSignal());
+        }
+    }
+
+    private void continueLater(List<Signal> remaining) {
+        Map<DependencySignal, List<String>> bySignal = new EnumMap<>(DependencySignal.class);
+        for (Signal signal : remaining) {
+            bySignal.computeIfAbsent(signal.getSignal(), s -> new ArrayList<>()).add(signal.getDependant());
+        }
+        log.info("PROPAGATION: Transaction limit of {} Tasks reached. Continuing with {} dependants later.",
+                maxTasksPerTransaction,
+                remaining.size());
+        bySignal.forEach((signal, dependants) -> scheduleJob.fire(new PropagateJob(signal, dependants)));
+    }
+
+    /**
+     * Signals waiting to be delivered within a transaction in the breadth-first order.
+     */
+    private static class Propagation {
+        private final Deque<Signal> pending = new ArrayDeque<>();
+
+        /**
+         * Stop signals already delivered. Repeating them would not change the dependant.
+         */
+        private final Set<Signal> delivered = new HashSet<>();
+
+        private void add(DependencySignal signal, Collection<String> dependants) {
+            for (String dependant : dependants) {
+                pending.add(new Signal(signal, dependant));
+            }
+        }
+
+        private boolean hasPending() {
+            return !pending.isEmpty();
+        }
+
+        /**
+         * Takes the signals that are currently pending. Signals added while the level is processed belong to the next
+         * level.
+         */
+        private List<Signal> takeLevel(int limit) {
+            List<Signal> level = new ArrayList<>();
+            int size = pending.size();
+            for (int i = 0; i < size && level.size() < limit; i++) {
+                Signal signal = pending.poll();
+                // every success decrements the counter of unfinished dependencies, only stops are deduplicated
+                if (signal.getSignal() == DependencySignal.SUCCEEDED || delivered.add(signal)) {
+                    level.add(signal);
+                }
+            }
+            return level;
+        }
+
+        private List<Signal> takeAll() {
+            List<Signal> all = new ArrayList<>(pending);
+            pending.clear();
+            return all;
+        }
+    }
+
+    @Value
+    private static class Signal {
+        DependencySignal signal;
+        String dependant;
+    }
+}
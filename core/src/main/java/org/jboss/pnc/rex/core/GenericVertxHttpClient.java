@@ -1,73 +1,224 @@
 package org.jboss.pnc.rex.core;
 
 
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
 import io.smallrye.mutiny.Uni;
 import io.vertx.core.http.HttpMethod;
-import io.vertx.mutiny.core.Vertx;
 import io.vertx.mutiny.core.buffer.Buffer;
 import io.vertx.mutiny.ext.web.client.HttpRequest;
 import io.vertx.mutiny.ext.web.client.HttpResponse;
-import io.vertx.mutiny.ext.web.client.WebClient;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.context.ThreadContext;
 import org.jboss.pnc.rex.common.enums.Method;
 import org.jboss.pnc.rex.common.exceptions.BadRequestException;
+import org.jboss.pnc.rex.common.exceptions.CircuitBreakerOpenException;
+import org.jboss.pnc.rex.core.circuit.CircuitBreaker;
+import org.jboss.pnc.rex.core.circuit.CircuitBreakerRegistry;
+import org.jboss.pnc.rex.core.metrics.SchedulerMetrics;
+import org.jboss.pnc.rex.core.tracing.TaskTracing;
 import org.jboss.pnc.rex.model.Header;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 @Slf4j
 @ApplicationScoped
 public class GenericVertxHttpClient {
 
-    private final WebClient client;
+    private final WebClientRegistry clients;
 
-    public GenericVertxHttpClient(Vertx vertx) {
-        this.client = WebClient.create(vertx);
+    private final ManagedExecutor callbackExecutor;
+
+    private final CircuitBreakerRegistry breakers;
+
+    private final SchedulerMetrics metrics;
+
+    private final TaskTracing tracing;
+
+    @ConfigProperty(name = "scheduler.options.http.retry.max-attempts", defaultValue = "5")
+    int maxRetries;
+
+    @ConfigProperty(name = "scheduler.options.http.retry.initial-backoff-ms", defaultValue = "100")
+    long initialBackoff;
+
+    @ConfigProperty(name = "scheduler.options.http.retry.max-backoff-ms", defaultValue = "5000")
+    long maxBackoff;
+
+    @ConfigProperty(name = "scheduler.options.http.retry.jitter", defaultValue = "0.5")
+    double jitter;
+
+    public GenericVertxHttpClient(WebClientRegistry clients,
+                                  CircuitBreakerRegistry breakers,
+                                  SchedulerMetrics metrics,
+                                  TaskTracing tracing,
+                                  @ConfigProperty(name = "scheduler.options.http.callback-threads", defaultValue = "20")
+                                          int callbackThreads) {
+        this.clients = clients;
+        this.breakers = breakers;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.callbackExecutor = ManagedExecutor.builder()
+                .maxAsync(callbackThreads)
+                .propagated(ThreadContext.NONE)
+                .cleared(ThreadContext.ALL_REMAINING)
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        callbackExecutor.shutdown();
     }
 
     /**
-     * Must be ran on a thread that can block
-     * @param remoteEndpoint
-     * @param method
-     * @param headers
-     * @param requestBody
-     * @param onResponse
+     * Prepares a non-blocking HTTP request. Nothing is sent until the returned Uni is subscribed to. The request is sent
+     * through the pooled client of the destination. The HTTP call never blocks the subscribing thread, callbacks are
+     * dispatched onto a bounded worker pool as they can block (f.e. start a transaction). Callbacks return their
+     * follow-up work as a Uni which is chained to the request instead of being awaited.
+     * <p>
+     * Failed attempts are retried with exponential backoff and jitter. Every call passes through the circuit breaker
+     * of the destination once and its outcome after all attempts counts as a single success or failure; if the breaker
+     * is open, the call fails with {@link CircuitBreakerOpenException} and is not retried.
+     *
+     * @param remoteEndpoint url of the remote endpoint
+     * @param method HTTP method
+     * @param headers HTTP headers
+     * @param requestBody body serialized to JSON
+     * @param onResponse invoked with the response on a worker thread; retried if the returned Uni fails
+     * @param onConnectionUnreachable invoked on a worker thread if all attempts failed or the breaker is open
+     * @return Uni that completes after the Uni of a callback completed; it never fails
      */
-    public void makeRequest(URI remoteEndpoint,
-                             Method method,
-                             List<Header> headers,
-                             Object requestBody,
-                             Consumer<HttpResponse<Buffer>> onResponse,
-                             Consumer<Throwable> onConnectionUnreachable) {
-        HttpRequest<Buffer> request = client.request(toVertxMethod(method),
-                remoteEndpoint.getPort() == -1 ? 80 : remoteEndpoint.getPort(),
-                remoteEndpoint.getHost(),
-                remoteEndpoint.getPath());
-        addHeaders(request, headers);
-
-        log.trace("HTTP-CLIENT : Making request \n URL: {}\n METHOD: {}\n HEADERS: {}\n BODY: {}",
-                remoteEndpoint,
-                method,
-                headers.toString(),
-                requestBody.toString());
-
-        Uni.createFrom().item(() -> request.sendJsonAndAwait(requestBody))
-            .onItem().transformToUni(i -> Uni.createFrom()
-                .item(i)
-                .onItem().invoke(onResponse)
-                .onFailure().retry().atMost(5)
-                .onFailure().recoverWithNull())
+    public Uni<Void> makeRequest(URI remoteEndpoint,
+                                 Method method,
+                                 List<Header> headers,
+                                 Object requestBody,
+                                 Function<HttpResponse<Buffer>, Uni<Void>> onResponse,
+                                 Function<Throwable, Uni<Void>> onConnectionUnreachable) {
+        CircuitBreaker breaker = breakers.get(remoteEndpoint);
+        AtomicInteger attempts = new AtomicInteger();
+        // one span covers all attempts, it is a child of the current span (f.e. the span of the Job)
+        Span span = tracing.startSpan(method + " " + breaker.getDestination(), null, SpanKind.CLIENT);
+
+        Uni<HttpResponse<Buffer>> attempt = Uni.createFrom().deferred(() -> {
+                if (attempts.getAndIncrement() > 0) {
+                    breaker.onRetry();
+                    metrics.httpRetry(breaker.getDestination());
+                }
+
+                HttpRequest<Buffer> request = clients.get(remoteEndpoint).request(toVertxMethod(method),
+                        WebClientRegistry.port(remoteEndpoint),
+                        remoteEndpoint.getHost(),
+                        WebClientRegistry.requestUri(remoteEndpoint));
+                addHeaders(request, headers);
+                tracing.inject(span, request::putHeader);
+
+                log.trace("HTTP-CLIENT : Making request \n URL: {}\n METHOD: {}\n HEADERS: {}\n BODY: {}",
+                        remoteEndpoint,
+                        method,
+                        headers.toString(),
+                        requestBody.toString());
+
+                long start = System.nanoTime();
+                return request.sendJson(requestBody)
+                        .onItem().invoke(response -> span.setAttribute("http.status_code", response.statusCode()))
+                        .onItem().invoke(response -> metrics.httpCall(breaker.getDestination(),
+                                String.valueOf(response.statusCode()),
+                                System.nanoTime() - start))
+                        .onFailure().invoke(t -> metrics.httpCall(breaker.getDestination(),
+                                t.getClass().getSimpleName(),
+                                System.nanoTime() - start));
+            })
             .onFailure().invoke(t -> log.warn("HTTP-CLIENT : Http call failed. RETRYING. Reason: {}", t.toString()))
-            .onFailure().retry().atMost(5)
-            .onFailure().invoke(onConnectionUnreachable)
+            .onFailure().retry()
+                .withBackOff(Duration.ofMillis(initialBackoff), Duration.ofMillis(maxBackoff))
+                .withJitter(jitter)
+                .atMost(maxRetries);
+
+        return Uni.createFrom().deferred(() -> {
+                if (!breaker.tryAcquire()) {
+                    return Uni.createFrom().failure(openCircuit(breaker));
+                }
+                return attempt
+                    .onItem().invoke(response -> {
+                        // server errors are delivered but signal a degraded destination
+                        if (response.statusCode() >= 500) {
+                            breaker.onFailure();
+                        } else {
+                            breaker.onSuccess();
+                        }
+                    })
+                    .onFailure().invoke(t -> breaker.onFailure())
+                    // the destination is considered unavailable if the failed call opened the breaker
+                    .onFailure(t -> breaker.isOpen()).transform(t -> openCircuit(breaker));
+            })
+            .emitOn(callbackExecutor)
+            .onItem().transformToUni(response -> Uni.createFrom()
+                .deferred(() -> onResponse.apply(response))
+                // retries of the callback run on the worker pool as well
+                .runSubscriptionOn(callbackExecutor)
+                .onFailure().retry()
+                    .withBackOff(Duration.ofMillis(initialBackoff), Duration.ofMillis(maxBackoff))
+                    .withJitter(jitter)
+                    .atMost(maxRetries)
+                .onFailure().recoverWithNull())
+            .onFailure().call(t -> onConnectionUnreachable.apply(t))
+            .onTermination().invoke((response, failure, cancelled) -> {
+                if (failure != null) {
+                    TaskTracing.fail(span, failure);
+                }
+                span.end();
+            })
             // recover with null so that Uni doesn't propagate the exception
             .onFailure().recoverWithNull()
-            .await().indefinitely();
+            .replaceWithVoid();
+    }
+
+    /**
+     * Prepares a single request without retries, the circuit breaker or callbacks. Used between nodes of the cluster
+     * where the caller decides what to do if the request fails.
+     *
+     * @param timeout time after which the request fails with a {@link java.util.concurrent.TimeoutException}
+     * @return Uni with the response; nothing is sent until it is subscribed to
+     */
+    public Uni<HttpResponse<Buffer>> send(URI remoteEndpoint,
+                                          Method method,
+                                          List<Header> headers,
+                                          Object requestBody,
+                                          Duration timeout) {
+        return Uni.createFrom().deferred(() -> {
+                HttpRequest<Buffer> request = clients.get(remoteEndpoint).request(toVertxMethod(method),
+                        WebClientRegistry.port(remoteEndpoint),
+                        remoteEndpoint.getHost(),
+                        WebClientRegistry.requestUri(remoteEndpoint))
+                    .timeout(timeout.toMillis());
+                addHeaders(request, headers);
+                return request.sendJson(requestBody);
+            })
+            // also covers waiting for a connection from the pool
+            .ifNoItem().after(timeout).fail();
     }
+
+    /**
+     * Adapts a callback that finishes its work before returning.
+     */
+    public static <T> Function<T, Uni<Void>> invoking(Consumer<T> callback) {
+        return value -> Uni.createFrom().item(value).onItem().invoke(callback).replaceWithVoid();
+    }
+
+    private static CircuitBreakerOpenException openCircuit(CircuitBreaker breaker) {
+        return new CircuitBreakerOpenException("Circuit breaker of " + breaker.getDestination() + " is open",
+                breaker.getRetryAfter());
+    }
+
     private <T> T wrapExceptions(Supplier<T> supplier) {
         try {
            return supplier.get();
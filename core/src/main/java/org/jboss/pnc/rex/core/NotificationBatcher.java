@@ -0,0 +1,444 @@
+package org.jboss.pnc.rex.core;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.buffer.Buffer;
+import io.vertx.mutiny.ext.web.client.HttpResponse;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.rex.common.exceptions.NotificationBufferFullException;
+import org.jboss.pnc.rex.model.Header;
+import org.jboss.pnc.rex.model.Request;
+import org.jboss.pnc.rex.model.requests.NotificationRequest;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+import static org.jboss.pnc.rex.core.GenericVertxHttpClient.invoking;
+
+/**
+ * Buffers caller notifications per callback url, method and headers and delivers them as a single JSON array. A batch
+ * is sent once it reaches the maximum size or when the window since the first buffered notification elapses. Batches
+ * that stay empty for the idle time are dropped.
+ * <p>
+ * Notifications of a single Task are delivered in the order of its transitions. Jobs of a transaction can run after
+ * the jobs of a nested transaction, therefore every notification reserves its place during the transition and a
+ * notification is held back while an earlier reserved notification of the same Task is missing. Buffered notifications
+ * are kept ordered by their sequence. At most one batch per url is in flight, so a batch is never overtaken by a later
+ * one. A failed batch is put back into the buffer and redelivered later; state transitions are never blocked by the
+ * delivery.
+ * <p>
+ * The buffer of a batch is bounded. A notification that does not fit is rejected and its Job leaves it in the outbox
+ * to be replayed once the buffer had time to drain.
+ * <p>
+ * A buffered notification completes once its batch was delivered or dropped, so that the outbox entry of its Job is
+ * acknowledged only then. Notifications that are still buffered when the node stops are replayed from the outbox.
+ */
+@Slf4j
+@ApplicationScoped
+public class NotificationBatcher {
+
+    private final GenericVertxHttpClient client;
+
+    private final TransactionSynchronizationRegistry synchronizationRegistry;
+
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+    /**
+     * Reserved notifications per Task name; sequence mapped to the time of the reservation
+     */
+    private final Map<String, NavigableMap<Long, Long>> reservations = new ConcurrentHashMap<>();
+
+    @ConfigProperty(name = "scheduler.options.notifications.batch.window-ms", defaultValue = "200")
+    long window;
+
+    @ConfigProperty(name = "scheduler.options.notifications.batch.max-size", defaultValue = "100")
+    int maxSize;
+
+    @ConfigProperty(name = "scheduler.options.notifications.batch.max-buffered", defaultValue = "10000")
+    int maxBuffered;
+
+    @ConfigProperty(name = "scheduler.options.notifications.batch.max-redeliveries", defaultValue = "5")
+    int maxRedeliveries;
+
+    @ConfigProperty(name = "scheduler.options.notifications.batch.max-hold-ms", defaultValue = "10000")
+    long maxHold;
+
+    @ConfigProperty(name = "scheduler.options.notifications.batch.idle-ms", defaultValue = "60000")
+    long idle;
+
+    public NotificationBatcher(GenericVertxHttpClient client,
+                               TransactionSynchronizationRegistry synchronizationRegistry) {
+        this.client = client;
+        this.synchronizationRegistry = synchronizationRegistry;
+    }
+
+    /**
+     * Reserves a place for a notification of a Task. Has to be called within the transaction of the transition. The
+     * reservation is cancelled if the transaction does not commit.
+     *
+     * @param taskName name of the Task
+     * @param sequence sequence of the notification
+     */
+    public void reserve(String taskName, long sequence) {
+        if (synchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            return;
+        }
+        reservations.computeIfAbsent(taskName, name -> new ConcurrentSkipListMap<>())
+                .put(sequence, System.currentTimeMillis());
+        synchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != Status.STATUS_COMMITTED) {
+                    cancel(taskName, sequence);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels a reservation of a notification that is never going to be added.
+     *
+     * @param taskName name of the Task
+     * @param sequence sequence of the notification
+     */
+    public void cancel(String taskName, long sequence) {
+        if (release(taskName, sequence)) {
+            // notifications held back by the reservation can be sent
+            batches.values().forEach(batch -> scheduleIfPending(batch, Duration.ZERO));
+        }
+    }
+
+    /**
+     * Buffers the notification. The call never blocks on HTTP.
+     *
+     * @param definition notification request definition of the Task
+     * @param notification notification to send
+     * @param sequence sequence of the notification
+     * @return Uni that completes after the batch with the notification was delivered or dropped after the last
+     *         redelivery; fails with {@link NotificationBufferFullException} if the buffer of the batch is full
+     */
+    public Uni<Void> add(Request definition, NotificationRequest notification, long sequence) {
+        Entry entry = new Entry(notification, sequence);
+        boolean[] flags = new boolean[3];
+        // inserted while the map holds the key so that the batch cannot be evicted in the meantime
+        Batch batch = batches.compute(key(definition), (key, existing) -> {
+            Batch current = existing == null ? new Batch(key, definition) : existing;
+            synchronized (current) {
+                if (current.pending.size() >= maxBuffered) {
+                    flags[2] = true;
+                    return current;
+                }
+                current.pending.put(sequence, entry);
+                release(notification.getTask().getName(), sequence);
+                flags[0] = current.pending.size() >= maxSize;
+                flags[1] = !flags[0] && !current.scheduled;
+                if (flags[1]) {
+                    current.scheduled = true;
+                }
+            }
+            return current;
+        });
+        boolean full = flags[0];
+        boolean schedule = flags[1];
+        boolean overflow = flags[2];
+
+        if (overflow) {
+            log.warn("NOTIFICATION BATCH {}: {} notifications are buffered. Rejecting notification {} of {}.",
+                    batch.url(), maxBuffered, sequence, entry.getTaskName());
+            // later notifications of the Task must not wait for this one
+            cancel(entry.getTaskName(), sequence);
+            return Uni.createFrom().failure(new NotificationBufferFullException("Buffer of notifications to "
+                    + batch.url() + " is full."));
+        }
+        if (full) {
+            flush(batch);
+        } else if (schedule) {
+            scheduleFlush(batch, Duration.ofMillis(window));
+        }
+        return Uni.createFrom().completionStage(entry.getDelivered());
+    }
+
+    /**
+     * Sends buffered notifications of every batch without waiting for the window. Used by a node that drains.
+     */
+    public void flushAll() {
+        batches.values().forEach(this::flush);
+    }
+
+    /**
+     * @return true if no notification is buffered or in flight
+     */
+    public boolean isDrained() {
+        for (Batch batch : batches.values()) {
+            synchronized (batch) {
+                if (batch.inFlight || !batch.pending.isEmpty()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void scheduleFlush(Batch batch, Duration delay) {
+        Uni.createFrom().voidItem()
+                .onItem().delayIt().by(delay)
+                .subscribe().with(ignored -> flush(batch),
+                        t -> log.error("NOTIFICATION BATCH {}: Scheduling of delivery failed.", batch.url(), t));
+    }
+
+    private void scheduleIfPending(Batch batch, Duration delay) {
+        boolean schedule;
+        synchronized (batch) {
+            schedule = !batch.pending.isEmpty() && !batch.scheduled;
+            if (schedule) {
+                batch.scheduled = true;
+            }
+        }
+        if (schedule) {
+            scheduleFlush(batch, delay);
+        }
+    }
+
+    private void flush(Batch batch) {
+        List<Entry> toSend = new ArrayList<>();
+        synchronized (batch) {
+            batch.scheduled = false;
+            if (batch.inFlight || batch.pending.isEmpty()) {
+                // an in-flight batch triggers the next delivery once it completes
+                return;
+            }
+            // a held back notification holds back the later notifications of its Task as well
+            Set<String> heldBack = new HashSet<>();
+            Iterator<Entry> iterator = batch.pending.values().iterator();
+            while (iterator.hasNext() && toSend.size() < maxSize) {
+                Entry entry = iterator.next();
+                if (heldBack.contains(entry.getTaskName()) || isHeldBack(entry)) {
+                    heldBack.add(entry.getTaskName());
+                } else {
+                    toSend.add(entry);
+                    iterator.remove();
+                }
+            }
+            if (toSend.isEmpty()) {
+                // everything waits for earlier notifications
+                batch.scheduled = true;
+            } else {
+                batch.inFlight = true;
+            }
+        }
+        if (toSend.isEmpty()) {
+            scheduleFlush(batch, Duration.ofMillis(window));
+            return;
+        }
+
+        log.debug("NOTIFICATION BATCH {}: Sending {} notifications.", batch.url(), toSend.size());
+        client.makeRequest(batch.definition.getUri(),
+                batch.definition.getMethod(),
+                batch.definition.getHeaders(),
+                toSend.stream().map(Entry::getNotification).collect(Collectors.toList()),
+                invoking(response -> handleResponse(response, batch, toSend)),
+                invoking(throwable -> onFailure(batch, toSend, throwable.toString())))
+            .subscribe().with(ignored -> {},
+                t -> onFailure(batch, toSend, t.toString()));
+    }
+
+    private void handleResponse(HttpResponse<Buffer> response, Batch batch, List<Entry> sent) {
+        if (200 <= response.statusCode() && response.statusCode() <= 299) {
+            log.debug("NOTIFICATION BATCH {}: Delivered {} notifications.", batch.url(), sent.size());
+            completed(batch);
+            sent.forEach(Entry::done);
+        } else {
+            onFailure(batch, sent, "RESPONSE " + response.statusCode() + ": " + response.bodyAsString());
+        }
+    }
+
+    private void completed(Batch batch) {
+        boolean full;
+        boolean schedule;
+        boolean empty;
+        synchronized (batch) {
+            batch.inFlight = false;
+            batch.redeliveries = 0;
+            batch.lastActive = System.currentTimeMillis();
+            full = batch.pending.size() >= maxSize;
+            schedule = !full && !batch.pending.isEmpty() && !batch.scheduled;
+            if (schedule) {
+                batch.scheduled = true;
+            }
+            empty = batch.isIdle();
+        }
+
+        if (full) {
+            flush(batch);
+        } else if (schedule) {
+            scheduleFlush(batch, Duration.ofMillis(window));
+        } else if (empty) {
+            scheduleEviction(batch);
+        }
+    }
+
+    private void scheduleEviction(Batch batch) {
+        Uni.createFrom().voidItem()
+                .onItem().delayIt().by(Duration.ofMillis(idle))
+                .subscribe().with(ignored -> evict(batch),
+                        t -> log.error("NOTIFICATION BATCH {}: Scheduling of eviction failed.", batch.url(), t));
+    }
+
+    /**
+     * Drops the batch if nothing was buffered since it became empty.
+     */
+    private void evict(Batch batch) {
+        batches.computeIfPresent(batch.key, (key, current) -> {
+            if (current != batch) {
+                return current;
+            }
+            synchronized (current) {
+                if (current.isIdle() && System.currentTimeMillis() - current.lastActive >= idle) {
+                    log.debug("NOTIFICATION BATCH {}: Idle. Dropping the batch.", current.url());
+                    return null;
+                }
+                return current;
+            }
+        });
+    }
+
+    private void onFailure(Batch batch, List<Entry> sent, String reason) {
+        int redelivery;
+        synchronized (batch) {
+            if (!batch.inFlight) {
+                // already handled by the response callback
+                return;
+            }
+            redelivery = ++batch.redeliveries;
+            if (redelivery > maxRedeliveries) {
+                batch.inFlight = false;
+                batch.redeliveries = 0;
+            } else {
+                // the entries keep their sequence, therefore they are sent before newer notifications again
+                sent.forEach(entry -> batch.pending.put(entry.getSequence(), entry));
+                batch.inFlight = false;
+                batch.scheduled = true;
+            }
+        }
+
+        if (redelivery > maxRedeliveries) {
+            log.error("NOTIFICATION BATCH {}: Delivery failed {} times. DROPPING {} notifications. Reason: {}",
+                    batch.url(), maxRedeliveries, sent.size(), reason);
+            completed(batch);
+            // same as an unbatched notification, a dropped notification is not replayed
+            sent.forEach(Entry::done);
+        } else {
+            log.warn("NOTIFICATION BATCH {}: Delivery failed. REDELIVERING {} notifications. Reason: {}",
+                    batch.url(), sent.size(), reason);
+            scheduleFlush(batch, Duration.ofMillis(window * (1L << Math.min(redelivery, 10))));
+        }
+    }
+
+    private boolean isHeldBack(Entry entry) {
+        NavigableMap<Long, Long> reserved = reservations.get(entry.getTaskName());
+        if (reserved == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Long> reservation : reserved.headMap(entry.getSequence(), false).entrySet()) {
+            if (now - reservation.getValue() <= maxHold) {
+                return true;
+            }
+            log.warn("NOTIFICATION BATCH: Notification {} of {} was not added in time. Not waiting for it anymore.",
+                    reservation.getKey(), entry.getTaskName());
+            release(entry.getTaskName(), reservation.getKey());
+        }
+        return false;
+    }
+
+    private boolean release(String taskName, long sequence) {
+        boolean[] released = {false};
+        reservations.computeIfPresent(taskName, (name, reserved) -> {
+            released[0] = reserved.remove(sequence) != null;
+            return reserved.isEmpty() ? null : reserved;
+        });
+        return released[0];
+    }
+
+    /**
+     * Notifications are sent with the headers of the definition, therefore only definitions with the same headers can
+     * share a batch.
+     */
+    private static String key(Request definition) {
+        StringBuilder key = new StringBuilder().append(definition.getMethod()).append(' ').append(definition.getUrl());
+        if (definition.getHeaders() != null) {
+            definition.getHeaders().stream()
+                    .sorted(Comparator.comparing((Header header) -> header.getName().toLowerCase())
+                            .thenComparing(Header::getValue, Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .forEach(header -> key.append('\n').append(header.getName().toLowerCase())
+                            .append(": ").append(header.getValue()));
+        }
+        return key.toString();
+    }
+
+    private static class Batch {
+        private final String key;
+        private final Request definition;
+        /**
+         * Buffered notifications by their sequence
+         */
+        private final NavigableMap<Long, Entry> pending = new TreeMap<>();
+        private boolean scheduled = false;
+        private boolean inFlight = false;
+        private int redeliveries = 0;
+        private long lastActive = System.currentTimeMillis();
+
+        private Batch(String key, Request definition) {
+            this.key = key;
+            this.definition = definition;
+        }
+
+        private String url() {
+            return definition.getUrl();
+        }
+
+        private boolean isIdle() {
+            return pending.isEmpty() && !inFlight && !scheduled;
+        }
+    }
+
+    @Getter
+    private static class Entry {
+        private final NotificationRequest notification;
+        private final long sequence;
+        private final CompletableFuture<Void> delivered = new CompletableFuture<>();
+
+        private Entry(NotificationRequest notification, long sequence) {
+            this.notification = notification;
+            this.sequence = sequence;
+        }
+
+        private String getTaskName() {
+            return notification.getTask().getName();
+        }
+
+        private void done() {
+            delivered.complete(null);
+        }
+    }
+}
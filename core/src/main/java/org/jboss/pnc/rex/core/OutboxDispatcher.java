@@ -0,0 +1,166 @@
+package org.jboss.pnc.rex.core;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.Cancellable;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.context.ThreadContext;
+import org.jboss.pnc.rex.common.enums.DependencySignal;
+import org.jboss.pnc.rex.common.enums.State;
+import org.jboss.pnc.rex.common.enums.Transition;
+import org.jboss.pnc.rex.core.api.Outbox;
+import org.jboss.pnc.rex.core.api.TaskContainer;
+import org.jboss.pnc.rex.core.jobs.ControllerJob;
+import org.jboss.pnc.rex.core.jobs.InvokeStartJob;
+import org.jboss.pnc.rex.core.jobs.InvokeStopJob;
+import org.jboss.pnc.rex.core.jobs.NotifyCallerJob;
+import org.jboss.pnc.rex.core.jobs.PokeQueueJob;
+import org.jboss.pnc.rex.core.jobs.PropagateJob;
+import org.jboss.pnc.rex.model.OutboxEntry;
+import org.jboss.pnc.rex.model.Task;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodically looks for outbox entries that were not acknowledged in time (f.e. the node that recorded them died)
+ * and replays their Jobs. Every node sweeps the outbox; an entry is replayed only by the node that claims it first.
+ * <p>
+ * Jobs are replayed at least once. A Job is skipped if the Task is no longer in the state the Job was scheduled for.
+ * A node that drains before shutdown does not claim entries of other nodes.
+ */
+@Slf4j
+@ApplicationScoped
+public class OutboxDispatcher {
+
+    private final Outbox outbox;
+
+    private final TaskContainer container;
+
+    private final ManagedExecutor dispatchers;
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private volatile Cancellable ticks;
+
+    @ConfigProperty(name = "scheduler.options.outbox.sweep-interval-ms", defaultValue = "5000")
+    long sweepInterval;
+
+    @ConfigProperty(name = "scheduler.options.outbox.claim-timeout-ms", defaultValue = "60000")
+    long claimTimeout;
+
+    @ConfigProperty(name = "scheduler.options.outbox.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "scheduler.options.outbox.max-replays", defaultValue = "5")
+    int maxReplays;
+
+    public OutboxDispatcher(Outbox outbox,
+                            TaskContainer container,
+                            @ConfigProperty(name = "scheduler.options.outbox.dispatchers", defaultValue = "4")
+                                    int dispatchers) {
+        this.outbox = outbox;
+        this.container = container;
+        this.dispatchers = ManagedExecutor.builder()
+                .maxAsync(dispatchers)
+                .propagated(ThreadContext.NONE)
+                .cleared(ThreadContext.ALL_REMAINING)
+                .build();
+    }
+
+    void start(@Observes StartupEvent event) {
+        ticks = Multi.createFrom().ticks().every(Duration.ofMillis(sweepInterval))
+                .onOverflow().drop()
+                .subscribe().with(tick -> dispatchers.execute(this::sweep),
+                        t -> log.error("OUTBOX: Sweeping has stopped.", t));
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        if (ticks != null) {
+            ticks.cancel();
+        }
+        dispatchers.shutdown();
+    }
+
+    /**
+     * Claims stale entries and replays their Jobs. Only one sweep runs at a time on a node.
+     */
+    void sweep() {
+        if (container.isShutdown() || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<OutboxEntry> stale = outbox.getStale(System.currentTimeMillis() - claimTimeout, batchSize);
+            if (!stale.isEmpty()) {
+                log.info("OUTBOX: Found {} stale entries.", stale.size());
+            }
+            for (OutboxEntry entry : stale) {
+                outbox.claim(entry).ifPresent(claimed -> dispatchers.execute(() -> replay(claimed)));
+            }
+        } catch (RuntimeException e) {
+            log.error("OUTBOX: Sweep failed.", e);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private void replay(OutboxEntry entry) {
+        if (entry.getReplays() > maxReplays) {
+            log.error("OUTBOX: Job {} of {} was replayed {} times. DROPPING {}",
+                    entry.getType(), entry.getTaskName(), maxReplays, entry);
+            outbox.acknowledge(entry.getId());
+            return;
+        }
+
+        ControllerJob job = toJob(entry);
+        if (job == null) {
+            log.info("OUTBOX: Job {} of {} is obsolete. Skipping.", entry.getType(), entry.getTaskName());
+            outbox.acknowledge(entry.getId());
+            return;
+        }
+
+        log.info("OUTBOX: Replaying job {} of {}.", entry.getType(), entry.getTaskName());
+        job.setOutboxId(entry.getId());
+        try {
+            job.run();
+        } catch (RuntimeException e) {
+            log.error("OUTBOX: Replay of {} failed.", entry, e);
+        }
+    }
+
+    /**
+     * Re-creates the Job from the entry with the current Task.
+     *
+     * @return the Job; null if the Job should not run anymore
+     */
+    private ControllerJob toJob(OutboxEntry entry) {
+        switch (entry.getType()) {
+            case POKE_QUEUE:
+                return new PokeQueueJob();
+            case INVOKE_START: {
+                Task task = container.getTask(entry.getTaskName());
+                return task != null && task.getState() == State.STARTING ? new InvokeStartJob(task) : null;
+            }
+            case INVOKE_STOP: {
+                Task task = container.getTask(entry.getTaskName());
+                return task != null && task.getState() == State.STOPPING ? new InvokeStopJob(task) : null;
+            }
+            case NOTIFY_CALLER: {
+                // the Job loads the payload itself
+                List<Task> tasks = container.getTasks(Set.of(entry.getTaskName()), false);
+                return tasks.isEmpty() ? null : new NotifyCallerJob(Transition.valueOf(entry.getTransition()), tasks.get(0));
+            }
+            case PROPAGATE:
+                return new PropagateJob(DependencySignal.valueOf(entry.getSignal()), entry.getDependants());
+            default:
+                throw new IllegalStateException("Unknown job type in outbox: " + entry.getType());
+        }
+    }
+}
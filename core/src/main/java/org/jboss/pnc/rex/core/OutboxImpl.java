@@ -0,0 +1,170 @@
+package org.jboss.pnc.rex.core;
+
+import io.quarkus.infinispan.client.Remote;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.infinispan.client.hotrod.MetadataValue;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.Search;
+import org.infinispan.query.dsl.Query;
+import org.infinispan.query.dsl.QueryFactory;
+import org.infinispan.query.dsl.SortOrder;
+import org.jboss.pnc.rex.core.api.Outbox;
+import org.jboss.pnc.rex.core.jobs.DurableJob;
+import org.jboss.pnc.rex.model.OutboxEntry;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transactional;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static javax.transaction.Transactional.TxType.MANDATORY;
+
+/**
+ * Outbox held in a separate transactional cache.
+ */
+@Slf4j
+@ApplicationScoped
+public class OutboxImpl implements Outbox {
+
+    @Remote("outbox")
+    RemoteCache<String, OutboxEntry> outbox;
+
+    private final TransactionSynchronizationRegistry synchronizationRegistry;
+
+    /**
+     * Identifies this node as an owner of entries
+     */
+    private final String node;
+
+    /**
+     * Entries of this node that were not acknowledged yet
+     */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public OutboxImpl(TransactionSynchronizationRegistry synchronizationRegistry,
+                      @ConfigProperty(name = "scheduler.name", defaultValue = "node") String name) {
+        this.synchronizationRegistry = synchronizationRegistry;
+        this.node = name + '-' + UUID.randomUUID();
+    }
+
+    @Override
+    public void record(DurableJob job) {
+        if (synchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            // nothing to be atomic with, the Job runs right away
+            return;
+        }
+        OutboxEntry entry = job.toOutboxEntry().toBuilder()
+                .id(UUID.randomUUID().toString())
+                .owner(node)
+                .claimedAt(System.currentTimeMillis())
+                .build();
+        log.trace("OUTBOX: Recording {}", entry);
+        outbox.put(entry.getId(), entry);
+        job.setOutboxId(entry.getId());
+
+        String id = entry.getId();
+        pending.add(id);
+        synchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != Status.STATUS_COMMITTED) {
+                    // the entry was never stored
+                    pending.remove(id);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void acknowledge(String id) {
+        try {
+            outbox.remove(id);
+            pending.remove(id);
+        } catch (RuntimeException e) {
+            // the Job is replayed later
+            log.warn("OUTBOX: Could not acknowledge entry {}.", id, e);
+        }
+    }
+
+    @Override
+    @Transactional(MANDATORY)
+    public boolean consume(String id) {
+        MetadataValue<OutboxEntry> entry = outbox.getWithMetadata(id);
+        if (entry != null && outbox.removeWithVersion(id, entry.getVersion())) {
+            pending.remove(id);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public List<OutboxEntry> getStale(long claimedBefore, int limit) {
+        QueryFactory factory = Search.getQueryFactory(outbox);
+        Query<OutboxEntry> query = factory.from(OutboxEntry.class)
+                .having("claimedAt").lt(claimedBefore)
+                .orderBy("claimedAt", SortOrder.ASC)
+                .maxResults(limit)
+                .build();
+
+        return query.list();
+    }
+
+    @Override
+    @Transactional
+    public Optional<OutboxEntry> claim(OutboxEntry entry) {
+        MetadataValue<OutboxEntry> current = outbox.getWithMetadata(entry.getId());
+        if (current == null || current.getValue().getClaimedAt() != entry.getClaimedAt()) {
+            return Optional.empty();
+        }
+
+        OutboxEntry claimed = entry.toBuilder()
+                .owner(node)
+                .claimedAt(System.currentTimeMillis())
+                .replays(entry.getReplays() + 1)
+                .build();
+        if (!outbox.replaceWithVersion(entry.getId(), claimed, current.getVersion())) {
+            return Optional.empty();
+        }
+        pending.add(claimed.getId());
+        return Optional.of(claimed);
+    }
+
+    @Override
+    public int getPending() {
+        return pending.size();
+    }
+
+    @Override
+    public int handOff() {
+        int released = 0;
+        for (String id : pending) {
+            try {
+                MetadataValue<OutboxEntry> current = outbox.getWithMetadata(id);
+                if (current != null && node.equals(current.getValue().getOwner())) {
+                    // an entry claimed at 0 is stale for every node
+                    OutboxEntry handedOff = current.getValue().toBuilder()
+                            .claimedAt(0)
+                            .build();
+                    if (outbox.replaceWithVersion(id, handedOff, current.getVersion())) {
+                        released++;
+                    }
+                }
+                pending.remove(id);
+            } catch (RuntimeException e) {
+                log.warn("OUTBOX: Could not hand off entry {}, it is replayed after the claim timeout.", id, e);
+            }
+        }
+        return released;
+    }
+}
@@ -0,0 +1,181 @@
+package org.jboss.pnc.rex.core;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.context.ThreadContext;
+import org.jboss.pnc.rex.common.enums.Method;
+import org.jboss.pnc.rex.core.api.QueueManager;
+import org.jboss.pnc.rex.core.api.TaskContainer;
+import org.jboss.pnc.rex.core.delegates.WithRetries;
+import org.jboss.pnc.rex.core.metrics.SchedulerMetrics;
+import org.jboss.pnc.rex.model.Header;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.jboss.pnc.rex.core.GenericVertxHttpClient.invoking;
+
+/**
+ * Coalesces requests to poke the queue on this node. The first request opens a short window and all requests that
+ * arrive within it are served by a single poke, so a burst of finished Tasks results in a few scheduling passes
+ * instead of one conflicting pass per Task.
+ * <p>
+ * Passes run one at a time on a dedicated thread. A request that arrives during a pass opens a new window, therefore
+ * no request is lost. Additionally, the queue is poked periodically in case a request got lost with a crashed node.
+ * <p>
+ * If leader election is enabled, only the elected node pokes the queue. Other nodes forward their coalesced requests
+ * to it and poke the queue themselves only if the leader is unknown or cannot be reached.
+ * <p>
+ * A node that drains before shutdown does not poke the queue, so that it does not start new Tasks. Its requests are
+ * forwarded to the leader if there is one and dropped otherwise; the queue is poked periodically by other nodes.
+ */
+@Slf4j
+@ApplicationScoped
+public class QueueDispatcher {
+
+    private final QueueManager manager;
+
+    private final SchedulerMetrics metrics;
+
+    private final QueueLeaderElection election;
+
+    private final GenericVertxHttpClient client;
+
+    private final TaskContainer container;
+
+    private final ManagedExecutor dispatcher;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile Cancellable ticks;
+
+    @ConfigProperty(name = "scheduler.options.queue.poke-window-ms", defaultValue = "20")
+    long window;
+
+    @ConfigProperty(name = "scheduler.options.queue.poke-interval-ms", defaultValue = "10000")
+    long interval;
+
+    public QueueDispatcher(@WithRetries QueueManager manager,
+                           SchedulerMetrics metrics,
+                           QueueLeaderElection election,
+                           GenericVertxHttpClient client,
+                           TaskContainer container) {
+        this.manager = manager;
+        this.metrics = metrics;
+        this.election = election;
+        this.client = client;
+        this.container = container;
+        this.dispatcher = ManagedExecutor.builder()
+                .maxAsync(1)
+                .propagated(ThreadContext.NONE)
+                .cleared(ThreadContext.ALL_REMAINING)
+                .build();
+    }
+
+    void start(@Observes StartupEvent event) {
+        ticks = Multi.createFrom().ticks().every(Duration.ofMillis(interval))
+                .onOverflow().drop()
+                .subscribe().with(tick -> {
+                            if (election.isLeader()) {
+                                request();
+                            }
+                        },
+                        t -> log.error("QUEUE: Periodic poking has stopped.", t));
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        if (ticks != null) {
+            ticks.cancel();
+        }
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Requests a poke of the queue. The call never blocks, the poke happens after the window elapses.
+     */
+    public void request() {
+        metrics.pokeRequest();
+        if (!scheduled.compareAndSet(false, true)) {
+            // served by the already scheduled pass
+            return;
+        }
+        Uni.createFrom().voidItem()
+                .onItem().delayIt().by(Duration.ofMillis(window))
+                .subscribe().with(ignored -> dispatcher.execute(this::pass),
+                        t -> {
+                            scheduled.set(false);
+                            log.error("QUEUE: Scheduling of a poke failed.", t);
+                        });
+    }
+
+    /**
+     * Requests a poke of the queue after the delay.
+     *
+     * @param delay delay before the request
+     */
+    public void request(Duration delay) {
+        if (delay.isZero() || delay.isNegative()) {
+            request();
+            return;
+        }
+        Uni.createFrom().voidItem()
+                .onItem().delayIt().by(delay)
+                .subscribe().with(ignored -> request(),
+                        t -> log.error("QUEUE: Delayed poke of the queue failed.", t));
+    }
+
+    private void pass() {
+        // requests from now on are not covered by this pass
+        scheduled.set(false);
+        Optional<String> leaderUrl = election.getLeaderUrl();
+        if (!election.isLeader() && leaderUrl.isPresent()) {
+            forward(leaderUrl.get());
+        } else {
+            poke();
+        }
+    }
+
+    private void poke() {
+        if (container.isShutdown()) {
+            log.debug("QUEUE: Node is draining. Dropping the poke.");
+            return;
+        }
+        try {
+            manager.poke();
+        } catch (RuntimeException e) {
+            log.error("QUEUE: Poking of the queue failed.", e);
+        }
+    }
+
+    private void forward(String leaderUrl) {
+        log.debug("QUEUE: Forwarding poke to the leader {}", leaderUrl);
+        client.makeRequest(URI.create(leaderUrl + "/rest/internal/queue/poke"),
+                Method.POST,
+                List.of(Header.builder().name("Content-Type").value("application/json").build()),
+                Collections.emptyMap(),
+                invoking(response -> {
+                    if (response.statusCode() >= 300) {
+                        log.warn("QUEUE: Leader rejected the poke with {}. Poking locally.", response.statusCode());
+                        poke();
+                    }
+                }),
+                invoking(t -> {
+                    log.warn("QUEUE: Leader {} is unreachable. Poking locally.", leaderUrl, t);
+                    poke();
+                }))
+            .subscribe().with(ignored -> {},
+                t -> log.error("QUEUE: Forwarding of a poke failed.", t));
+    }
+}
@@ -0,0 +1,171 @@
+package org.jboss.pnc.rex.core;
+
+import io.quarkus.infinispan.client.Remote;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.Cancellable;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.MetadataValue;
+import org.infinispan.client.hotrod.RemoteCache;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elects a single node of the cluster that dispatches the queue. The leader holds a lease entry with a lifespan and
+ * renews it several times per lease. If the leader dies, the entry expires and another node takes the lease over,
+ * therefore failover takes at most one lease. A leader that shuts down releases the lease right away.
+ * <p>
+ * The lease entry contains the base url of the leader so that other nodes can forward pokes of the queue to it. The
+ * lease is kept in the membership cache, which is not transactional, so that renewals don't take part in or wait for
+ * transactions of Tasks.
+ * Election is optional; if disabled, every node dispatches the queue.
+ */
+@Slf4j
+@ApplicationScoped
+public class QueueLeaderElection {
+
+    public static final String LEASE_KEY = "QUEUE_DISPATCHER_LEASE";
+
+    @Remote("membership")
+    RemoteCache<String, String> leases;
+
+    @ConfigProperty(name = "scheduler.options.queue.leader-election.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "scheduler.options.queue.leader-election.lease-ms", defaultValue = "6000")
+    long lease;
+
+    @ConfigProperty(name = "scheduler.baseUrl")
+    String baseUrl;
+
+    /**
+     * Identifies this node as the holder of the lease
+     */
+    private final String node;
+
+    private volatile boolean leader;
+
+    private volatile String leaderUrl;
+
+    private volatile Cancellable ticks;
+
+    private volatile boolean resigned;
+
+    public QueueLeaderElection(@ConfigProperty(name = "scheduler.name", defaultValue = "node") String name) {
+        this.node = name + '-' + UUID.randomUUID();
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        renew();
+        ticks = Multi.createFrom().ticks().every(Duration.ofMillis(lease / 3))
+                .onOverflow().drop()
+                .subscribe().with(tick -> renew(),
+                        t -> log.error("LEADER: Renewal of the lease has stopped.", t));
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        resign();
+    }
+
+    /**
+     * Stops renewing the lease and releases it so that another node takes over right away. The node does not run for
+     * the lease again. Used by a node that drains before shutdown.
+     */
+    public void resign() {
+        resigned = true;
+        if (ticks != null) {
+            ticks.cancel();
+        }
+        release();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true if election is disabled or this node holds the lease
+     */
+    public boolean isLeader() {
+        return !enabled || leader;
+    }
+
+    /**
+     * @return base url of the current leader; empty if unknown
+     */
+    public Optional<String> getLeaderUrl() {
+        return Optional.ofNullable(leaderUrl);
+    }
+
+    synchronized void renew() {
+        if (resigned) {
+            // resigned, a renewal in progress must not take the lease again
+            return;
+        }
+        boolean wasLeader = leader;
+        String value = node + ' ' + baseUrl;
+        try {
+            MetadataValue<String> current = leases.getWithMetadata(LEASE_KEY);
+            if (current == null) {
+                String previous = leases.withFlags(Flag.FORCE_RETURN_VALUE)
+                        .putIfAbsent(LEASE_KEY, value, lease, TimeUnit.MILLISECONDS);
+                update(previous == null ? value : previous);
+            } else if (current.getValue().equals(value)) {
+                boolean renewed = leases.replaceWithVersion(LEASE_KEY, value, current.getVersion(), leaseSeconds());
+                update(renewed ? value : leases.get(LEASE_KEY));
+            } else {
+                update(current.getValue());
+            }
+        } catch (RuntimeException e) {
+            // without a renewal, the lease can expire at any moment
+            log.error("LEADER: Lease could not be renewed.", e);
+            leader = false;
+        }
+        if (wasLeader != leader) {
+            log.info("LEADER: This node {} the queue dispatcher.", leader ? "became" : "is no longer");
+        }
+    }
+
+    private void update(String holder) {
+        if (holder == null) {
+            leader = false;
+            leaderUrl = null;
+            return;
+        }
+        int separator = holder.indexOf(' ');
+        leader = holder.substring(0, separator).equals(node);
+        leaderUrl = holder.substring(separator + 1);
+    }
+
+    private synchronized void release() {
+        if (!leader) {
+            return;
+        }
+        leader = false;
+        leaderUrl = null;
+        try {
+            MetadataValue<String> current = leases.getWithMetadata(LEASE_KEY);
+            if (current != null && current.getValue().startsWith(node + ' ')) {
+                leases.removeWithVersion(LEASE_KEY, current.getVersion());
+            }
+        } catch (RuntimeException e) {
+            log.warn("LEADER: Lease could not be released, it expires in {} ms.", lease, e);
+        }
+    }
+
+    private int leaseSeconds() {
+        // lifespan of a versioned replace has a granularity of seconds
+        return (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(lease + 999));
+    }
+}
@@ -3,19 +3,30 @@ package org.jboss.pnc.rex.core;
 import lombok.extern.slf4j.Slf4j;
 import org.infinispan.client.hotrod.MetadataValue;
 import org.jboss.pnc.rex.core.api.QueueManager;
-import org.jboss.pnc.rex.core.api.TaskContainer;
 import org.jboss.pnc.rex.core.api.TaskController;
+import org.jboss.pnc.rex.core.api.TaskQueue;
+import org.jboss.pnc.rex.core.counter.ConcurrencyLimiter;
 import org.jboss.pnc.rex.core.counter.Counter;
+import org.jboss.pnc.rex.core.counter.GroupLimiters;
+import org.jboss.pnc.rex.core.counter.GroupOptions;
+import org.jboss.pnc.rex.core.counter.LimiterStatistics;
 import org.jboss.pnc.rex.core.counter.MaxConcurrent;
-import org.jboss.pnc.rex.core.counter.Running;
-import org.jboss.pnc.rex.model.Task;
+import org.jboss.pnc.rex.core.counter.QueueDepths;
+import org.jboss.pnc.rex.core.metrics.SchedulerMetrics;
+import org.jboss.pnc.rex.model.QueueEntry;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.transaction.Transactional;
 
-import java.util.ConcurrentModificationException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static javax.transaction.Transactional.TxType.MANDATORY;
 
@@ -24,26 +35,50 @@ import static javax.transaction.Transactional.TxType.MANDATORY;
 public class QueueManagerImpl implements QueueManager {
 
     private final Counter max;
-    private final Counter running;
-    private final TaskContainer container;
+    private final ConcurrencyLimiter limiter;
+    private final GroupLimiters groupLimiters;
+    private final GroupOptions groupOptions;
+    private final TaskQueue queue;
+    private final QueueDepths depths;
     private final TaskController controller;
+    private final TransactionSynchronizationRegistry synchronizationRegistry;
+    private final SchedulerMetrics metrics;
 
-    public QueueManagerImpl(@MaxConcurrent Counter max, @Running Counter running, TaskContainer container, TaskController controller) {
+    /**
+     * Permit changes waiting for the completion of their transaction
+     */
+    private final AtomicInteger unsettled = new AtomicInteger();
+
+    public QueueManagerImpl(@MaxConcurrent Counter max,
+                            ConcurrencyLimiter limiter,
+                            GroupLimiters groupLimiters,
+                            GroupOptions groupOptions,
+                            TaskQueue queue,
+                            QueueDepths depths,
+                            TaskController controller,
+                            TransactionSynchronizationRegistry synchronizationRegistry,
+                            SchedulerMetrics metrics) {
         this.max = max;
-        this.running = running;
-        this.container = container;
+        this.limiter = limiter;
+        this.groupLimiters = groupLimiters;
+        this.groupOptions = groupOptions;
+        this.queue = queue;
+        this.depths = depths;
         this.controller = controller;
+        this.synchronizationRegistry = synchronizationRegistry;
+        this.metrics = metrics;
     }
 
     @Override
     @Transactional
     public void poke() {
-        log.info("QUEUE: Poking Task queue");
-        MetadataValue<Long> maxMetadata = max.getMetadataValue();
-        Long maxValue = maxMetadata.getValue();
+        metrics.poke(this::doPoke);
+    }
 
-        MetadataValue<Long> runningMetadata = running.getMetadataValue();
-        Long runningValue = runningMetadata.getValue();
+    private void doPoke() {
+        log.info("QUEUE: Poking Task queue");
+        Long maxValue = max.getMetadataValue().getValue();
+        long runningValue = limiter.getAcquired();
 
         if (runningValue >= maxValue) {
             log.debug("QUEUE: Maximum number of parallel builds reached.({} out of {})", runningValue, maxValue);
@@ -52,45 +87,119 @@ public class QueueManagerImpl implements QueueManager {
 
         long freeSpace = maxValue - runningValue;
 
-        List<Task> randomEnqueuedTasks = container.getEnqueuedTasks(freeSpace);
+        List<GroupQueue> groups = loadGroups(freeSpace);
+        List<GroupQueue> selected = selectFairly(groups, freeSpace);
+
+        if (selected.size() == 0) {
+            return;
+        }
 
-        if (randomEnqueuedTasks.size() == 0) {
+        // the free space could have been taken by another node in the meantime
+        long permits = limiter.tryAcquire(selected.size(), maxValue);
+        if (permits == 0) {
+            log.debug("QUEUE: Free space was taken concurrently.");
             return;
         }
+        selected = selected.subList(0, (int) permits);
+
+        List<String> toDequeue = acquireGroupPermits(selected);
+
+        // return permits of Tasks whose group became full concurrently
+        limiter.release(permits - toDequeue.size());
+        releaseOnRollback(limiter, toDequeue.size());
 
         log.info("QUEUE: Free space of {} found. Scheduling {} task(s) of {}",
                 freeSpace,
-                randomEnqueuedTasks.size(),
-                randomEnqueuedTasks.stream().map(Task::getName).collect(Collectors.toList())
+                toDequeue.size(),
+                toDequeue
         );
 
-        randomEnqueuedTasks.forEach(task -> controller.dequeue(task.getName()));
+        toDequeue.forEach(controller::dequeue);
+    }
+
+    /**
+     * Loads heads of queues of all groups that have ENQUEUED Tasks and are not at their maximum. Groups are read from
+     * the depth counters, the queue is queried only once per group with space, by an indexed query for at most as
+     * many Tasks as the group can start.
+     */
+    private List<GroupQueue> loadGroups(long freeSpace) {
+        List<GroupQueue> groups = new ArrayList<>();
+        for (Map.Entry<String, Long> depth : depths.getGroups().entrySet()) {
+            String group = depth.getKey();
+            ConcurrencyLimiter groupLimiter = groupLimiters.get(group);
+            Long groupMax = groupOptions.getMaximum(group);
+            long groupRunning = groupLimiter.getAcquired();
+
+            long groupSpace = Math.min(depth.getValue(),
+                    groupMax == null ? freeSpace : Math.min(freeSpace, groupMax - groupRunning));
+            if (groupSpace <= 0) {
+                log.debug("QUEUE: Maximum number of parallel builds of group {} reached.({} out of {})",
+                        group,
+                        groupRunning,
+                        groupMax);
+                continue;
+            }
+
+            groups.add(new GroupQueue(group,
+                    groupLimiter,
+                    groupMax == null ? Long.MAX_VALUE : groupMax,
+                    Math.max(groupOptions.getWeight(group), 1L),
+                    groupRunning,
+                    metrics.enqueuedQuery("peek", () -> queue.peek(group, groupSpace))));
+        }
+        return groups;
+    }
 
-        log.info("QUEUE: Increasing running counter. ({} to {}) [ISPN-VERSION:{}]",
-                runningValue,
-                (runningValue + randomEnqueuedTasks.size()),
-                runningMetadata.getVersion());
-        if (!running.replaceValue(runningMetadata, runningValue + randomEnqueuedTasks.size())) {
-            RuntimeException e = new ConcurrentModificationException("Running counter was modified concurrently.");
-            log.error("QUEUE: Concurrent modification detected.", e);
-            throw e;
+    /**
+     * Weighted fair queuing of free space. Every slot goes to the group which would have the least running Tasks per
+     * unit of weight after receiving it. Ties are resolved in favour of the higher priority and then the older Task.
+     *
+     * @return group of every selected Task in the order of selection
+     */
+    private static List<GroupQueue> selectFairly(List<GroupQueue> groups, long freeSpace) {
+        List<GroupQueue> selected = new ArrayList<>();
+        while (selected.size() < freeSpace) {
+            GroupQueue next = null;
+            for (GroupQueue group : groups) {
+                if (group.hasNext() && (next == null || group.precedes(next))) {
+                    next = group;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            next.select();
+            selected.add(next);
         }
+        return selected;
+    }
+
+    /**
+     * Acquires permits in limiters of groups of selected Tasks. Tasks whose group became full in the meantime are
+     * skipped.
+     *
+     * @return names of Tasks to dequeue
+     */
+    private List<String> acquireGroupPermits(List<GroupQueue> selected) {
+        Map<GroupQueue, Long> requested = new LinkedHashMap<>();
+        selected.forEach(group -> requested.merge(group, 1L, Long::sum));
+
+        List<String> toDequeue = new ArrayList<>();
+        requested.forEach((group, amount) -> {
+            long groupPermits = group.limiter.tryAcquire(amount, group.maximum);
+            releaseOnRollback(group.limiter, groupPermits);
+            toDequeue.addAll(group.dequeued.subList(0, (int) groupPermits));
+        });
+        return toDequeue;
     }
 
     @Override
     @Transactional(MANDATORY)
-    public void decreaseRunningCounter() {
-        MetadataValue<Long> runningMetadata = running.getMetadataValue();
-        long runningValue = runningMetadata.getValue() - 1;
-        log.info("QUEUE: Decreasing running counter by one. ({} to {}) [ISPN-VERSION:{}]",
-                runningMetadata.getValue(),
-                runningValue,
-                runningMetadata.getVersion());
-        if (!running.replaceValue(runningMetadata, runningValue)) {
-            RuntimeException e = new ConcurrentModificationException("Running counter was modified concurrently.");
-            log.error("QUEUE: Concurrent modification detected.", e);
-            throw e;
-        }
+    public void decreaseRunningCounter(String group) {
+        log.info("QUEUE: Decreasing running counter of group {} by one.", group);
+        ConcurrencyLimiter groupLimiter = groupLimiters.get(group);
+        releaseOnCommit(limiter, 1);
+        releaseOnCommit(groupLimiter, 1);
     }
 
     @Override
@@ -110,4 +219,150 @@ public class QueueManagerImpl implements QueueManager {
         MetadataValue<Long> meta = max.getMetadataValue();
         return meta == null ? null : meta.getValue();
     }
+
+    @Override
+    @Transactional(MANDATORY)
+    public void setGroupConcurrency(String group, Long amount) {
+        groupOptions.setMaximum(group, amount);
+        poke();
+    }
+
+    @Override
+    public Long getGroupConcurrency(String group) {
+        return groupOptions.getMaximum(group);
+    }
+
+    @Override
+    @Transactional(MANDATORY)
+    public void setGroupWeight(String group, Long weight) {
+        groupOptions.setWeight(group, weight);
+        poke();
+    }
+
+    @Override
+    public Long getGroupWeight(String group) {
+        return groupOptions.getWeight(group);
+    }
+
+    @Override
+    public LimiterStatistics getConcurrencyStatistics() {
+        return limiter.getStatistics();
+    }
+
+    @Override
+    public int getUnsettledPermits() {
+        return unsettled.get();
+    }
+
+    /**
+     * Permits are acquired outside of the transaction, therefore they have to be returned if the Tasks were not
+     * dequeued.
+     */
+    private void releaseOnRollback(ConcurrencyLimiter limiter, long permits) {
+        if (permits <= 0) {
+            return;
+        }
+        unsettled.incrementAndGet();
+        synchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status != Status.STATUS_COMMITTED) {
+                        log.info("QUEUE: Transaction did not commit. Releasing {} permit(s).", permits);
+                        limiter.release(permits);
+                    }
+                } finally {
+                    unsettled.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Permits are released only once the Task finished for good. A permit released before the commit could be taken by
+     * another node and could not be taken back without exceeding the maximum. The release is registered before the
+     * PokeQueueJob of the transition, which is coalesced by the dispatcher anyway.
+     */
+    private void releaseOnCommit(ConcurrencyLimiter limiter, long permits) {
+        unsettled.incrementAndGet();
+        synchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == Status.STATUS_COMMITTED) {
+                        limiter.release(permits);
+                    }
+                } catch (RuntimeException e) {
+                    // corrected by the reconciler
+                    log.error("QUEUE: {} permit(s) could not be released.", permits, e);
+                } finally {
+                    unsettled.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Head of the queue of a group together with the state needed for fair selection between groups.
+     */
+    private static class GroupQueue {
+        private final String name;
+        private final ConcurrencyLimiter limiter;
+        private final long maximum;
+        private final long weight;
+        private final Iterator<QueueEntry> entries;
+        private final List<String> dequeued = new ArrayList<>();
+        private long running;
+        private QueueEntry head;
+
+        private GroupQueue(String name,
+                           ConcurrencyLimiter limiter,
+                           long maximum,
+                           long weight,
+                           long running,
+                           List<QueueEntry> entries) {
+            this.name = name;
+            this.limiter = limiter;
+            this.maximum = maximum;
+            this.weight = weight;
+            this.running = running;
+            this.entries = entries.iterator();
+            this.head = this.entries.hasNext() ? this.entries.next() : null;
+        }
+
+        private boolean hasNext() {
+            return head != null;
+        }
+
+        private void select() {
+            dequeued.add(head.getName());
+            running++;
+            head = entries.hasNext() ? entries.next() : null;
+        }
+
+        /**
+         * Compares (running + 1) / weight of both groups without division.
+         */
+        private boolean precedes(GroupQueue other) {
+            int share = Double.compare((running + 1) * (double) other.weight, (other.running + 1) * (double) weight);
+            if (share != 0) {
+                return share < 0;
+            }
+            if (head.getPriority() != other.head.getPriority()) {
+                return head.getPriority() > other.head.getPriority();
+            }
+            return head.getSequence() < other.head.getSequence();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
 }
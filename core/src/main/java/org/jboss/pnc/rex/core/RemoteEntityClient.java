@@ -7,7 +7,7 @@ import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.core.buffer.Buffer;
 import io.vertx.mutiny.ext.web.client.HttpResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.rex.common.exceptions.CircuitBreakerOpenException;
 import org.jboss.pnc.rex.core.api.TaskController;
 import org.jboss.pnc.rex.core.delegates.WithTransactions;
 import org.jboss.pnc.rex.model.Request;
@@ -17,7 +17,6 @@ import org.jboss.pnc.rex.model.requests.StopRequest;
 
 import javax.enterprise.context.ApplicationScoped;
 import java.net.URI;
-import java.net.URISyntaxException;
 
 /**
  * TODO: Possibly convert to JAX-RS RestClient builder to enable dynamic url
@@ -31,36 +30,43 @@ public class RemoteEntityClient {
 
     private final TaskController controller;
 
+    private final TaskContainerImpl container;
+
     private final GenericVertxHttpClient client;
 
     private final ObjectMapper mapper;
 
-    @ConfigProperty(name = "scheduler.baseUrl", defaultValue = "http://localhost:8080")
-    String baseUrl;
+    private final TaskOwnership ownership;
 
-    public RemoteEntityClient(GenericVertxHttpClient client, @WithTransactions TaskController controller, ObjectMapper mapper) {
+    public RemoteEntityClient(GenericVertxHttpClient client,
+                              @WithTransactions TaskController controller,
+                              TaskContainerImpl container,
+                              ObjectMapper mapper,
+                              TaskOwnership ownership) {
         this.controller = controller;
+        this.container = container;
         this.client = client;
         this.mapper = mapper;
+        this.ownership = ownership;
     }
 
-    public void stopJob(Task task) {
-        Request requestDefinition = task.getRemoteCancel();
+    public Uni<Void> stopJob(Task task) {
+        Request requestDefinition = container.getDefinition(task).getRemoteCancel();
 
         URI url;
         try {
-            url = new URI(requestDefinition.getUrl());
-        } catch (URISyntaxException e) {
+            url = requestDefinition.getUri();
+        } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("remoteCancel.url is not a valid URL for task with name " +
                     task.getName(), e);
         }
 
         StopRequest request = StopRequest.builder()
                 .payload(requestDefinition.getAttachment())
-                .callback(baseUrl + "/rest/internal/"+ task.getName() + "/finish")
+                .callback(callbackUrl(task))
                 .build();
 
-        client.makeRequest(url,
+        return client.makeRequest(url,
                 requestDefinition.getMethod(),
                 requestDefinition.getHeaders(),
                 request,
@@ -68,49 +74,73 @@ public class RemoteEntityClient {
                 throwable -> handleConnectionFailure(throwable, task));
     }
 
-    public void startJob(Task task) {
-        Request requestDefinition = task.getRemoteStart();
+    /**
+     * Requests remote entity to start the Task. If the remote entity cannot be reached because its circuit breaker is
+     * open, the Task is returned to the queue instead of failing.
+     */
+    public Uni<Void> startJob(Task task) {
+        Request requestDefinition = container.getDefinition(task).getRemoteStart();
 
         URI uri;
         try {
-            uri = new URI(requestDefinition.getUrl());
-        } catch (URISyntaxException e) {
+            uri = requestDefinition.getUri();
+        } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("remoteStart.url is not a valid URL for task with name " +
                     task.getName(), e);
         }
 
         StartRequest request = StartRequest.builder()
                 .payload(requestDefinition.getAttachment())
-                .callback(baseUrl + "/rest/internal/"+ task.getName() + "/finish")
+                .callback(callbackUrl(task))
                 .build();
 
-        client.makeRequest(uri,
+        return client.makeRequest(uri,
                 requestDefinition.getMethod(),
                 requestDefinition.getHeaders(),
                 request,
                 response -> handleResponse(response, task),
-                throwable -> handleConnectionFailure(throwable, task));
+                throwable -> throwable instanceof CircuitBreakerOpenException
+                        ? handleOpenCircuit((CircuitBreakerOpenException) throwable, task)
+                        : handleConnectionFailure(throwable, task));
     }
 
-    private void handleResponse(HttpResponse<Buffer> response, Task task) {
-        if (200 <= response.statusCode() && response.statusCode() <= 299) {
-            log.info("RESPONSE {}: Got positive response.", task.getName());
-            controller.accept(task.getName(), parseBody(response));
-        } else {
-            log.info("RESPONSE {}: Got negative response. (STATUS CODE: {})", task.getName(), response.statusCode());
-            controller.fail(task.getName(), parseBody(response));
-        }
+    /**
+     * Callbacks are addressed to the owner of the Task.
+     */
+    private String callbackUrl(Task task) {
+        return ownership.getOwnerUrl(task.getName()) + "/rest/internal/" + task.getName() + "/finish";
+    }
+
+    private Uni<Void> handleResponse(HttpResponse<Buffer> response, Task task) {
+        return Uni.createFrom().voidItem()
+            .onItem().invoke(() -> {
+                if (200 <= response.statusCode() && response.statusCode() <= 299) {
+                    log.info("RESPONSE {}: Got positive response.", task.getName());
+                    controller.accept(task.getName(), parseBody(response));
+                } else {
+                    log.info("RESPONSE {}: Got negative response. (STATUS CODE: {})", task.getName(), response.statusCode());
+                    controller.fail(task.getName(), parseBody(response));
+                }
+            });
     }
 
-    private void handleConnectionFailure(Throwable exception, Task task) {
+    private Uni<Void> handleConnectionFailure(Throwable exception, Task task) {
         log.error("ERROR " + task.getName() + ": Couldn't reach the remote entity.", exception);
         // format of the simulated "response" could be better (mainly not String)
-        Uni.createFrom().voidItem()
+        return Uni.createFrom().voidItem()
             .onItem().invoke(() -> controller.fail(task.getName(), "Remote entity failed to respond. Exception: " + exception.toString()))
             .onFailure().retry().atMost(5)
             .onFailure().invoke((throwable) -> log.error("ERROR: Couldn't commit transaction. Data corruption is possible.", throwable))
-            .onFailure().recoverWithNull()
-            .await().indefinitely();
+            .onFailure().recoverWithNull();
+    }
+
+    private Uni<Void> handleOpenCircuit(CircuitBreakerOpenException exception, Task task) {
+        log.warn("START {}: {}. Returning the Task to the queue.", task.getName(), exception.getMessage());
+        return Uni.createFrom().voidItem()
+            .onItem().invoke(() -> controller.requeue(task.getName(), exception.getRetryAfter()))
+            .onFailure().retry().atMost(5)
+            .onFailure().invoke((throwable) -> log.error("ERROR: Couldn't commit transaction. Data corruption is possible.", throwable))
+            .onFailure().recoverWithNull();
     }
 
     private Object parseBody(HttpResponse<Buffer> response) {
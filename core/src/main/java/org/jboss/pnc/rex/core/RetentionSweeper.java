@@ -0,0 +1,211 @@
+package org.jboss.pnc.rex.core;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.Cancellable;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.context.ThreadContext;
+import org.infinispan.client.hotrod.MetadataValue;
+import org.jboss.pnc.rex.model.Task;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.transaction.TransactionManager;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically removes Tasks that reached a final state longer than the retention period ago. Removed Tasks are
+ * unlinked from their dependants and dependencies and, if archival is enabled, archived beforehand. Retention is
+ * disabled unless enabled explicitly.
+ * <p>
+ * Sweeping runs on its own executor and every Task is removed in its own short transaction, so it never holds up
+ * scheduling. A sweep removes batches until no expired Task is left or its time budget runs out. A Task that is updated
+ * concurrently (f.e. by another node sweeping or by a transition of its neighbour) is skipped and removed later; it is
+ * not archived again.
+ */
+@Slf4j
+@ApplicationScoped
+public class RetentionSweeper {
+
+    private final TaskContainerImpl container;
+
+    private final TaskArchive archive;
+
+    private final ManagedExecutor sweeper;
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * Tasks that were archived but could not be removed yet
+     */
+    private final Set<String> archivedPending = ConcurrentHashMap.newKeySet();
+
+    private volatile Cancellable ticks;
+
+    @ConfigProperty(name = "scheduler.options.retention.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "scheduler.options.retention.ttl-ms", defaultValue = "86400000")
+    long ttl;
+
+    @ConfigProperty(name = "scheduler.options.retention.sweep-interval-ms", defaultValue = "60000")
+    long sweepInterval;
+
+    @ConfigProperty(name = "scheduler.options.retention.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "scheduler.options.retention.sweep-budget-ms", defaultValue = "10000")
+    long sweepBudget;
+
+    public RetentionSweeper(TaskContainerImpl container, TaskArchive archive) {
+        this.container = container;
+        this.archive = archive;
+        this.sweeper = ManagedExecutor.builder()
+                .maxAsync(1)
+                .propagated(ThreadContext.NONE)
+                .cleared(ThreadContext.ALL_REMAINING)
+                .build();
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (!enabled) {
+            log.info("RETENTION: Disabled. Finished Tasks are kept.");
+            return;
+        }
+        ticks = Multi.createFrom().ticks().every(Duration.ofMillis(sweepInterval))
+                .onOverflow().drop()
+                .subscribe().with(tick -> sweeper.execute(this::sweep),
+                        t -> log.error("RETENTION: Sweeping has stopped.", t));
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        if (ticks != null) {
+            ticks.cancel();
+        }
+        sweeper.shutdown();
+    }
+
+    void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            stampFinishedTasks();
+            removeAllFinishedBefore(System.currentTimeMillis() - ttl);
+        } catch (RuntimeException e) {
+            log.error("RETENTION: Sweep failed.", e);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Removes batches of Tasks that finished before the given time until none is left, no Task of a batch could be
+     * removed or the time budget of a sweep runs out.
+     *
+     * @param finishedBefore time in milliseconds since epoch
+     * @return number of removed Tasks
+     */
+    public int removeAllFinishedBefore(long finishedBefore) {
+        long deadline = System.currentTimeMillis() + sweepBudget;
+        int total = 0;
+        int removed;
+        do {
+            removed = removeFinishedBefore(finishedBefore);
+            total += removed;
+        } while (removed > 0 && System.currentTimeMillis() < deadline);
+
+        if (removed > 0) {
+            log.info("RETENTION: Time budget of the sweep ran out after removing {} Task(s). Continuing in the next sweep.", total);
+        }
+        return total;
+    }
+
+    /**
+     * Archives and removes a batch of Tasks that finished before the given time.
+     *
+     * @param finishedBefore time in milliseconds since epoch
+     * @return number of removed Tasks
+     */
+    public int removeFinishedBefore(long finishedBefore) {
+        List<Task> expired = container.getFinishedTasks(finishedBefore, batchSize);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        if (archive.isEnabled()) {
+            List<Task> toArchive = expired.stream()
+                    .filter(task -> !archivedPending.contains(task.getName()))
+                    .collect(Collectors.toList());
+            if (!toArchive.isEmpty()) {
+                try {
+                    archive.archive(container.withPayload(toArchive));
+                } catch (IOException e) {
+                    log.error("RETENTION: Archival of {} Task(s) failed. Tasks are not removed.", toArchive.size(), e);
+                    return 0;
+                }
+                toArchive.forEach(task -> archivedPending.add(task.getName()));
+            }
+        }
+
+        int removed = 0;
+        for (Task task : expired) {
+            if (inTransaction(() -> container.removeTask(task.getName()))) {
+                removed++;
+                archivedPending.remove(task.getName());
+            } else if (!container.getCache().containsKey(task.getName())) {
+                // removed by another node
+                archivedPending.remove(task.getName());
+            }
+        }
+        log.info("RETENTION: Removed {} of {} finished Task(s).", removed, expired.size());
+        return removed;
+    }
+
+    /**
+     * Tasks that finished before the time of finishing was recorded are stamped with the current time, so that they
+     * are removed one retention period later.
+     */
+    private void stampFinishedTasks() {
+        long now = System.currentTimeMillis();
+        for (Task task : container.getFinishedTasks(null, batchSize)) {
+            inTransaction(() -> {
+                MetadataValue<Task> versioned = container.getWithMetadata(task.getName());
+                if (versioned != null && versioned.getValue().getFinishedAt() == null) {
+                    Task stamped = versioned.getValue();
+                    stamped.setFinishedAt(now);
+                    container.replaceWithVersion(stamped, versioned.getVersion());
+                }
+            });
+        }
+    }
+
+    private boolean inTransaction(Runnable action) {
+        TransactionManager tm = container.getTransactionManager();
+        try {
+            tm.begin();
+            action.run();
+            tm.commit();
+            return true;
+        } catch (Exception e) {
+            log.debug("RETENTION: Skipping a Task updated during the sweep: {}", e.toString());
+            try {
+                if (tm.getTransaction() != null) {
+                    tm.rollback();
+                }
+            } catch (Exception rollbackException) {
+                log.warn("RETENTION: Rollback failed.", rollbackException);
+            }
+            return false;
+        }
+    }
+}
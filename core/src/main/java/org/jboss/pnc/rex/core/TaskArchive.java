@@ -0,0 +1,67 @@
+package org.jboss.pnc.rex.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.rex.facade.mapper.TaskMapper;
+import org.jboss.pnc.rex.model.Task;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes finished Tasks into gzip compressed JSON files before retention removes them. Every call creates a new file
+ * with a JSON array of Tasks in the same format as the REST API returns them.
+ * <p>
+ * Archival is disabled unless a directory is configured.
+ */
+@Slf4j
+@ApplicationScoped
+public class TaskArchive {
+
+    private final ObjectMapper mapper;
+
+    private final TaskMapper taskMapper;
+
+    @ConfigProperty(name = "scheduler.options.retention.archive-dir")
+    Optional<String> directory;
+
+    @ConfigProperty(name = "scheduler.name", defaultValue = "undefined")
+    String deploymentName;
+
+    public TaskArchive(ObjectMapper mapper, TaskMapper taskMapper) {
+        this.mapper = mapper;
+        this.taskMapper = taskMapper;
+    }
+
+    public boolean isEnabled() {
+        return directory.isPresent() && !directory.get().isBlank();
+    }
+
+    /**
+     * Archives the Tasks into a new file.
+     *
+     * @param tasks complete Tasks (with definitions and responses)
+     * @return the archive file
+     * @throws IOException the archive couldn't be written
+     */
+    public Path archive(Collection<Task> tasks) throws IOException {
+        Path dir = Paths.get(directory.orElseThrow(() -> new IllegalStateException("Archival is disabled")));
+        Files.createDirectories(dir);
+        Path file = Files.createTempFile(dir, "tasks-" + deploymentName + "-", ".json.gz");
+
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            mapper.writeValue(out, tasks.stream().map(taskMapper::toDTO).collect(Collectors.toList()));
+        }
+        log.info("RETENTION: Archived {} Task(s) into {}.", tasks.size(), file);
+        return file;
+    }
+}
@@ -1,46 +1,65 @@
 package org.jboss.pnc.rex.core;
 
 import io.quarkus.infinispan.client.Remote;
+import io.quarkus.runtime.ShutdownEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.MetadataValue;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.client.hotrod.Search;
+import org.infinispan.query.dsl.FilterConditionContextQueryBuilder;
+import org.infinispan.query.dsl.FilterConditionEndContext;
 import org.infinispan.query.dsl.Query;
 import org.infinispan.query.dsl.QueryFactory;
 import org.jboss.pnc.rex.common.enums.State;
 import org.jboss.pnc.rex.common.exceptions.BadRequestException;
 import org.jboss.pnc.rex.common.exceptions.CircularDependencyException;
+import org.jboss.pnc.rex.common.exceptions.NodeShuttingDownException;
 import org.jboss.pnc.rex.common.exceptions.TaskConflictException;
+import org.jboss.pnc.rex.core.api.Outbox;
 import org.jboss.pnc.rex.core.api.TaskContainer;
+import org.jboss.pnc.rex.core.api.QueueManager;
 import org.jboss.pnc.rex.core.api.TaskController;
 import org.jboss.pnc.rex.common.exceptions.ConcurrentUpdateException;
 import org.jboss.pnc.rex.common.exceptions.TaskMissingException;
-import org.jboss.pnc.rex.common.enums.Mode;
+import org.jboss.pnc.rex.common.util.GraphUtils;
 import org.jboss.pnc.rex.core.api.TaskTarget;
 import org.jboss.pnc.rex.core.jobs.ControllerJob;
 import org.jboss.pnc.rex.core.jobs.PokeQueueJob;
 import org.jboss.pnc.rex.core.mapper.InitialTaskMapper;
+import org.jboss.pnc.rex.core.metrics.SchedulerMetrics;
+import org.jboss.pnc.rex.core.tracing.TaskTracing;
 import org.jboss.pnc.rex.core.model.Edge;
 import org.jboss.pnc.rex.core.model.InitialTask;
+import org.jboss.pnc.rex.core.model.TaskFilter;
 import org.jboss.pnc.rex.core.model.TaskGraph;
+import org.jboss.pnc.rex.model.ServerResponse;
 import org.jboss.pnc.rex.model.Task;
+import org.jboss.pnc.rex.model.TaskDefinition;
 
+import javax.annotation.Priority;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.interceptor.Interceptor;
 import javax.transaction.TransactionManager;
 import javax.transaction.Transactional;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static javax.transaction.Transactional.TxType.MANDATORY;
 
@@ -54,30 +73,207 @@ public class TaskContainerImpl implements TaskContainer, TaskTarget {
     @ConfigProperty(name = "scheduler.baseUrl")
     String baseUrl;
 
+    @ConfigProperty(name = "scheduler.options.install.batch-size", defaultValue = "1000")
+    int batchSize;
+
+    @ConfigProperty(name = "scheduler.options.shutdown.drain-timeout-ms", defaultValue = "20000")
+    long drainTimeout;
+
+    @ConfigProperty(name = "scheduler.options.shutdown.poll-interval-ms", defaultValue = "100")
+    long drainPollInterval;
+
     @Remote("near-tasks")
     RemoteCache<String, Task> tasks;
 
+    @Remote("task-definitions")
+    RemoteCache<String, TaskDefinition> definitions;
+
+    @Remote("task-responses")
+    RemoteCache<String, ServerResponse> responses;
+
     private final TaskController controller;
 
     private final InitialTaskMapper initialMapper;
 
     private final Event<ControllerJob> jobEvent;
 
+    private final SchedulerMetrics metrics;
+
+    private final TaskTracing tracing;
+
+    private final Outbox outbox;
+
+    private final QueueLeaderElection election;
+
+    private final TaskOwnership ownership;
+
+    private final NotificationBatcher batcher;
+
+    private final QueueManager queueManager;
+
+    private final AtomicBoolean shutdown = new AtomicBoolean();
+
+    private volatile CountDownLatch drained = new CountDownLatch(1);
+
     @Inject
-    public TaskContainerImpl(TaskController controller, InitialTaskMapper initialMapper, Event<ControllerJob> jobEvent) {
+    public TaskContainerImpl(TaskController controller,
+                             InitialTaskMapper initialMapper,
+                             Event<ControllerJob> jobEvent,
+                             SchedulerMetrics metrics,
+                             TaskTracing tracing,
+                             Outbox outbox,
+                             QueueLeaderElection election,
+                             TaskOwnership ownership,
+                             NotificationBatcher batcher,
+                             QueueManager queueManager) {
         this.controller = controller;
         this.initialMapper = initialMapper;
         this.jobEvent = jobEvent;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.outbox = outbox;
+        this.election = election;
+        this.ownership = ownership;
+        this.batcher = batcher;
+        this.queueManager = queueManager;
+    }
+
+    /**
+     * Creates a container without the CDI collaborators and caches. Only graphs of new Tasks can be built with
+     * {@link #buildGraph(TaskGraph, Map)}; used by benchmarks of the in-memory part of the installation.
+     */
+    static TaskContainerImpl forGraphBuilding(InitialTaskMapper initialMapper) {
+        return new TaskContainerImpl(null, initialMapper, null, null, null, null, null, null, null, null);
     }
 
+    /**
+     * Removes a finished Task together with its definition and responses. The Task is unlinked from its dependants and
+     * dependencies that stay in the container.
+     *
+     * @param task the unique task name
+     * @throws BadRequestException the Task is not in a final state
+     * @throws ConcurrentUpdateException the Task or one of its neighbours was updated during the transaction
+     */
     @Override
+    @Transactional(MANDATORY)
     public void removeTask(String task) {
-        throw new UnsupportedOperationException("Currently not implemented");
+        MetadataValue<Task> metadata = getRequiredTaskWithMetadata(task);
+        Task removed = metadata.getValue();
+        if (!removed.getState().isFinal()) {
+            throw new BadRequestException("Task " + task + " is in " + removed.getState() + " state. Only Tasks in"
+                    + " a final state can be removed.");
+        }
+
+        for (String dependant : removed.getDependants()) {
+            unlink(dependant, neighbour -> neighbour.getDependencies().remove(task));
+        }
+        for (String dependency : removed.getDependencies()) {
+            unlink(dependency, neighbour -> neighbour.getDependants().remove(task));
+        }
+
+        if (!tasks.removeWithVersion(task, metadata.getVersion())) {
+            throw new ConcurrentUpdateException("Task " + task + " was remotely updated during the transaction");
+        }
+        definitions.remove(task);
+        for (int i = 0; i < removed.getResponseCount(); i++) {
+            responses.remove(responseKey(task, i));
+        }
+    }
+
+    private void unlink(String name, Consumer<Task> unlinking) {
+        MetadataValue<Task> metadata = tasks.getWithMetadata(name);
+        if (metadata == null) {
+            // already removed
+            return;
+        }
+        Task neighbour = metadata.getValue();
+        unlinking.accept(neighbour);
+        if (!replaceWithVersion(neighbour, metadata.getVersion())) {
+            throw new ConcurrentUpdateException("Task " + name + " was remotely updated during the transaction");
+        }
+    }
+
+    /**
+     * Drains the node before the application stops. Runs before other beans stop their periodic work, so that Jobs
+     * in progress can still complete.
+     */
+    void drainOnShutdown(@Observes @Priority(Interceptor.Priority.PLATFORM_BEFORE) ShutdownEvent event) {
+        shutdown();
     }
 
-    // FIXME implement
+    /**
+     * Drains the node. New installations are rejected, the node resigns as the queue dispatcher and leaves the
+     * ownership of Tasks. Buffered caller notifications are sent right away. Jobs of this node, notifications in
+     * flight and permit changes of open transactions are given the drain timeout to complete; Jobs that did not
+     * complete are handed off to other nodes through the outbox. Subsequent invocations wait until the node is drained.
+     */
+    @Override
     public void shutdown() {
-        throw new UnsupportedOperationException("Currently not implemented!");
+        if (!shutdown.compareAndSet(false, true)) {
+            awaitDrained();
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            drained.countDown();
+        }
+    }
+
+    private void drain() {
+        long deadline = System.currentTimeMillis() + drainTimeout;
+        log.info("SHUTDOWN: Draining node {}. New installations are rejected.", deploymentName);
+        election.resign();
+        ownership.leave();
+        batcher.flushAll();
+
+        try {
+            while (!isDrained() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(drainPollInterval);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!batcher.isDrained()) {
+            log.warn("SHUTDOWN: Caller notifications of node {} were not delivered in {} ms.",
+                    deploymentName, drainTimeout);
+        }
+        if (queueManager.getUnsettledPermits() > 0) {
+            log.warn("SHUTDOWN: {} permit changes of node {} were not settled in {} ms, they are corrected by the"
+                    + " reconciler.", queueManager.getUnsettledPermits(), deploymentName, drainTimeout);
+        }
+        int pending = outbox.getPending();
+        if (pending == 0) {
+            log.info("SHUTDOWN: All Jobs of node {} completed.", deploymentName);
+            return;
+        }
+        // handed off only after notifications and permits settled, replays of other nodes don't overtake them
+        int released = outbox.handOff();
+        log.warn("SHUTDOWN: {} Jobs did not complete in {} ms. Handed off {} of them to other nodes.",
+                pending, drainTimeout, released);
+    }
+
+    private boolean isDrained() {
+        return outbox.getPending() == 0 && batcher.isDrained() && queueManager.getUnsettledPermits() == 0;
+    }
+
+    /**
+     * Accepts installations again after a drain. The node does not run for the queue dispatcher or the ownership of
+     * Tasks again. Used by tests that drain the node.
+     */
+    public void resume() {
+        if (shutdown.compareAndSet(true, false)) {
+            drained = new CountDownLatch(1);
+        }
+    }
+
+    private void awaitDrained() {
+        try {
+            drained.await(drainTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     public String getDeploymentName() {
@@ -85,11 +281,12 @@ public class TaskContainerImpl implements TaskContainer, TaskTarget {
     }
 
     public boolean isShutdown() {
-        return false;
+        return shutdown.get();
     }
 
     public Task getTask(String task) {
-        return tasks.get(task);
+        Task s = tasks.get(task);
+        return s == null ? null : withPayload(s);
     }
 
     public Task getRequiredTask(String task) throws TaskMissingException {
@@ -97,7 +294,7 @@ public class TaskContainerImpl implements TaskContainer, TaskTarget {
         if (s == null) {
             throw new TaskMissingException("Task with name " + task + " was not found");
         }
-        return s;
+        return withPayload(s);
     }
 
     public Collection<String> getTaskIds() {
@@ -112,6 +309,122 @@ public class TaskContainerImpl implements TaskContainer, TaskTarget {
         return tasks;
     }
 
+    public RemoteCache<String, TaskDefinition> getDefinitions() {
+        return definitions;
+    }
+
+    /**
+     * Returns the definition of the Task. The definition is immutable, it is read from the cache only if the Task does
+     * not carry it.
+     *
+     * @param task the Task
+     * @return the definition; a definition without requests if none was stored
+     */
+    public TaskDefinition getDefinition(Task task) {
+        if (task.hasDefinition()) {
+            return TaskDefinition.of(task);
+        }
+        TaskDefinition definition = definitions.get(task.getName());
+        return definition == null ? TaskDefinition.builder().name(task.getName()).build() : definition;
+    }
+
+    /**
+     * Returns a copy of the Task with its definition and all its responses (both logged and not yet logged).
+     *
+     * @param task the Task as read from the Task cache
+     * @return complete Task
+     */
+    public Task withPayload(Task task) {
+        return withPayload(List.of(task)).get(0);
+    }
+
+    /**
+     * Bulk version of {@link #withPayload(Task)}. Definitions and responses are read with a single bulk read each.
+     */
+    public List<Task> withPayload(List<Task> hotTasks) {
+        Set<String> missingDefinitions = new HashSet<>();
+        Set<String> responseKeys = new HashSet<>();
+        for (Task task : hotTasks) {
+            if (!task.hasDefinition()) {
+                missingDefinitions.add(task.getName());
+            }
+            for (int i = 0; i < task.getResponseCount(); i++) {
+                responseKeys.add(responseKey(task.getName(), i));
+            }
+        }
+        Map<String, TaskDefinition> loadedDefinitions = missingDefinitions.isEmpty()
+                ? Collections.emptyMap()
+                : definitions.getAll(missingDefinitions);
+        Map<String, ServerResponse> loadedResponses = responseKeys.isEmpty()
+                ? Collections.emptyMap()
+                : responses.getAll(responseKeys);
+
+        List<Task> complete = new ArrayList<>(hotTasks.size());
+        for (Task task : hotTasks) {
+            TaskDefinition definition = task.hasDefinition()
+                    ? TaskDefinition.of(task)
+                    : loadedDefinitions.getOrDefault(task.getName(), TaskDefinition.builder().build());
+
+            List<ServerResponse> allResponses = new ArrayList<>();
+            for (int i = 0; i < task.getResponseCount(); i++) {
+                ServerResponse response = loadedResponses.get(responseKey(task.getName(), i));
+                if (response != null) {
+                    allResponses.add(response);
+                }
+            }
+            allResponses.addAll(task.getServerResponses());
+
+            Task copy = task.toBuilder()
+                    .remoteStart(definition.getRemoteStart())
+                    .remoteCancel(definition.getRemoteCancel())
+                    .callerNotifications(definition.getCallerNotifications())
+                    .clearServerResponses()
+                    .serverResponses(allResponses)
+                    .build();
+            // workaround for lombok builder's immutable collections
+            copy.setDependants(new HashSet<>(copy.getDependants()));
+            copy.setDependencies(new HashSet<>(copy.getDependencies()));
+            copy.setServerResponses(new ArrayList<>(copy.getServerResponses()));
+            complete.add(copy);
+        }
+        return complete;
+    }
+
+    /**
+     * Saves the Task entry. Responses received in the current transaction are appended to the response log and the
+     * definition is written only if the Task carries it (new Task or an entry stored before definitions were split
+     * out), so a transition rewrites only the small Task entry.
+     *
+     * @param task the Task
+     * @param version version of the Task entry read in the current transaction
+     * @return false if the entry was concurrently updated
+     */
+    @Transactional(MANDATORY)
+    public boolean replaceWithVersion(Task task, long version) {
+        storePayload(task);
+        return tasks.replaceWithVersion(task.getName(), task, version);
+    }
+
+    private void storePayload(Task task) {
+        if (task.hasDefinition()) {
+            definitions.put(task.getName(), TaskDefinition.of(task));
+        }
+        if (!task.getServerResponses().isEmpty()) {
+            int index = task.getResponseCount();
+            Map<String, ServerResponse> appended = new HashMap<>();
+            for (ServerResponse response : task.getServerResponses()) {
+                appended.put(responseKey(task.getName(), index++), response);
+            }
+            responses.putAll(appended);
+            task.setResponseCount(index);
+            task.setServerResponses(new ArrayList<>());
+        }
+    }
+
+    private static String responseKey(String taskName, int index) {
+        return taskName + ':' + index;
+    }
+
     public MetadataValue<Task> getWithMetadata(String name) {
         return tasks.getWithMetadata(name);
     }
@@ -144,9 +457,44 @@ public class TaskContainerImpl implements TaskContainer, TaskTarget {
         QueryFactory factory = Search.getQueryFactory(tasks);
         Query<Task> query = factory.from(Task.class).having("state").containsAny(states).build();
 
-        return query.list();
+        return withPayload(query.list());
     }
 
+    @Override
+    public List<Task> getTasks(TaskFilter filter, String after, int limit, boolean withPayload) {
+        QueryFactory factory = Search.getQueryFactory(tasks);
+        Set<State> states = filter.getStates().isEmpty() ? EnumSet.allOf(State.class) : filter.getStates();
+        FilterConditionContextQueryBuilder condition = factory.from(Task.class)
+                .orderBy("name")
+                .having("state").containsAny(states);
+        if (filter.getNamePrefix() != null && !filter.getNamePrefix().isEmpty()) {
+            // range instead of LIKE, the prefix doesn't have to be escaped
+            condition = condition.and().having("name").gte(filter.getNamePrefix())
+                    .and().having("name").lt(filter.getNamePrefix() + Character.MAX_VALUE);
+        }
+        if (!filter.getStopFlags().isEmpty()) {
+            condition = condition.and().having("stopFlag").containsAny(filter.getStopFlags());
+        }
+        if (after != null) {
+            condition = condition.and().having("name").gt(after);
+        }
+        Query<Task> query = condition.maxResults(limit).build();
+
+        return withPayload ? withPayload(query.list()) : query.list();
+    }
+
+    @Override
+    public List<Task> getTasks(Set<String> names, boolean withPayload) {
+        if (names.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Task> found = new ArrayList<>(tasks.getAll(names).values());
+        return withPayload ? withPayload(found) : found;
+    }
+
+    /**
+     * Returns Tasks without their definitions and responses.
+     */
     @Override
     public List<Task> getEnqueuedTasks(long limit) {
         QueryFactory factory = Search.getQueryFactory(tasks);
@@ -159,65 +507,136 @@ public class TaskContainerImpl implements TaskContainer, TaskTarget {
         return query.list();
     }
 
+    @Override
+    public Map<State, Long> countTasksByState() {
+        QueryFactory factory = Search.getQueryFactory(tasks);
+        Query<Object[]> query = factory.create(
+                "SELECT t.state, COUNT(t.name) FROM org.jboss.pnc.rex.model.Task t GROUP BY t.state");
+
+        Map<State, Long> states = new EnumMap<>(State.class);
+        for (Object[] row : query.list()) {
+            // depending on the marshaller, enum projections are returned as the enum or its name
+            State state = row[0] instanceof State ? (State) row[0] : State.valueOf(row[0].toString());
+            states.put(state, ((Number) row[1]).longValue());
+        }
+        return states;
+    }
+
+    @Override
+    public Map<String, Long> countRunningTasksByGroup() {
+        QueryFactory factory = Search.getQueryFactory(tasks);
+        // only the group is projected, running Tasks are bounded by the maximum concurrency
+        Query<Object[]> query = factory.from(Task.class)
+                .select("group")
+                .having("state").containsAny(EnumSet.of(State.STARTING, State.UP, State.STOPPING))
+                .build();
+
+        Map<String, Long> groups = new HashMap<>();
+        for (Object[] row : query.list()) {
+            groups.merge(row[0] == null ? Task.DEFAULT_GROUP : row[0].toString(), 1L, Long::sum);
+        }
+        return groups;
+    }
+
+    /**
+     * Returns Tasks in a final state without their definitions and responses.
+     *
+     * @param finishedBefore only Tasks finished before this time (in milliseconds since epoch); null for Tasks
+     *        without the time of finishing
+     * @param limit maximum number of returned Tasks
+     */
+    public List<Task> getFinishedTasks(Long finishedBefore, int limit) {
+        QueryFactory factory = Search.getQueryFactory(tasks);
+        FilterConditionEndContext finishedAt = factory.from(Task.class)
+                .having("state").containsAny(EnumSet.of(State.STOPPED, State.SUCCESSFUL, State.FAILED,
+                        State.START_FAILED, State.STOP_FAILED))
+                .and().having("finishedAt");
+        Query<Task> query = (finishedBefore == null ? finishedAt.isNull() : finishedAt.lt(finishedBefore))
+                .maxResults(limit)
+                .build();
+
+        return query.list();
+    }
+
     public String getBaseUrl() {
         return baseUrl;
     }
 
-    private void hasCycle(Set<String> taskIds) throws CircularDependencyException {
-        Set<String> notVisited = new HashSet<String>(taskIds);
-        List<String> visiting = new ArrayList<>();
-        Set<String> visited = new HashSet<>();
+    private void hasCycle(Map<String, Task> taskCache, Set<Edge> edges, Map<String, InitialTask> vertices) throws CircularDependencyException {
+        Map<String, Task> graph = new HashMap<>(taskCache);
 
-        while (notVisited.size() > 0) {
-            String current = notVisited.iterator().next();
-            if (dfs(current, notVisited, visiting, visited)) {
-                throw new CircularDependencyException("Cycle has been found on Task " + current + " with loop: " + formatCycle(visiting, current));
-            }
+        // a cycle can leave the installed graph only through an existing task that gained a dependency
+        if (edges.stream().anyMatch(edge -> !isNewTask(edge.getSource(), vertices))) {
+            loadDependencies(graph);
         }
-    }
 
-    private String formatCycle(List<String> loopPath, String current) {
-        StringBuilder loop = new StringBuilder();
-        for (String node : loopPath) {
-            loop.append(node).append("->");
+        List<String> cycle = GraphUtils.findCycle(taskCache.keySet(), name -> {
+            Task task = graph.get(name);
+            return task == null ? null : task.getDependencies();
+        });
+        if (!cycle.isEmpty()) {
+            throw new CircularDependencyException("Cycle has been found on Task " + cycle.get(0) + " with loop: " + String.join("->", cycle));
         }
-        return loop.append(current).toString();
     }
 
-    private boolean dfs(String current, Set<String> notVisited, List<String> visiting, Set<String> visited) {
-        move(current, notVisited, visiting);
-        Task currentTask = getTask(current);
-        for (String dependency : currentTask.getDependencies()) {
-            // attached dependencies are not in the builder declaration, therefore if discovered, they have to be add as
-            // notVisited
-            if (!notVisited.contains(dependency) && !visiting.contains(dependency) && !visited.contains(dependency)) {
-                notVisited.add(dependency);
-            }
-            // already explored, continue
-            if (visited.contains(dependency)) {
-                continue;
-            }
-            // visiting again, cycle found
-            if (visiting.contains(dependency)) {
-                return true;
-            }
-            // recursive call
-            if (dfs(dependency, notVisited, visiting, visited)) {
-                return true;
+    /**
+     * Fetches all transitive dependencies that are not yet in the graph. The dependencies are loaded level by level
+     * with bulk reads.
+     */
+    private void loadDependencies(Map<String, Task> graph) {
+        Set<String> frontier = getMissingDependencies(graph.values(), graph);
+        while (!frontier.isEmpty()) {
+            Map<String, Task> loaded = new HashMap<>();
+            for (List<String> batch : partition(frontier, batchSize)) {
+                loaded.putAll(getCache().getAll(new HashSet<>(batch)));
             }
+            graph.putAll(loaded);
+            frontier = getMissingDependencies(loaded.values(), graph);
         }
-        move(current, visiting, visited);
-        return false;
     }
 
-    private void move(String name, Collection<String> sourceSet, Collection<String> destinationSet) {
-        sourceSet.remove(name);
-        destinationSet.add(name);
+    private Set<String> getMissingDependencies(Collection<Task> tasks, Map<String, Task> graph) {
+        Set<String> missing = new HashSet<>();
+        for (Task task : tasks) {
+            for (String dependency : task.getDependencies()) {
+                if (!graph.containsKey(dependency)) {
+                    missing.add(dependency);
+                }
+            }
+        }
+        return missing;
     }
 
     @Transactional(MANDATORY)
     public Set<Task> install(TaskGraph taskGraph) {
+        if (shutdown.get()) {
+            throw new NodeShuttingDownException("Node " + deploymentName + " is shutting down. Submit the graph to another node.");
+        }
         log.info("Install requested: " + taskGraph.toString());
+        long start = System.nanoTime();
+        Map<String, InitialTask> vertices = taskGraph.getVertices();
+        // versions of existing tasks read in this transaction
+        Map<String, Long> versions = new HashMap<>();
+
+        Map<String, Task> taskCache = buildGraph(taskGraph, versions);
+
+        Set<Task> newTasks = storeTheTasks(taskCache, versions, vertices);
+
+        // poke the queue to start new ENQUEUED tasks if there is room (NOTE: queue is poked after current transaction
+        // succeeds
+        jobEvent.fire(new PokeQueueJob());
+        metrics.install(System.nanoTime() - start, newTasks.size());
+        return newTasks;
+    }
+
+    /**
+     * Builds the graph in memory: new Tasks, existing Tasks referenced by edges (read with their versions) and their
+     * updated dependencies and dependants. The graph is checked for cycles.
+     *
+     * @param versions filled with versions of read existing Tasks
+     * @return new and updated Tasks by name
+     */
+    Map<String, Task> buildGraph(TaskGraph taskGraph, Map<String, Long> versions) {
         Set<Edge> edges = taskGraph.getEdges();
         Map<String, InitialTask> vertices = taskGraph.getVertices();
         Map<String, Task> taskCache = new HashMap<>();
@@ -227,33 +646,21 @@ public class TaskContainerImpl implements TaskContainer, TaskTarget {
             assertEdgeValidity(edge);
 
             String dependant = edge.getSource();
-            Task dependantTask = addToLocalCache(dependant, taskCache, vertices);
+            Task dependantTask = addToLocalCache(dependant, taskCache, versions, vertices);
 
             assertDependantCanHaveDependency(dependantTask);
 
             String dependency = edge.getTarget();
-            Task dependencyTask = addToLocalCache(dependency, taskCache, vertices);
+            Task dependencyTask = addToLocalCache(dependency, taskCache, versions, vertices);
 
             updateTasks(dependencyTask, dependantTask);
         }
 
         // add simple new tasks to cache that have no dependencies nor dependants
-        addTasksWithoutEdgesToCache(taskCache, vertices);
-
-        Set<Task> newTasks = storeTheTasks(taskCache, vertices);
+        addTasksWithoutEdgesToCache(taskCache, versions, vertices);
 
-        hasCycle(taskCache.keySet());
-
-        // start the tasks
-        newTasks.forEach(task -> {
-            if (task.getControllerMode() == Mode.ACTIVE)
-                controller.setMode(task.getName(), Mode.ACTIVE);
-        });
-
-        // poke the queue to start new ENQUEUED tasks if there is room (NOTE: queue is poked after current transaction
-        // succeeds
-        jobEvent.fire(new PokeQueueJob());
-        return newTasks;
+        hasCycle(taskCache, edges, vertices);
+        return taskCache;
     }
 
     private void assertEdgeValidity(Edge edge) {
@@ -262,39 +669,70 @@ public class TaskContainerImpl implements TaskContainer, TaskTarget {
         }
     }
 
-    private Set<Task> storeTheTasks(Map<String, Task> taskCache, Map<String, InitialTask> vertices) {
-        Set<Task> toReturn = new HashSet<>();
+    private Set<Task> storeTheTasks(Map<String, Task> taskCache, Map<String, Long> versions, Map<String, InitialTask> vertices) {
+        Map<String, Task> toCreate = new HashMap<>();
         for (Map.Entry<String, Task> entry : taskCache.entrySet()) {
-            Task task = entry.getValue();
             if (isNewTask(entry.getKey(), vertices)) {
-                Task previousValue = getCache().withFlags(Flag.FORCE_RETURN_VALUE).putIfAbsent(task.getName(), task);
-                if (previousValue != null) {
-                    throw new TaskConflictException(
-                            "Task " + task.getName() + " declared as new in vertices already exists.");
-                }
-
-                // return only new tasks
-                toReturn.add(task);
+                tracing.begin(entry.getValue());
+                toCreate.put(entry.getKey(), entry.getValue());
             } else {
-                // we have to get the previous version
-                MetadataValue<Task> versioned = getWithMetadata(entry.getKey());
-                // could be optimized by using #putAll method of remote cache (only 'else' part could be; the 'then'
-                // part required FORCE_RETURN_VALUE flag which is not available in putAll)
-                boolean success = getCache().replaceWithVersion(entry.getKey(), versioned.getValue(), versioned.getVersion());
+                // version was read together with the task, the replace is resolved in the transaction context
+                boolean success = replaceWithVersion(entry.getValue(), versions.get(entry.getKey()));
                 if (!success) {
                     throw new ConcurrentUpdateException(
-                            "Task " + versioned.getValue() + " was remotely updated during the transaction");
+                            "Task " + entry.getValue() + " was remotely updated during the transaction");
                 }
             }
         }
-        return toReturn;
+
+        // new ACTIVE tasks are written already in WAITING or ENQUEUED instead of being read and replaced again
+        controller.initialize(toCreate.values());
+
+        for (List<String> names : partition(toCreate.keySet(), batchSize)) {
+            Map<String, Task> batch = new HashMap<>();
+            names.forEach(name -> batch.put(name, toCreate.get(name)));
+
+            assertTasksDoNotExist(batch.keySet());
+            Map<String, TaskDefinition> batchDefinitions = new HashMap<>();
+            batch.values().forEach(task -> batchDefinitions.put(task.getName(), TaskDefinition.of(task)));
+            // #putAll is buffered in the transaction context, it doesn't do any remote read
+            getCache().putAll(batch);
+            definitions.putAll(batchDefinitions);
+        }
+
+        // return only new tasks
+        return new HashSet<>(toCreate.values());
+    }
+
+    private void assertTasksDoNotExist(Set<String> names) {
+        Map<String, Task> existing = getCache().getAll(names);
+        if (!existing.isEmpty()) {
+            throw new TaskConflictException(
+                    "Task " + existing.keySet().iterator().next() + " declared as new in vertices already exists.");
+        }
+    }
+
+    private static <T> List<List<T>> partition(Collection<T> elements, int size) {
+        List<List<T>> batches = new ArrayList<>();
+        List<T> batch = new ArrayList<>();
+        for (T element : elements) {
+            batch.add(element);
+            if (batch.size() >= size) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
     }
 
-    private void addTasksWithoutEdgesToCache(Map<String, Task> taskCache, Map<String, InitialTask> vertices) {
+    private void addTasksWithoutEdgesToCache(Map<String, Task> taskCache, Map<String, Long> versions, Map<String, InitialTask> vertices) {
         Set<String> newTasksWithoutEdges = new HashSet<>(vertices.keySet());
         newTasksWithoutEdges.removeAll(taskCache.keySet());
         for (String simpleTask : newTasksWithoutEdges) {
-            addToLocalCache(simpleTask, taskCache, vertices);
+            addToLocalCache(simpleTask, taskCache, versions, vertices);
         }
     }
 
@@ -323,7 +761,7 @@ public class TaskContainerImpl implements TaskContainer, TaskTarget {
         dependency.getDependants().add(dependant.getName());
     }
 
-    private Task addToLocalCache(String name, Map<String, Task> taskCache, Map<String, InitialTask> vertices) {
+    private Task addToLocalCache(String name, Map<String, Task> taskCache, Map<String, Long> versions, Map<String, InitialTask> vertices) {
         if (taskCache.containsKey(name)) {
             return taskCache.get(name);
         }
@@ -337,13 +775,15 @@ public class TaskContainerImpl implements TaskContainer, TaskTarget {
             task.setDependants(new HashSet<>(task.getDependants()));
             task.setDependencies(new HashSet<>(task.getDependencies()));
         } else {
-            // task data for existing task should be retrieved from DB
-            task = getTask(name);
-            if (task == null) {
+            // task data for existing task should be retrieved from DB (version is kept for the update)
+            MetadataValue<Task> versioned = getWithMetadata(name);
+            if (versioned == null) {
                 throw new BadRequestException(
                         "Either existing task " + name
                                 + " has incorrect identifier or data for a new task is not declared in vertices");
             }
+            task = versioned.getValue();
+            versions.put(name, versioned.getVersion());
         }
         taskCache.put(name, task);
         return task;
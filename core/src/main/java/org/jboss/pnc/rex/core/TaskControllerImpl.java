@@ -1,6 +1,8 @@
 package org.jboss.pnc.rex.core;
 
+import io.opentelemetry.api.trace.Span;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.infinispan.client.hotrod.MetadataValue;
 import org.jboss.pnc.rex.common.enums.Mode;
 import org.jboss.pnc.rex.common.enums.State;
@@ -12,20 +14,29 @@ import org.jboss.pnc.rex.common.exceptions.ConcurrentUpdateException;
 import org.jboss.pnc.rex.core.jobs.DecreaseCounterJob;
 import org.jboss.pnc.rex.core.jobs.InvokeStartJob;
 import org.jboss.pnc.rex.core.jobs.InvokeStopJob;
+import org.jboss.pnc.rex.core.jobs.AddToQueueJob;
 import org.jboss.pnc.rex.core.jobs.ControllerJob;
 import org.jboss.pnc.rex.core.jobs.DependencyCancelledJob;
 import org.jboss.pnc.rex.core.jobs.DependencyStoppedJob;
 import org.jboss.pnc.rex.core.jobs.DependencySucceededJob;
 import org.jboss.pnc.rex.core.jobs.NotifyCallerJob;
 import org.jboss.pnc.rex.core.jobs.PokeQueueJob;
+import org.jboss.pnc.rex.core.jobs.RemoveFromQueueJob;
+import org.jboss.pnc.rex.core.metrics.SchedulerMetrics;
+import org.jboss.pnc.rex.core.tracing.TaskTracing;
 import org.jboss.pnc.rex.model.ServerResponse;
 import org.jboss.pnc.rex.model.Task;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Event;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.transaction.Transactional;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -40,9 +51,33 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
 
     private final Event<ControllerJob> scheduleJob;
 
-    public TaskControllerImpl(TaskContainerImpl container, Event<ControllerJob> scheduleJob) {
+    private final SchedulerMetrics metrics;
+
+    private final TaskTracing tracing;
+
+    private final TransactionSynchronizationRegistry synchronizationRegistry;
+
+    @ConfigProperty(name = "scheduler.options.http.circuit-breaker.max-requeues", defaultValue = "10")
+    int maxRequeues;
+
+    public TaskControllerImpl(TaskContainerImpl container,
+                              Event<ControllerJob> scheduleJob,
+                              SchedulerMetrics metrics,
+                              TaskTracing tracing,
+                              TransactionSynchronizationRegistry synchronizationRegistry) {
         this.container = container;
         this.scheduleJob = scheduleJob;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.synchronizationRegistry = synchronizationRegistry;
+    }
+
+    /**
+     * Creates a controller without the CDI collaborators. Only {@link #getTransition(Task)} and
+     * {@link #applyTransition(Task, Transition)} can be used; used by benchmarks of the in-memory part of a transition.
+     */
+    static TaskControllerImpl forDecisions() {
+        return new TaskControllerImpl(null, null, null, null, null);
     }
 
     private List<ControllerJob> transition(Task task) {
@@ -56,14 +91,19 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
         if (transition == null) {
             return tasks;
         }
+        Span.current().setAttribute("rex.transition", transition.name());
 
         switch (transition) {
             case NEW_to_WAITING:
+                break;
+
             case NEW_to_ENQUEUED:
             case WAITING_to_ENQUEUED:
+                tasks.add(new AddToQueueJob(task));
                 break;
 
             case ENQUEUED_to_STARTING:
+                tasks.add(new RemoveFromQueueJob(task));
                 tasks.add(new InvokeStartJob(task));
                 break;
 
@@ -74,13 +114,16 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
 
             case STOPPING_to_STOPPED:
                 tasks.add(new DependencyCancelledJob(task));
+                // the permit is released before the queue is poked
                 tasks.add(new DecreaseCounterJob(task));
                 tasks.add(new PokeQueueJob());
                 break;
 
+            case ENQUEUED_to_STOPPED:
+                tasks.add(new RemoveFromQueueJob(task));
+                // dependants are handled the same way as in the other STOPPED transitions
             case NEW_to_STOPPED:
             case WAITING_to_STOPPED:
-            case ENQUEUED_to_STOPPED:
                 switch (task.getStopFlag()) {
                     case CANCELLED:
                         tasks.add(new DependencyCancelledJob(task));
@@ -95,6 +138,7 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
             case STARTING_to_START_FAILED:
             case STOPPING_to_STOP_FAILED:
                 tasks.add(new DependencyStoppedJob(task));
+                // the permit is released before the queue is poked
                 tasks.add(new DecreaseCounterJob(task));
                 tasks.add(new PokeQueueJob());
                 break;
@@ -103,15 +147,26 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
                 //no tasks
                 break;
 
+            case STARTING_to_ENQUEUED:
+                tasks.add(new AddToQueueJob(task));
+                // the queue is poked after the destination can be reached again
+                tasks.add(new DecreaseCounterJob(task));
+                break;
+
             case UP_to_SUCCESSFUL:
                 tasks.add(new DependencySucceededJob(task));
+                // the permit is released before the queue is poked
                 tasks.add(new DecreaseCounterJob(task));
                 tasks.add(new PokeQueueJob());
                 break;
             default:
                 throw new IllegalStateException("Controller returned unknown transition: " + transition);
         }
-        task.setState(transition.getAfter());
+        if (transition.getBefore() == State.ENQUEUED) {
+            tracing.queueWait(task);
+        }
+        applyTransition(task, transition);
+        countTransition(transition);
 
         // notify the caller about a transition
         tasks.add(new NotifyCallerJob(transition, task));
@@ -119,7 +174,47 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
         return tasks;
     }
 
-    private Transition getTransition(Task task) {
+    /**
+     * Moves the Task into the state after the transition and records the times of enqueueing and finishing. Has no
+     * side effects outside of the Task.
+     */
+    void applyTransition(Task task, Transition transition) {
+        if (transition.getBefore() == State.ENQUEUED) {
+            task.setEnqueuedAt(null);
+        }
+        if (transition.getAfter() == State.ENQUEUED) {
+            task.setEnqueuedAt(System.currentTimeMillis());
+        }
+        task.setState(transition.getAfter());
+        if (transition.getAfter().isFinal()) {
+            task.setFinishedAt(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Transitions are counted once the transaction commits, a transaction rolled back because of a conflict is retried
+     * and would count the same transition again.
+     */
+    private void countTransition(Transition transition) {
+        synchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    metrics.transition(transition);
+                }
+            }
+        });
+    }
+
+    /**
+     * Decides the next transition of the Task. Has no side effects.
+     *
+     * @return the transition; null if the Task should stay in its state
+     */
+    Transition getTransition(Task task) {
         Mode mode = task.getControllerMode();
         switch (task.getState()) {
             case NEW: {
@@ -145,6 +240,8 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
             case STARTING: {
                 if (task.getStopFlag() == StopFlag.CANCELLED)
                     return Transition.STARTING_to_STOPPING;
+                if (task.getState() == State.STARTING && !task.getStarting())
+                    return Transition.STARTING_to_ENQUEUED;
                 List<ServerResponse> responses = task.getServerResponses().stream().filter(sr -> sr.getState() == State.STARTING).collect(Collectors.toList());
                 if (responses.stream().anyMatch(ServerResponse::isPositive))
                     return Transition.STARTING_to_UP;
@@ -196,6 +293,10 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
         handle(taskMetadata, task, null);
     }
     private void handle(MetadataValue<Task> taskMetadata, Task task, ControllerJob[] forcedJobs) {
+        tracing.run("handle " + task.getName(), task, () -> doHandle(taskMetadata, task, forcedJobs));
+    }
+
+    private void doHandle(MetadataValue<Task> taskMetadata, Task task, ControllerJob[] forcedJobs) {
         List<ControllerJob> jobs = transition(task);
         if (forcedJobs != null && forcedJobs.length != 0) {
             jobs.addAll(Arrays.asList(forcedJobs));
@@ -207,9 +308,10 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
                 taskMetadata.getVersion(),
                 task);
 
-        boolean pushed = container.getCache().replaceWithVersion(task.getName(), task, taskMetadata.getVersion());
+        boolean pushed = container.replaceWithVersion(task, taskMetadata.getVersion());
         if (!pushed) {
             log.error("SAVE {}: Concurrent update detected. Transaction will fail.", task.getName());
+            metrics.conflict();
             throw new ConcurrentUpdateException("Task " + task.getName() + " was remotely updated during the transaction");
         }
     }
@@ -256,6 +358,19 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
         }
     }
 
+    @Override
+    @Transactional(MANDATORY)
+    public void initialize(Collection<Task> tasks) {
+        List<ControllerJob> jobs = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.getControllerMode() == Mode.ACTIVE) {
+                tracing.run("handle " + task.getName(), task, () -> jobs.addAll(transition(task)));
+            }
+        }
+        // Jobs of all Tasks are scheduled together, notifications are sent after the transaction succeeds
+        doExecute(jobs);
+    }
+
     @Override
     @Transactional(MANDATORY)
     public void accept(String name, Object response) {
@@ -319,6 +434,29 @@ public class TaskControllerImpl implements TaskController, DependentMessenger {
         handle(taskMetadata, task);
     }
 
+    @Override
+    @Transactional(MANDATORY)
+    public void requeue(String name, Duration retryAfter) {
+        // #1 PULL
+        MetadataValue<Task> taskMetadata = container.getRequiredTaskWithMetadata(name);
+        Task task = taskMetadata.getValue();
+
+        // #2 ALTER
+        if (task.getState() != State.STARTING) {
+            throw new IllegalStateException("Attempting to requeue while not in a state to do. Task: " + task.getName() + " State: " + task.getState());
+        }
+        if (task.getRequeues() >= maxRequeues) {
+            log.warn("REQUEUE {}: Remote entity stayed unreachable after {} requeue(s). Failing the Task.", name, task.getRequeues());
+            fail(name, "Remote entity stayed unreachable after " + task.getRequeues() + " requeue(s).");
+            return;
+        }
+        task.setStarting(false);
+        task.setRequeues(task.getRequeues() + 1);
+
+        // #3 HANDLE
+        handle(taskMetadata, task, new ControllerJob[]{new PokeQueueJob(retryAfter)});
+    }
+
     @Override
     @Transactional(MANDATORY)
     public void dependencySucceeded(String name) {
@@ -1,7 +1,9 @@
 package org.jboss.pnc.rex.core;
 
 import lombok.extern.slf4j.Slf4j;
+import org.jboss.pnc.rex.core.api.Outbox;
 import org.jboss.pnc.rex.core.jobs.ControllerJob;
+import org.jboss.pnc.rex.core.jobs.DurableJob;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
@@ -17,6 +19,9 @@ public class TaskListener {
     @Inject
     TransactionManager tm;
 
+    @Inject
+    Outbox outbox;
+
     void onUnsuccessfulTransaction(@Observes(during = TransactionPhase.AFTER_SUCCESS) ControllerJob task) {
         if (task.getInvocationPhase() == TransactionPhase.AFTER_SUCCESS) {
             // disassociate the thread from previous transaction as it results in errors
@@ -32,6 +37,10 @@ public class TaskListener {
     }
 
     void onOngoingTransaction(@Observes(during = TransactionPhase.IN_PROGRESS) ControllerJob task) {
+        if (task.getInvocationPhase() == TransactionPhase.AFTER_SUCCESS && task instanceof DurableJob) {
+            // recorded in the same transaction so that the Job is replayed if this node dies before running it
+            outbox.record((DurableJob) task);
+        }
         if (task.getInvocationPhase() == TransactionPhase.IN_PROGRESS) {
             String contextMessage = task.getContext().isPresent() ? ' ' + task.getContext().get().getName() : "";
             log.debug("WITHIN TRANSACTION{}: {}", contextMessage, task.getClass().getSimpleName());
@@ -0,0 +1,260 @@
+package org.jboss.pnc.rex.core;
+
+import io.quarkus.infinispan.client.Remote;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.Cancellable;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import io.vertx.mutiny.core.buffer.Buffer;
+import io.vertx.mutiny.ext.web.client.HttpResponse;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.commons.util.CloseableIterator;
+import org.jboss.pnc.rex.common.enums.Method;
+import org.jboss.pnc.rex.common.exceptions.OwnerUnavailableException;
+import org.jboss.pnc.rex.dto.requests.FinishRequest;
+import org.jboss.pnc.rex.model.Header;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Assigns every Task to an owner node by consistent hashing over the members of the cluster. Callbacks of remote
+ * entities are addressed to the owner and other nodes forward them to it, so that updates of a Task are made by a
+ * single node and do not conflict.
+ * <p>
+ * Every node announces itself by an entry with a lifespan in the membership cache and renews it periodically. The
+ * cache is not transactional and holds only the members and the lease of the queue dispatcher, so reading the members
+ * is bounded by the size of the cluster. A node that dies disappears from the membership after the lifespan and its
+ * Tasks are taken over by the remaining nodes.
+ * Only Tasks of the joining or leaving node change their owner. Ownership is optional; if disabled, every node is the
+ * owner of all Tasks.
+ */
+@Slf4j
+@ApplicationScoped
+public class TaskOwnership {
+
+    private static final String MEMBER_PREFIX = "MEMBER ";
+
+    private final GenericVertxHttpClient client;
+
+    @Remote("membership")
+    RemoteCache<String, String> members;
+
+    @ConfigProperty(name = "scheduler.options.ownership.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "scheduler.options.ownership.heartbeat-ms", defaultValue = "2000")
+    long heartbeat;
+
+    @ConfigProperty(name = "scheduler.options.ownership.member-ttl-ms", defaultValue = "6000")
+    long memberTtl;
+
+    @ConfigProperty(name = "scheduler.options.ownership.virtual-nodes", defaultValue = "64")
+    int virtualNodes;
+
+    @ConfigProperty(name = "scheduler.options.ownership.forward-timeout-ms", defaultValue = "2000")
+    long forwardTimeout;
+
+    @ConfigProperty(name = "scheduler.baseUrl")
+    String baseUrl;
+
+    private volatile Set<String> memberUrls = Collections.emptySet();
+
+    private volatile NavigableMap<Long, String> ring = Collections.emptyNavigableMap();
+
+    private volatile Cancellable ticks;
+
+    private volatile boolean left;
+
+    public TaskOwnership(GenericVertxHttpClient client) {
+        this.client = client;
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        beat();
+        ticks = Multi.createFrom().ticks().every(Duration.ofMillis(heartbeat))
+                .onOverflow().drop()
+                .subscribe().with(tick -> beat(),
+                        t -> log.error("OWNERSHIP: Heartbeat has stopped.", t));
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        leave();
+    }
+
+    /**
+     * Stops announcing this node and removes it from the membership so that its Tasks are taken over by the remaining
+     * nodes right away. Used by a node that drains before shutdown.
+     */
+    public synchronized void leave() {
+        if (ticks != null) {
+            ticks.cancel();
+        }
+        if (enabled && !left) {
+            left = true;
+            try {
+                // Tasks of this node are taken over right away
+                members.remove(MEMBER_PREFIX + baseUrl);
+            } catch (RuntimeException e) {
+                log.warn("OWNERSHIP: Could not leave the cluster, membership expires in {} ms.", memberTtl, e);
+            }
+        }
+    }
+
+    /**
+     * @return base url of the node owning the Task
+     */
+    public String getOwnerUrl(String taskName) {
+        NavigableMap<Long, String> ring = this.ring;
+        if (!enabled || ring.isEmpty()) {
+            return baseUrl;
+        }
+        return ownerOf(ring, taskName);
+    }
+
+    public boolean isOwner(String taskName) {
+        return getOwnerUrl(taskName).equals(baseUrl);
+    }
+
+    /**
+     * Forwards a request concerning a Task to its owner unless this node owns the Task or the request was already
+     * forwarded by another node.
+     *
+     * @param forwardedBy value of {@link FinishRequest#FORWARDED_HEADER}; null if the request was not forwarded
+     * @return true if the owner accepted the request; false if the request should be handled locally
+     * @see #forward(String, String, Object)
+     */
+    public boolean forwardIfNotOwner(String taskName, String forwardedBy, String path, Object body) {
+        if (forwardedBy != null || isOwner(taskName)) {
+            return false;
+        }
+        return forward(taskName, path, body);
+    }
+
+    /**
+     * Forwards a request concerning a Task to its owner and waits for the response. The request is sent once; the
+     * remote entity repeats its callback if it fails.
+     *
+     * @param taskName name of the Task
+     * @param path path of the request at the owner
+     * @param body body serialized to JSON
+     * @return true if the owner accepted the request; false if the request should be handled locally because the
+     *         owner cannot be reached or rejected it
+     * @throws OwnerUnavailableException if the owner did not respond in time; it may still apply the request
+     */
+    public boolean forward(String taskName, String path, Object body) {
+        String owner = getOwnerUrl(taskName);
+        HttpResponse<Buffer> response;
+        try {
+            response = client.send(URI.create(owner + path),
+                    Method.POST,
+                    List.of(Header.builder().name("Content-Type").value("application/json").build(),
+                            Header.builder().name(FinishRequest.FORWARDED_HEADER).value(baseUrl).build()),
+                    body,
+                    Duration.ofMillis(forwardTimeout))
+                .await().indefinitely();
+        } catch (RuntimeException e) {
+            if (isTimeout(e)) {
+                // handling the request here as well would conflict with the owner
+                throw new OwnerUnavailableException("Owner " + owner + " of Task " + taskName
+                        + " did not respond in " + forwardTimeout + " ms.", e);
+            }
+            log.warn("OWNERSHIP {}: Owner {} is unreachable. Handling locally.", taskName, owner, e);
+            return false;
+        }
+
+        if (response.statusCode() >= 300) {
+            log.warn("OWNERSHIP {}: Owner {} rejected the request with {}. Handling locally.",
+                    taskName, owner, response.statusCode());
+            return false;
+        }
+        log.debug("OWNERSHIP {}: Forwarded {} to {}.", taskName, path, owner);
+        return true;
+    }
+
+    private static boolean isTimeout(Throwable failure) {
+        // checked exceptions are wrapped by await()
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void beat() {
+        if (left) {
+            return;
+        }
+        try {
+            members.put(MEMBER_PREFIX + baseUrl, baseUrl, memberTtl, TimeUnit.MILLISECONDS);
+            Set<String> current = new TreeSet<>();
+            try (CloseableIterator<String> keys = members.keySet().iterator()) {
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    if (key.startsWith(MEMBER_PREFIX)) {
+                        current.add(key.substring(MEMBER_PREFIX.length()));
+                    }
+                }
+            }
+            if (!current.equals(memberUrls)) {
+                log.info("OWNERSHIP: Members changed to {}. Rebalancing ownership of Tasks.", current);
+                setMembers(current);
+            }
+        } catch (RuntimeException e) {
+            log.error("OWNERSHIP: Heartbeat failed.", e);
+        }
+    }
+
+    void setMembers(Set<String> urls) {
+        ring = buildRing(urls, virtualNodes);
+        memberUrls = urls;
+    }
+
+    static NavigableMap<Long, String> buildRing(Set<String> urls, int virtualNodes) {
+        NavigableMap<Long, String> ring = new TreeMap<>();
+        for (String url : urls) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(url + '#' + i), url);
+            }
+        }
+        return ring;
+    }
+
+    static String ownerOf(NavigableMap<Long, String> ring, String taskName) {
+        Map.Entry<Long, String> owner = ring.ceilingEntry(hash(taskName));
+        return owner == null ? ring.firstEntry().getValue() : owner.getValue();
+    }
+
+    /**
+     * 64-bit FNV-1a with a final mix. Unlike {@link String#hashCode()}, it spreads similar names evenly over the ring.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,233 @@
+package org.jboss.pnc.rex.core;
+
+import io.quarkus.infinispan.client.Remote;
+import io.quarkus.runtime.StartupEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.Search;
+import org.infinispan.counter.api.CounterConfiguration;
+import org.infinispan.counter.api.CounterManager;
+import org.infinispan.counter.api.CounterType;
+import org.infinispan.counter.api.Storage;
+import org.infinispan.counter.api.SyncStrongCounter;
+import org.infinispan.query.dsl.Query;
+import org.infinispan.query.dsl.QueryFactory;
+import org.infinispan.query.dsl.SortOrder;
+import org.jboss.pnc.rex.core.api.TaskQueue;
+import org.jboss.pnc.rex.core.api.TaskRegistry;
+import org.jboss.pnc.rex.core.counter.QueueDepths;
+import org.jboss.pnc.rex.model.QueueEntry;
+import org.jboss.pnc.rex.model.Task;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.Transactional;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static javax.transaction.Transactional.TxType.MANDATORY;
+
+/**
+ * Queue held in a separate cache which contains only ENQUEUED Tasks. Tasks are split into groups and each group is
+ * ordered by priority and then by a sequence number from a clustered strong counter.
+ * <p>
+ * The sequence counter is persistent. In case it was lost anyway (f.e. it was defined as volatile by an older
+ * version), it is moved past the highest stored sequence on startup so that new Tasks never overtake older ones.
+ * <p>
+ * Amount of Tasks in every group is kept in {@link QueueDepths}, so that a poke does not have to query the queue for
+ * its groups.
+ */
+@Slf4j
+@ApplicationScoped
+public class TaskQueueImpl implements TaskQueue {
+
+    public static final String SEQUENCE_COUNTER_NAME = "QUEUE_SEQUENCE";
+
+    @Remote("enqueued")
+    RemoteCache<String, QueueEntry> queue;
+
+    private final CounterManager counterManager;
+
+    private final TaskRegistry registry;
+
+    private final QueueDepths depths;
+
+    private final TransactionSynchronizationRegistry synchronizationRegistry;
+
+    private volatile SyncStrongCounter sequence;
+
+    @Inject
+    public TaskQueueImpl(CounterManager counterManager,
+                         TaskRegistry registry,
+                         QueueDepths depths,
+                         TransactionSynchronizationRegistry synchronizationRegistry) {
+        this.counterManager = counterManager;
+        this.registry = registry;
+        this.depths = depths;
+        this.synchronizationRegistry = synchronizationRegistry;
+    }
+
+    /**
+     * Fills the queue with ENQUEUED Tasks in case they were enqueued before the queue cache existed.
+     */
+    @Transactional
+    void backfill(@Observes StartupEvent event) {
+        seedSequence();
+        if (depths.getAll().isEmpty()) {
+            // queue written by a version without depth counters
+            countGroups().forEach((group, depth) -> depths.compareAndSet(group, 0, depth));
+        }
+        if (!queue.isEmpty()) {
+            return;
+        }
+        List<Task> enqueued = registry.getEnqueuedTasks(Integer.MAX_VALUE);
+        if (!enqueued.isEmpty()) {
+            log.info("QUEUE: Adding {} already ENQUEUED task(s) to the queue", enqueued.size());
+            enqueued.forEach(this::add);
+        }
+    }
+
+    @Override
+    @Transactional(MANDATORY)
+    public void add(Task task) {
+        if (task.getQueueSequence() == null) {
+            task.setQueueSequence(getSequence().incrementAndGet());
+        }
+        QueueEntry entry = QueueEntry.builder()
+                .name(task.getName())
+                .sequence(task.getQueueSequence())
+                .priority(task.getPriority())
+                .group(task.getGroup() == null ? Task.DEFAULT_GROUP : task.getGroup())
+                .build();
+        log.debug("QUEUE: Adding {}", entry);
+        QueueEntry previous = queue.withFlags(Flag.FORCE_RETURN_VALUE).put(task.getName(), entry);
+        if (previous == null) {
+            onCommit(() -> depths.increment(entry.getGroup()));
+        }
+    }
+
+    @Override
+    @Transactional(MANDATORY)
+    public void remove(String name) {
+        log.debug("QUEUE: Removing {}", name);
+        QueueEntry removed = queue.withFlags(Flag.FORCE_RETURN_VALUE).remove(name);
+        if (removed != null) {
+            onCommit(() -> depths.decrement(removed.getGroup()));
+        }
+    }
+
+    @Override
+    public List<String> peek(long limit) {
+        QueryFactory factory = Search.getQueryFactory(queue);
+        Query<QueueEntry> query = factory.from(QueueEntry.class)
+                .orderBy("sequence", SortOrder.ASC)
+                .maxResults((int) limit)
+                .build();
+
+        return query.list().stream().map(QueueEntry::getName).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<QueueEntry> peek(String group, long limit) {
+        QueryFactory factory = Search.getQueryFactory(queue);
+        Query<QueueEntry> query = factory.from(QueueEntry.class)
+                .having("group").eq(group)
+                .orderBy("priority", SortOrder.DESC)
+                .orderBy("sequence", SortOrder.ASC)
+                .maxResults((int) limit)
+                .build();
+
+        return query.list();
+    }
+
+    @Override
+    public Map<String, Long> getGroups() {
+        return depths.getGroups();
+    }
+
+    @Override
+    public Map<String, Long> countGroups() {
+        QueryFactory factory = Search.getQueryFactory(queue);
+        Query<Object[]> query = factory.create(
+                "SELECT e.group, COUNT(e.sequence) FROM org.jboss.pnc.rex.model.QueueEntry e GROUP BY e.group");
+
+        Map<String, Long> groups = new HashMap<>();
+        for (Object[] row : query.list()) {
+            groups.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return groups;
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Depths are counted outside of the transaction, therefore they change only once the queue change is committed.
+     */
+    private void onCommit(Runnable action) {
+        synchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    try {
+                        action.run();
+                    } catch (RuntimeException e) {
+                        // corrected by the reconciler
+                        log.warn("QUEUE: Depth of a group could not be updated.", e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Moves the sequence counter past the highest sequence in the queue.
+     */
+    void seedSequence() {
+        QueryFactory factory = Search.getQueryFactory(queue);
+        Query<Object[]> query = factory.create(
+                "SELECT MAX(e.sequence) FROM org.jboss.pnc.rex.model.QueueEntry e");
+        List<Object[]> rows = query.list();
+        if (rows.isEmpty() || rows.get(0)[0] == null) {
+            return;
+        }
+        long highest = ((Number) rows.get(0)[0]).longValue();
+        SyncStrongCounter counter = getSequence();
+        long current = counter.getValue();
+        while (current < highest) {
+            long witness = counter.compareAndSwap(current, highest);
+            if (witness == current) {
+                log.warn("QUEUE: Sequence counter was behind the queue. Moved from {} to {}.", current, highest);
+                return;
+            }
+            current = witness;
+        }
+    }
+
+    private SyncStrongCounter getSequence() {
+        if (sequence == null) {
+            synchronized (this) {
+                if (sequence == null) {
+                    counterManager.defineCounter(SEQUENCE_COUNTER_NAME, CounterConfiguration.builder(CounterType.UNBOUNDED_STRONG)
+                            .initialValue(0)
+                            .storage(Storage.PERSISTENT)
+                            .build());
+                    sequence = counterManager.getStrongCounter(SEQUENCE_COUNTER_NAME).sync();
+                }
+            }
+        }
+        return sequence;
+    }
+}
@@ -0,0 +1,135 @@
+package org.jboss.pnc.rex.core;
+
+import io.quarkus.runtime.StartupEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.infinispan.client.hotrod.MetadataValue;
+import org.infinispan.commons.util.CloseableIterator;
+import org.infinispan.counter.api.CounterConfiguration;
+import org.infinispan.counter.api.CounterManager;
+import org.infinispan.counter.api.CounterType;
+import org.infinispan.counter.api.Storage;
+import org.infinispan.counter.api.SyncStrongCounter;
+import org.jboss.pnc.rex.model.Task;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.transaction.TransactionManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves definitions and responses of Task entries stored before they were split out of the Task into their own
+ * caches. Entries are migrated in batches, each in its own transaction. Entries that fail to migrate (f.e. concurrent
+ * update) are migrated on their next transition instead.
+ * <p>
+ * Finding the entries scans the whole Task cache, therefore the version of the storage is recorded in a persistent
+ * counter once every entry was migrated and later startups skip the scan.
+ */
+@Slf4j
+@ApplicationScoped
+public class TaskStorageMigration {
+
+    public static final String STORAGE_VERSION_COUNTER_NAME = "TASK_STORAGE_VERSION";
+
+    /**
+     * Version of the storage with definitions and responses split out of the Task entries
+     */
+    static final long SPLIT_STORAGE_VERSION = 1;
+
+    private final TaskContainerImpl container;
+
+    private final CounterManager counterManager;
+
+    @ConfigProperty(name = "scheduler.options.migration.batch-size", defaultValue = "100")
+    int batchSize;
+
+    public TaskStorageMigration(TaskContainerImpl container, CounterManager counterManager) {
+        this.container = container;
+        this.counterManager = counterManager;
+    }
+
+    void migrate(@Observes StartupEvent event) {
+        SyncStrongCounter version = getVersion();
+        if (version.getValue() >= SPLIT_STORAGE_VERSION) {
+            log.debug("MIGRATION: Task storage is already migrated.");
+            return;
+        }
+
+        List<String> legacy = findLegacyTasks();
+        boolean failed = false;
+        if (!legacy.isEmpty()) {
+            log.info("MIGRATION: Moving definitions and responses of {} Task(s) out of the Task entries.", legacy.size());
+
+            int migrated = 0;
+            for (int from = 0; from < legacy.size(); from += batchSize) {
+                List<String> batch = legacy.subList(from, Math.min(from + batchSize, legacy.size()));
+                try {
+                    migrated += migrateBatch(batch);
+                } catch (Exception e) {
+                    failed = true;
+                    log.warn("MIGRATION: Batch of {} Task(s) failed. They are migrated on their next transition.",
+                            batch.size(), e);
+                }
+            }
+            log.info("MIGRATION: Migrated {} of {} Task(s).", migrated, legacy.size());
+        }
+
+        if (failed) {
+            // the next startup scans again
+            return;
+        }
+        // another node that finished the migration concurrently has already set the version
+        version.compareAndSwap(0, SPLIT_STORAGE_VERSION);
+    }
+
+    private SyncStrongCounter getVersion() {
+        counterManager.defineCounter(STORAGE_VERSION_COUNTER_NAME, CounterConfiguration.builder(CounterType.UNBOUNDED_STRONG)
+                .initialValue(0)
+                .storage(Storage.PERSISTENT)
+                .build());
+        return counterManager.getStrongCounter(STORAGE_VERSION_COUNTER_NAME).sync();
+    }
+
+    private List<String> findLegacyTasks() {
+        List<String> legacy = new ArrayList<>();
+        try (CloseableIterator<Map.Entry<Object, Object>> entries = container.getCache().retrieveEntries(null, batchSize)) {
+            while (entries.hasNext()) {
+                Task task = (Task) entries.next().getValue();
+                if (isLegacy(task)) {
+                    legacy.add(task.getName());
+                }
+            }
+        }
+        return legacy;
+    }
+
+    private int migrateBatch(List<String> names) throws Exception {
+        TransactionManager tm = container.getTransactionManager();
+        tm.begin();
+        try {
+            int migrated = 0;
+            for (String name : names) {
+                MetadataValue<Task> versioned = container.getWithMetadata(name);
+                if (versioned == null || !isLegacy(versioned.getValue())) {
+                    continue;
+                }
+                if (container.replaceWithVersion(versioned.getValue(), versioned.getVersion())) {
+                    migrated++;
+                }
+            }
+            tm.commit();
+            return migrated;
+        } catch (Exception e) {
+            if (tm.getTransaction() != null) {
+                tm.rollback();
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isLegacy(Task task) {
+        return task.hasDefinition() || !task.getServerResponses().isEmpty();
+    }
+}
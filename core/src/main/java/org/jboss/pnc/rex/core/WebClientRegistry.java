@@ -0,0 +1,136 @@
+package org.jboss.pnc.rex.core;
+
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.ext.web.client.WebClient;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds a pooled {@link WebClient} for every remote destination (scheme://host:port). Connections to the same
+ * destination are kept alive and reused by all requests sent to it.
+ */
+@Slf4j
+@ApplicationScoped
+public class WebClientRegistry {
+
+    private final Vertx vertx;
+
+    private final Map<String, WebClient> clients = new ConcurrentHashMap<>();
+
+    @ConfigProperty(name = "scheduler.options.http.client.max-pool-size", defaultValue = "50")
+    int maxPoolSize;
+
+    @ConfigProperty(name = "scheduler.options.http.client.keep-alive", defaultValue = "true")
+    boolean keepAlive;
+
+    @ConfigProperty(name = "scheduler.options.http.client.keep-alive-timeout-s", defaultValue = "60")
+    int keepAliveTimeout;
+
+    @ConfigProperty(name = "scheduler.options.http.client.pipelining", defaultValue = "false")
+    boolean pipelining;
+
+    @ConfigProperty(name = "scheduler.options.http.client.pipelining-limit", defaultValue = "10")
+    int pipeliningLimit;
+
+    @ConfigProperty(name = "scheduler.options.http.client.http2", defaultValue = "false")
+    boolean http2;
+
+    @ConfigProperty(name = "scheduler.options.http.client.http2-max-pool-size", defaultValue = "1")
+    int http2MaxPoolSize;
+
+    @ConfigProperty(name = "scheduler.options.http.client.connect-timeout-ms", defaultValue = "10000")
+    int connectTimeout;
+
+    @ConfigProperty(name = "scheduler.options.http.client.tls.trust-all", defaultValue = "false")
+    boolean trustAll;
+
+    @ConfigProperty(name = "scheduler.options.http.client.tls.verify-host", defaultValue = "true")
+    boolean verifyHost;
+
+    public WebClientRegistry(Vertx vertx) {
+        this.vertx = vertx;
+    }
+
+    @PreDestroy
+    void close() {
+        clients.values().forEach(WebClient::close);
+    }
+
+    /**
+     * @param uri url of a remote endpoint
+     * @return client of the scheme, host and port of the url
+     */
+    public WebClient get(URI uri) {
+        return clients.computeIfAbsent(destination(uri), key -> create(uri));
+    }
+
+    /**
+     * @param uri url of a remote endpoint
+     * @return destination of the url in the form of scheme://host:port
+     */
+    public static String destination(URI uri) {
+        return scheme(uri) + "://" + uri.getHost() + ':' + port(uri);
+    }
+
+    /**
+     * @param uri url of a remote endpoint
+     * @return port of the url or the default port of its scheme
+     */
+    public static int port(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return isSsl(uri) ? 443 : 80;
+    }
+
+    /**
+     * @param uri url of a remote endpoint
+     * @return path with query of the url
+     */
+    public static String requestUri(URI uri) {
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return uri.getRawQuery() == null ? path : path + '?' + uri.getRawQuery();
+    }
+
+    private WebClient create(URI uri) {
+        boolean ssl = isSsl(uri);
+        WebClientOptions options = new WebClientOptions()
+                .setDefaultHost(uri.getHost())
+                .setDefaultPort(port(uri))
+                .setSsl(ssl)
+                .setTrustAll(trustAll)
+                .setVerifyHost(verifyHost)
+                .setMaxPoolSize(maxPoolSize)
+                .setKeepAlive(keepAlive)
+                .setKeepAliveTimeout(keepAliveTimeout)
+                .setPipelining(pipelining)
+                .setPipeliningLimit(pipeliningLimit)
+                .setConnectTimeout(connectTimeout);
+        if (http2) {
+            // h2 over TLS is negotiated by ALPN, plain text connections are upgraded (h2c)
+            options.setProtocolVersion(HttpVersion.HTTP_2)
+                    .setUseAlpn(ssl)
+                    .setAlpnVersions(List.of(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1))
+                    .setHttp2MaxPoolSize(http2MaxPoolSize);
+        }
+        log.info("HTTP-CLIENT : Creating client for {}", destination(uri));
+        return WebClient.create(vertx, options);
+    }
+
+    private static String scheme(URI uri) {
+        return uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase();
+    }
+
+    private static boolean isSsl(URI uri) {
+        return "https".equals(scheme(uri));
+    }
+}
@@ -0,0 +1,32 @@
+package org.jboss.pnc.rex.core.api;
+
+import org.jboss.pnc.rex.common.enums.DependencySignal;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Propagates signals of finished Tasks to their dependants. A dependant that transitions because of the signal
+ * propagates further to its own dependants, so a single signal can cascade through a large part of the graph.
+ */
+public interface DependantPropagator {
+
+    /**
+     * Informs dependants within the current transaction. If the cascade is too large for a single transaction, the
+     * rest is continued in chained transactions after the current one commits.
+     *
+     * @param signal what happened to the dependency
+     * @param dependants names of the dependants to inform
+     */
+    void propagate(DependencySignal signal, Collection<String> dependants);
+
+    /**
+     * Continues a propagation in a new transaction. The propagation is skipped if its outbox entry was already
+     * consumed, therefore a continuation is never applied twice.
+     *
+     * @param outboxId id of the outbox entry of the continuation
+     * @param signal what happened to the dependency
+     * @param dependants names of the dependants to inform
+     */
+    void resume(String outboxId, DependencySignal signal, List<String> dependants);
+}
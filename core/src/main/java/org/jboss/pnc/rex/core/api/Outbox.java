@@ -0,0 +1,69 @@
+package org.jboss.pnc.rex.core.api;
+
+import org.jboss.pnc.rex.core.jobs.DurableJob;
+import org.jboss.pnc.rex.model.OutboxEntry;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Durable record of Jobs that run after a successful transaction. A Job is recorded in the same transaction that
+ * scheduled it and acknowledged after it completes, therefore a Job is never lost if the node dies in between.
+ */
+public interface Outbox {
+
+    /**
+     * Records the Job. Has to be invoked within a transaction, otherwise the Job is not recorded.
+     *
+     * @param job the Job
+     */
+    void record(DurableJob job);
+
+    /**
+     * Removes the entry of a completed Job.
+     *
+     * @param id id of the entry
+     */
+    void acknowledge(String id);
+
+    /**
+     * Removes the entry within the current transaction. Jobs that change state in a transaction of their own use it
+     * to run exactly once.
+     *
+     * @param id id of the entry
+     * @return false if the entry was already removed (the Job already ran)
+     */
+    boolean consume(String id);
+
+    /**
+     * Returns entries that were not acknowledged in time, oldest first.
+     *
+     * @param claimedBefore entries claimed before this time (in millis) are returned
+     * @param limit maximum number of entries
+     * @return stale entries
+     */
+    List<OutboxEntry> getStale(long claimedBefore, int limit);
+
+    /**
+     * Claims a stale entry for this node. Fails if another node claimed the entry first.
+     *
+     * @param entry the stale entry
+     * @return the claimed entry; empty if the entry was claimed by another node or already acknowledged
+     */
+    Optional<OutboxEntry> claim(OutboxEntry entry);
+
+    /**
+     * Returns the amount of entries recorded or claimed by this node that were not acknowledged yet.
+     *
+     * @return amount of pending entries of this node
+     */
+    int getPending();
+
+    /**
+     * Releases pending entries of this node so that other nodes replay them on their next sweep without waiting for
+     * the claim timeout. Used by a node that shuts down before its Jobs completed.
+     *
+     * @return amount of released entries
+     */
+    int handOff();
+}
@@ -1,26 +1,44 @@
 package org.jboss.pnc.rex.core.api;
 
+import org.jboss.pnc.rex.core.counter.LimiterStatistics;
+
 /**
  * Interface for interacting with internal queue. Each queue has 2 counters. Maximum counter which limits maximum amount
- * of concurrently running Tasks, and Running counter which signifies current number of concurrently running Tasks.
+ * of concurrently running Tasks, and Running counter which signifies current number of concurrently running Tasks. The
+ * Running counter is held by a {@link org.jboss.pnc.rex.core.counter.ConcurrencyLimiter}.
  *
  * If the amount of running Tasks is higher than the maximum amount, Tasks that are able to start are left in the queue
  * (in the ENQUEUED state).
  *
+ * Tasks are divided into groups. Free space is shared between groups by weighted fair queuing and each group can be
+ * limited by its own maximum on top of the global one. Within a group, Tasks with higher priority are started first.
+ *
  * @author Jan Michalov <jmichalo@redhat.com>
  */
 public interface QueueManager {
     /**
      * The method checks whether there is a room to schedule new Tasks. If the answer is no, the method does nothing,
-     * otherwise, maximum possible amount of Tasks in {@link ENQUEUED} state is transitioned to {@link STARTING}.
+     * otherwise, maximum possible amount of Tasks in {@link ENQUEUED} state is transitioned to {@link STARTING}. The
+     * room is given to the group with the least running Tasks relative to its weight first.
      */
     void poke();
 
     /**
-     * Decrease amount of running counter by one. The method is invoked when a Task transitions from {@link RUNNING}
-     * state into {@link FINAL}.
+     * Decrease amount of running counter and running counter of the group by one. The method is invoked within the
+     * transaction of a transition from {@link RUNNING} state into {@link FINAL} (or back into {@link ENQUEUED}). The
+     * permits are released only after the transaction commits.
+     *
+     * @param group group of the finished Task
+     */
+    void decreaseRunningCounter(String group);
+
+    /**
+     * Returns the amount of permit changes of transactions that did not complete yet. Acquired permits are returned
+     * if their transaction does not commit and released permits are returned once it commits.
+     *
+     * @return amount of unsettled permit changes
      */
-    void decreaseRunningCounter();
+    int getUnsettledPermits();
 
     /**
      * The method changes the maximum amount of concurrently running Tasks. If the amount is lower than the number of
@@ -36,4 +54,40 @@ public interface QueueManager {
      * @return maximum counter value
      */
     Long getMaximumConcurrency();
+
+    /**
+     * The method changes the maximum amount of concurrently running Tasks of a group. The global maximum still applies.
+     * The queue is poked after.
+     *
+     * @param group group of Tasks
+     * @param amount new maximum of the group; null removes the limit
+     */
+    void setGroupConcurrency(String group, Long amount);
+
+    /**
+     * @param group group of Tasks
+     * @return maximum of the group or null if the group is not limited
+     */
+    Long getGroupConcurrency(String group);
+
+    /**
+     * The method changes the share of free space a group receives when other groups have Tasks waiting as well. A group
+     * with weight 2 gets twice as many running Tasks as a group with weight 1. The queue is poked after.
+     *
+     * @param group group of Tasks
+     * @param weight new weight of the group; null resets the weight to the default of 1
+     */
+    void setGroupWeight(String group, Long weight);
+
+    /**
+     * @param group group of Tasks
+     * @return weight of the group
+     */
+    Long getGroupWeight(String group);
+
+    /**
+     * Returns statistics of the Running counter.
+     * @return running counter statistics
+     */
+    LimiterStatistics getConcurrencyStatistics();
 }
@@ -7,7 +7,8 @@ package org.jboss.pnc.rex.core.api;
  */
 public interface TaskContainer extends TaskRegistry, TaskTarget {
     /**
-     * Initiates 'graceful' shutdown of the container. Currently, not implemented.
+     * Initiates 'graceful' shutdown of the container. The node stops accepting new Tasks and gives its Jobs in progress
+     * a bounded time to complete before it hands them off to other nodes. Blocks until the node is drained.
      */
     void shutdown();
 
@@ -19,7 +20,7 @@ public interface TaskContainer extends TaskRegistry, TaskTarget {
     String getDeploymentName();
 
     /**
-     * Returns true is container is shutting down. Currently, not implemented.
+     * Returns true is container is shutting down or already drained.
      *
      * @return boolean
      */
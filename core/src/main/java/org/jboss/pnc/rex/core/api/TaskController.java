@@ -1,6 +1,10 @@
 package org.jboss.pnc.rex.core.api;
 
 import org.jboss.pnc.rex.common.enums.Mode;
+import org.jboss.pnc.rex.model.Task;
+
+import java.time.Duration;
+import java.util.Collection;
 
 /**
  * This is API for TaskController.
@@ -32,6 +36,14 @@ public interface TaskController {
      */
     void setMode(String name, Mode mode, boolean pokeQueue);
 
+    /**
+     * Moves new Tasks in ACTIVE mode from NEW to WAITING or ENQUEUED before they are stored. Needs to be called in a
+     * transaction. The Tasks are altered in place and are not written, the caller stores them afterwards.
+     *
+     * @param tasks new Tasks that are not yet stored
+     */
+    void initialize(Collection<Task> tasks);
+
     /**
      * Method used for positive callback. Needs to be called in a transaction.
      *
@@ -49,4 +61,14 @@ public interface TaskController {
     void fail(String name, Object response);
 
     void dequeue(String name);
+
+    /**
+     * Returns a starting Task back into the queue because the remote entity cannot be reached at the moment. Needs to
+     * be called in a transaction. The queue is poked after the given delay. The Task keeps its place in the queue. A
+     * Task that was already requeued the maximum number of times fails instead.
+     *
+     * @param name id of the Task
+     * @param retryAfter delay before the queue is poked
+     */
+    void requeue(String name, Duration retryAfter);
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package org.jboss.pnc.rex.core.api;
+
+import org.jboss.pnc.rex.model.QueueEntry;
+import org.jboss.pnc.rex.model.Task;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queue of Tasks in {@link org.jboss.pnc.rex.common.enums.State#ENQUEUED} state. The queue is maintained by
+ * TaskController in the same transaction as the transitions into and out of the ENQUEUED state.
+ */
+public interface TaskQueue {
+
+    /**
+     * Adds a Task at the end of the queue of its group. Has to be invoked within a transaction.
+     *
+     * @param task the Task
+     */
+    void add(Task task);
+
+    /**
+     * Removes a Task from the queue. Has to be invoked within a transaction.
+     *
+     * @param name name of the Task
+     */
+    void remove(String name);
+
+    /**
+     * Returns names of Tasks from the head of the queue in the order they were enqueued. Tasks are not removed.
+     *
+     * @param limit maximum amount of returned Tasks
+     * @return names of the oldest enqueued Tasks
+     */
+    List<String> peek(long limit);
+
+    /**
+     * Returns entries from the head of the queue of a group. Entries are ordered by priority (highest first) and then
+     * in the order they were enqueued. Entries are not removed.
+     *
+     * @param group group of the Tasks
+     * @param limit maximum amount of returned entries
+     * @return entries of the next Tasks to dequeue in the group
+     */
+    List<QueueEntry> peek(String group, long limit);
+
+    /**
+     * Returns groups with their amount of Tasks read from counters, without querying the queue.
+     *
+     * @return groups that have at least one Task in the queue with the amount of their Tasks
+     */
+    Map<String, Long> getGroups();
+
+    /**
+     * Counts Tasks of every group with a query over the whole queue. Used to correct the counters read by
+     * {@link #getGroups()}.
+     *
+     * @return groups that have at least one Task in the queue with the amount of their Tasks
+     */
+    Map<String, Long> countGroups();
+
+    /**
+     * @return amount of Tasks in the queue
+     */
+    int size();
+}
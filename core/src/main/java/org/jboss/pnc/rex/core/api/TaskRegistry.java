@@ -1,11 +1,15 @@
 
 package org.jboss.pnc.rex.core.api;
 
+import org.jboss.pnc.rex.common.enums.State;
 import org.jboss.pnc.rex.common.exceptions.TaskMissingException;
+import org.jboss.pnc.rex.core.model.TaskFilter;
 import org.jboss.pnc.rex.model.Task;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The registry is used to retrieve Tasks.
@@ -42,8 +46,44 @@ public interface TaskRegistry {
      */
     List<Task> getTask(boolean waiting, boolean running, boolean finished);
 
+    /**
+     * Returns a page of Tasks matching the filter ordered by their name. Pages are read with a cursor: the name of
+     * the last Task of a page is the cursor for the next page.
+     *
+     * @param filter criteria the Tasks have to match
+     * @param after return only Tasks with a name greater than this one; null for the first page
+     * @param limit maximum number of returned Tasks
+     * @param withPayload whether Tasks should include their definitions and responses
+     * @return Tasks ordered by name
+     */
+    List<Task> getTasks(TaskFilter filter, String after, int limit, boolean withPayload);
+
+    /**
+     * Returns Tasks with the given names read with a single bulk read. Names of missing Tasks are skipped.
+     *
+     * @param names names of the Tasks
+     * @param withPayload whether Tasks should include their definitions and responses
+     * @return found Tasks
+     */
+    List<Task> getTasks(Set<String> names, boolean withPayload);
+
     List<Task> getEnqueuedTasks(long limit);
 
+    /**
+     * Counts Tasks in every state with a single query. States without Tasks are left out.
+     *
+     * @return amount of Tasks per state
+     */
+    Map<State, Long> countTasksByState();
+
+    /**
+     * Counts Tasks that hold a running permit (STARTING, UP and STOPPING) in every group. Groups without running Tasks
+     * are left out.
+     *
+     * @return amount of running Tasks per group
+     */
+    Map<String, Long> countRunningTasksByGroup();
+
     /**
      * Returns all task identifiers in clustered container.
      *
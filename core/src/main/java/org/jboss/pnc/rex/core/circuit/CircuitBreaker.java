@@ -0,0 +1,138 @@
+package org.jboss.pnc.rex.core.circuit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker of a single remote destination (host:port).
+ * <p>
+ * The breaker opens after a number of consecutive failed calls. While it is open, calls are rejected without reaching
+ * the destination. After the open duration passes, the breaker lets a single trial call through (HALF_OPEN). A
+ * successful trial closes the breaker, a failed one opens it again.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Wait of rejected calls while a trial call is in flight
+     */
+    private static final Duration TRIAL_WAIT = Duration.ofSeconds(1);
+
+    private final String destination;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt;
+    private boolean trialInFlight = false;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejectedCalls = new LongAdder();
+    private final LongAdder timesOpened = new LongAdder();
+
+    public CircuitBreaker(String destination, int failureThreshold, Duration openDuration) {
+        this.destination = destination;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * @return true if a call to the destination can be made
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openDuration.toMillis()) {
+                    rejectedCalls.increment();
+                    return false;
+                }
+                log.info("CIRCUIT-BREAKER {}: HALF_OPEN, letting a trial call through.", destination);
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                break;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    rejectedCalls.increment();
+                    return false;
+                }
+                trialInFlight = true;
+                break;
+            case CLOSED:
+                break;
+        }
+        calls.increment();
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("CIRCUIT-BREAKER {}: CLOSED", destination);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        failures.increment();
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("CIRCUIT-BREAKER {}: OPEN after {} consecutive failure(s).", destination, consecutiveFailures);
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            timesOpened.increment();
+        }
+    }
+
+    public void onRetry() {
+        retries.increment();
+    }
+
+    /**
+     * @return time until the breaker lets a trial call through
+     */
+    public synchronized Duration getRetryAfter() {
+        switch (state) {
+            case OPEN:
+                long remaining = openDuration.toMillis() - (System.currentTimeMillis() - openedAt);
+                return Duration.ofMillis(Math.max(remaining, 0));
+            case HALF_OPEN:
+                return TRIAL_WAIT;
+            default:
+                return Duration.ZERO;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public synchronized CircuitBreakerStatistics getStatistics() {
+        return CircuitBreakerStatistics.builder()
+                .destination(destination)
+                .state(state)
+                .consecutiveFailures(consecutiveFailures)
+                .calls(calls.sum())
+                .failures(failures.sum())
+                .retries(retries.sum())
+                .rejectedCalls(rejectedCalls.sum())
+                .timesOpened(timesOpened.sum())
+                .build();
+    }
+}
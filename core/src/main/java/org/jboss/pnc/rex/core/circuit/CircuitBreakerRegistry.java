@@ -0,0 +1,44 @@
+package org.jboss.pnc.rex.core.circuit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.rex.core.WebClientRegistry;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Holds a {@link CircuitBreaker} for every remote destination (host:port) this node communicates with. Breakers are
+ * local to the node.
+ */
+@ApplicationScoped
+public class CircuitBreakerRegistry {
+
+    @ConfigProperty(name = "scheduler.options.http.circuit-breaker.failure-threshold", defaultValue = "5")
+    int failureThreshold;
+
+    @ConfigProperty(name = "scheduler.options.http.circuit-breaker.open-ms", defaultValue = "30000")
+    long openMillis;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * @param uri url of a remote endpoint
+     * @return breaker of the host and port of the url
+     */
+    public CircuitBreaker get(URI uri) {
+        String destination = uri.getHost() + ':' + WebClientRegistry.port(uri);
+        return breakers.computeIfAbsent(destination,
+                key -> new CircuitBreaker(key, failureThreshold, Duration.ofMillis(openMillis)));
+    }
+
+    public Collection<CircuitBreakerStatistics> getStatistics() {
+        return breakers.values().stream()
+                .map(CircuitBreaker::getStatistics)
+                .collect(Collectors.toList());
+    }
+}
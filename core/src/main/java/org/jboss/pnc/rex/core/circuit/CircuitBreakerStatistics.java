@@ -0,0 +1,54 @@
+package org.jboss.pnc.rex.core.circuit;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of {@link CircuitBreaker} statistics. Values are accumulated on this node since its startup.
+ */
+@Getter
+@Builder
+@ToString
+public class CircuitBreakerStatistics {
+
+    /**
+     * Destination (host:port) guarded by the breaker.
+     */
+    private final String destination;
+
+    /**
+     * Current state of the breaker.
+     */
+    private final CircuitBreaker.State state;
+
+    /**
+     * Amount of failed calls since the last successful one.
+     */
+    private final int consecutiveFailures;
+
+    /**
+     * Amount of calls let through the breaker (including retries).
+     */
+    private final long calls;
+
+    /**
+     * Amount of failed calls (connection errors and server errors).
+     */
+    private final long failures;
+
+    /**
+     * Amount of retried calls.
+     */
+    private final long retries;
+
+    /**
+     * Amount of calls rejected because the breaker was open.
+     */
+    private final long rejectedCalls;
+
+    /**
+     * How many times the breaker opened.
+     */
+    private final long timesOpened;
+}
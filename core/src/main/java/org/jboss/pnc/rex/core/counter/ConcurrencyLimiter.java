@@ -0,0 +1,53 @@
+package org.jboss.pnc.rex.core.counter;
+
+/**
+ * Limits amount of concurrently running Tasks across the whole cluster. Permits are acquired when Tasks are dequeued
+ * and released after they finish.
+ * <p>
+ * Operations are atomic but NOT transactional. Callers running in a transaction are responsible for releasing
+ * acquired permits if the transaction rolls back (or releasing permits only after the transaction commits).
+ */
+public interface ConcurrencyLimiter {
+
+    /**
+     * Acquires as many permits as possible, up to the requested amount, without exceeding the maximum.
+     *
+     * @param permits amount of requested permits
+     * @param maximum maximum amount of permits that can be held at once
+     * @return amount of acquired permits (can be 0)
+     */
+    long tryAcquire(long permits, long maximum);
+
+    /**
+     * Returns permits back to the limiter.
+     *
+     * @param permits amount of released permits
+     */
+    void release(long permits);
+
+    /**
+     * @return amount of currently held permits
+     */
+    long getAcquired();
+
+    /**
+     * Forcefully sets amount of held permits.
+     *
+     * @param permits new amount of held permits
+     */
+    void reset(long permits);
+
+    /**
+     * Sets amount of held permits only if it did not change in the meantime.
+     *
+     * @param expected expected amount of held permits
+     * @param permits new amount of held permits
+     * @return true if the amount was set
+     */
+    boolean compareAndReset(long expected, long permits);
+
+    /**
+     * @return statistics of this limiter instance
+     */
+    LimiterStatistics getStatistics();
+}
@@ -0,0 +1,57 @@
+package org.jboss.pnc.rex.core.counter;
+
+import org.infinispan.counter.api.CounterManager;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Holds a {@link ConcurrencyLimiter} for every group of Tasks. Each limiter counts running Tasks of its group in a
+ * separate clustered strong counter.
+ */
+@ApplicationScoped
+public class GroupLimiters {
+
+    public static final String GROUP_COUNTER_PREFIX = StrongCounterLimiter.RUNNING_COUNTER_NAME + ":";
+
+    private final CounterManager counterManager;
+
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Inject
+    public GroupLimiters(CounterManager counterManager) {
+        this.counterManager = counterManager;
+    }
+
+    /**
+     * @param group group of Tasks
+     * @return limiter of running Tasks in the group
+     */
+    public ConcurrencyLimiter get(String group) {
+        return limiters.computeIfAbsent(group,
+                name -> new StrongCounterLimiter(counterManager, GROUP_COUNTER_PREFIX + name));
+    }
+
+    /**
+     * @return groups that have a limiter anywhere in the cluster
+     */
+    public Set<String> getGroups() {
+        return counterManager.getCounterNames().stream()
+                .filter(name -> name.startsWith(GROUP_COUNTER_PREFIX))
+                .map(name -> name.substring(GROUP_COUNTER_PREFIX.length()))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Sets amount of running Tasks of every group in the cluster to 0.
+     */
+    public void resetAll() {
+        counterManager.getCounterNames().stream()
+                .filter(name -> name.startsWith(GROUP_COUNTER_PREFIX))
+                .forEach(name -> get(name.substring(GROUP_COUNTER_PREFIX.length())).reset(0));
+    }
+}
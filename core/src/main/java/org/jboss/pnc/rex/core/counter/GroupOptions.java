@@ -0,0 +1,65 @@
+package org.jboss.pnc.rex.core.counter;
+
+import io.quarkus.infinispan.client.Remote;
+import org.infinispan.client.hotrod.RemoteCache;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Scheduling options of groups of Tasks. Options are held in the counter cache next to the global maximum and are
+ * therefore shared by the whole cluster.
+ */
+@ApplicationScoped
+public class GroupOptions {
+
+    public static final String MAX_KEY_PREFIX = MaxConcurrentCounter.MAX_COUNTER_KEY + ":";
+
+    public static final String WEIGHT_KEY_PREFIX = "WEIGHT:";
+
+    public static final long DEFAULT_WEIGHT = 1L;
+
+    @Remote("counter")
+    RemoteCache<String, Long> counterCache;
+
+    /**
+     * @param group group of Tasks
+     * @return maximum amount of concurrently running Tasks of the group or null if the group is limited only by the
+     *         global maximum
+     */
+    public Long getMaximum(String group) {
+        return counterCache.get(MAX_KEY_PREFIX + group);
+    }
+
+    /**
+     * @param group group of Tasks
+     * @param maximum new maximum of the group; null removes the limit
+     */
+    public void setMaximum(String group, Long maximum) {
+        set(MAX_KEY_PREFIX + group, maximum);
+    }
+
+    /**
+     * @param group group of Tasks
+     * @return weight of the group when sharing free space with other groups
+     */
+    public long getWeight(String group) {
+        Long weight = counterCache.get(WEIGHT_KEY_PREFIX + group);
+        return weight == null ? DEFAULT_WEIGHT : weight;
+    }
+
+    /**
+     * @param group group of Tasks
+     * @param weight new weight of the group; null resets the weight to the default
+     */
+    public void setWeight(String group, Long weight) {
+        set(WEIGHT_KEY_PREFIX + group, weight);
+    }
+
+    private void set(String key, Long value) {
+        if (value == null) {
+            counterCache.remove(key);
+        } else {
+            counterCache.put(key, value);
+        }
+    }
+}
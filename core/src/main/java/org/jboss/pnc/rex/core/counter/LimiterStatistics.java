@@ -0,0 +1,44 @@
+package org.jboss.pnc.rex.core.counter;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of {@link ConcurrencyLimiter} statistics. Values are accumulated on this node since its startup.
+ */
+@Getter
+@Builder
+@ToString
+public class LimiterStatistics {
+
+    /**
+     * Amount of currently held permits in the whole cluster.
+     */
+    private final long acquired;
+
+    /**
+     * Amount of acquire requests.
+     */
+    private final long acquireRequests;
+
+    /**
+     * Amount of acquire requests that received no permit because the limit was reached.
+     */
+    private final long rejectedRequests;
+
+    /**
+     * Amount of repeated compare-and-swap attempts caused by a concurrent update from another request or node.
+     */
+    private final long contentionRetries;
+
+    /**
+     * Total amount of granted permits.
+     */
+    private final long grantedPermits;
+
+    /**
+     * Total amount of released permits.
+     */
+    private final long releasedPermits;
+}
@@ -0,0 +1,96 @@
+package org.jboss.pnc.rex.core.counter;
+
+import org.infinispan.counter.api.CounterConfiguration;
+import org.infinispan.counter.api.CounterManager;
+import org.infinispan.counter.api.CounterType;
+import org.infinispan.counter.api.Storage;
+import org.infinispan.counter.api.SyncStrongCounter;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Amount of ENQUEUED Tasks in every group held in clustered strong counters, so that the queue can be poked without
+ * querying the whole queue for its groups. Counters are updated after the transaction that changed the queue commits.
+ */
+@ApplicationScoped
+public class QueueDepths {
+
+    public static final String DEPTH_COUNTER_PREFIX = "QUEUE_DEPTH:";
+
+    private final CounterManager counterManager;
+
+    private final Map<String, SyncStrongCounter> counters = new ConcurrentHashMap<>();
+
+    @Inject
+    public QueueDepths(CounterManager counterManager) {
+        this.counterManager = counterManager;
+    }
+
+    public void increment(String group) {
+        get(group).incrementAndGet();
+    }
+
+    public void decrement(String group) {
+        get(group).decrementAndGet();
+    }
+
+    /**
+     * @return amount of ENQUEUED Tasks of the group
+     */
+    public long getDepth(String group) {
+        return get(group).getValue();
+    }
+
+    /**
+     * Sets the depth of a group only if it did not change in the meantime.
+     *
+     * @return true if the depth was set
+     */
+    public boolean compareAndSet(String group, long expected, long depth) {
+        return get(group).compareAndSwap(expected, depth) == expected;
+    }
+
+    /**
+     * @return groups that have at least one Task in the queue with the amount of their Tasks
+     */
+    public Map<String, Long> getGroups() {
+        Map<String, Long> groups = getAll();
+        groups.values().removeIf(depth -> depth <= 0);
+        return groups;
+    }
+
+    /**
+     * @return every group that has a depth counter anywhere in the cluster
+     */
+    public Map<String, Long> getAll() {
+        Map<String, Long> groups = new HashMap<>();
+        for (String name : counterManager.getCounterNames()) {
+            if (name.startsWith(DEPTH_COUNTER_PREFIX)) {
+                String group = name.substring(DEPTH_COUNTER_PREFIX.length());
+                groups.put(group, getDepth(group));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Sets depth of every group in the cluster to 0.
+     */
+    public void resetAll() {
+        getAll().keySet().forEach(group -> get(group).reset());
+    }
+
+    private SyncStrongCounter get(String group) {
+        return counters.computeIfAbsent(group, name -> {
+            counterManager.defineCounter(DEPTH_COUNTER_PREFIX + name, CounterConfiguration.builder(CounterType.UNBOUNDED_STRONG)
+                    .initialValue(0)
+                    .storage(Storage.PERSISTENT)
+                    .build());
+            return counterManager.getStrongCounter(DEPTH_COUNTER_PREFIX + name).sync();
+        });
+    }
+}
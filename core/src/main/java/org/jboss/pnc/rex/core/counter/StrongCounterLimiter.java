@@ -0,0 +1,124 @@
+package org.jboss.pnc.rex.core.counter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.infinispan.counter.api.CounterConfiguration;
+import org.infinispan.counter.api.CounterManager;
+import org.infinispan.counter.api.CounterType;
+import org.infinispan.counter.api.Storage;
+import org.infinispan.counter.api.SyncStrongCounter;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limiter backed by a clustered strong counter in Infinispan. Acquiring is a compare-and-swap loop on the counter and
+ * releasing is an atomic addition, therefore concurrent updates never fail a transaction and the maximum is never
+ * exceeded.
+ */
+@Slf4j
+@ApplicationScoped
+public class StrongCounterLimiter implements ConcurrencyLimiter {
+
+    public static final String RUNNING_COUNTER_NAME = "RUNNING";
+
+    private final CounterManager counterManager;
+
+    private final String counterName;
+
+    private volatile SyncStrongCounter counter;
+
+    private final LongAdder acquireRequests = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+    private final LongAdder contentionRetries = new LongAdder();
+    private final LongAdder grantedPermits = new LongAdder();
+    private final LongAdder releasedPermits = new LongAdder();
+
+    @Inject
+    public StrongCounterLimiter(CounterManager counterManager) {
+        this(counterManager, RUNNING_COUNTER_NAME);
+    }
+
+    StrongCounterLimiter(CounterManager counterManager, String counterName) {
+        this.counterManager = counterManager;
+        this.counterName = counterName;
+    }
+
+    @Override
+    public long tryAcquire(long permits, long maximum) {
+        acquireRequests.increment();
+        long current = getCounter().getValue();
+        while (true) {
+            long granted = Math.min(permits, maximum - current);
+            if (granted <= 0) {
+                rejectedRequests.increment();
+                return 0;
+            }
+
+            long witness = getCounter().compareAndSwap(current, current + granted);
+            if (witness == current) {
+                grantedPermits.add(granted);
+                log.debug("QUEUE: Acquired {} permit(s). ({} to {})", granted, current, current + granted);
+                return granted;
+            }
+
+            // somebody else was faster, try again with fresh value
+            contentionRetries.increment();
+            current = witness;
+        }
+    }
+
+    @Override
+    public void release(long permits) {
+        if (permits <= 0) {
+            return;
+        }
+        long current = getCounter().addAndGet(-permits);
+        releasedPermits.add(permits);
+        log.debug("QUEUE: Released {} permit(s). ({} to {})", permits, current + permits, current);
+    }
+
+    @Override
+    public long getAcquired() {
+        return getCounter().getValue();
+    }
+
+    @Override
+    public void reset(long permits) {
+        SyncStrongCounter counter = getCounter();
+        counter.reset();
+        counter.addAndGet(permits);
+    }
+
+    @Override
+    public boolean compareAndReset(long expected, long permits) {
+        return getCounter().compareAndSwap(expected, permits) == expected;
+    }
+
+    @Override
+    public LimiterStatistics getStatistics() {
+        return LimiterStatistics.builder()
+                .acquired(getAcquired())
+                .acquireRequests(acquireRequests.sum())
+                .rejectedRequests(rejectedRequests.sum())
+                .contentionRetries(contentionRetries.sum())
+                .grantedPermits(grantedPermits.sum())
+                .releasedPermits(releasedPermits.sum())
+                .build();
+    }
+
+    private SyncStrongCounter getCounter() {
+        if (counter == null) {
+            synchronized (this) {
+                if (counter == null) {
+                    counterManager.defineCounter(counterName, CounterConfiguration.builder(CounterType.UNBOUNDED_STRONG)
+                            .initialValue(0)
+                            .storage(Storage.VOLATILE)
+                            .build());
+                    counter = counterManager.getStrongCounter(counterName).sync();
+                }
+            }
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,31 @@
+package org.jboss.pnc.rex.core.delegates;
+
+import org.eclipse.microprofile.faulttolerance.Retry;
+import org.jboss.pnc.rex.common.enums.DependencySignal;
+import org.jboss.pnc.rex.core.api.DependantPropagator;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Collection;
+import java.util.List;
+
+@WithRetries
+@ApplicationScoped
+public class TolerantDependantPropagator implements DependantPropagator {
+
+    private final DependantPropagator delegate;
+
+    public TolerantDependantPropagator(DependantPropagator propagator) {
+        this.delegate = propagator;
+    }
+
+    @Override
+    public void propagate(DependencySignal signal, Collection<String> dependants) {
+        delegate.propagate(signal, dependants);
+    }
+
+    @Override
+    @Retry
+    public void resume(String outboxId, DependencySignal signal, List<String> dependants) {
+        delegate.resume(outboxId, signal, dependants);
+    }
+}
@@ -2,6 +2,7 @@ package org.jboss.pnc.rex.core.delegates;
 
 import org.eclipse.microprofile.faulttolerance.Retry;
 import org.jboss.pnc.rex.core.api.QueueManager;
+import org.jboss.pnc.rex.core.counter.LimiterStatistics;
 
 import javax.enterprise.context.ApplicationScoped;
 
@@ -22,9 +23,13 @@ public class TolerantQueueManager implements QueueManager {
     }
 
     @Override
-    @Retry
-    public void decreaseRunningCounter() {
-        delegate.decreaseRunningCounter();
+    public void decreaseRunningCounter(String group) {
+        delegate.decreaseRunningCounter(group);
+    }
+
+    @Override
+    public int getUnsettledPermits() {
+        return delegate.getUnsettledPermits();
     }
 
     @Override
@@ -37,4 +42,31 @@ public class TolerantQueueManager implements QueueManager {
     public Long getMaximumConcurrency() {
         return delegate.getMaximumConcurrency();
     }
+
+    @Override
+    @Retry
+    public void setGroupConcurrency(String group, Long amount) {
+        delegate.setGroupConcurrency(group, amount);
+    }
+
+    @Override
+    public Long getGroupConcurrency(String group) {
+        return delegate.getGroupConcurrency(group);
+    }
+
+    @Override
+    @Retry
+    public void setGroupWeight(String group, Long weight) {
+        delegate.setGroupWeight(group, weight);
+    }
+
+    @Override
+    public Long getGroupWeight(String group) {
+        return delegate.getGroupWeight(group);
+    }
+
+    @Override
+    public LimiterStatistics getConcurrencyStatistics() {
+        return delegate.getConcurrencyStatistics();
+    }
 }
@@ -3,8 +3,12 @@ package org.jboss.pnc.rex.core.delegates;
 import javax.enterprise.context.ApplicationScoped;
 import javax.transaction.Transactional;
 
+import java.time.Duration;
+import java.util.Collection;
+
 import org.jboss.pnc.rex.common.enums.Mode;
 import org.jboss.pnc.rex.core.api.TaskController;
+import org.jboss.pnc.rex.model.Task;
 
 @WithTransactions
 @ApplicationScoped
@@ -28,6 +32,12 @@ public class TransactionalTaskController implements TaskController {
         delegate.setMode(name, mode, pokeQueue);
     }
 
+    @Override
+    @Transactional
+    public void initialize(Collection<Task> tasks) {
+        delegate.initialize(tasks);
+    }
+
     @Override
     @Transactional
     public void accept(String name, Object response) {
@@ -45,4 +55,10 @@ public class TransactionalTaskController implements TaskController {
     public void dequeue(String name) {
         delegate.dequeue(name);
     }
+
+    @Override
+    @Transactional
+    public void requeue(String name, Duration retryAfter) {
+        delegate.requeue(name, retryAfter);
+    }
 }
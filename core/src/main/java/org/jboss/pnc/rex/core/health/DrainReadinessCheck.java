@@ -0,0 +1,31 @@
+package org.jboss.pnc.rex.core.health;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+import org.jboss.pnc.rex.core.api.TaskContainer;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Reports the node as not ready once it starts draining, so that the load balancer stops routing new requests to it.
+ * Liveness is not affected; the node keeps serving callbacks of its Tasks until it stops.
+ */
+@Readiness
+@ApplicationScoped
+public class DrainReadinessCheck implements HealthCheck {
+
+    private final TaskContainer container;
+
+    public DrainReadinessCheck(TaskContainer container) {
+        this.container = container;
+    }
+
+    @Override
+    public HealthCheckResponse call() {
+        return HealthCheckResponse.named("draining")
+                .status(!container.isShutdown())
+                .withData("node", container.getDeploymentName())
+                .build();
+    }
+}
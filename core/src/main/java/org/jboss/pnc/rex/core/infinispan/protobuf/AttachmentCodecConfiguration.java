@@ -0,0 +1,46 @@
+package org.jboss.pnc.rex.core.infinispan.protobuf;
+
+import io.quarkus.runtime.StartupEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.rex.common.util.JavaSerializationCodec;
+import org.jboss.pnc.rex.common.util.JsonAttachmentCodec;
+import org.jboss.pnc.rex.common.util.SerializationUtils;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+/**
+ * Selects the codec for attachments and bodies stored in Infinispan. Entries in either encoding are always readable;
+ * "java" is meant only for rolling upgrades while nodes that read Java serialization only are still running.
+ * <p>
+ * While the codec is "json", Java-serialized entries are read only if migration is enabled.
+ */
+@Slf4j
+@ApplicationScoped
+public class AttachmentCodecConfiguration {
+
+    @ConfigProperty(name = "scheduler.options.attachment.codec", defaultValue = "json")
+    String codec;
+
+    @ConfigProperty(name = "scheduler.options.attachment.migrate-java-serialization", defaultValue = "false")
+    boolean migrate;
+
+    void configure(@Observes StartupEvent event) {
+        switch (codec) {
+            case "json":
+                SerializationUtils.setAttachmentCodec(new JsonAttachmentCodec());
+                break;
+            case "java":
+                SerializationUtils.setAttachmentCodec(new JavaSerializationCodec());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown attachment codec: " + codec + ". Use 'json' or 'java'.");
+        }
+        SerializationUtils.setLegacyDecoding(migrate);
+        log.info("ATTACHMENTS: Encoding attachments with '{}' codec.", codec);
+        if (migrate) {
+            log.warn("ATTACHMENTS: Reading of Java-serialized entries is enabled. Entries are re-encoded on their next write.");
+        }
+    }
+}
@@ -2,14 +2,18 @@ package org.jboss.pnc.rex.core.infinispan.protobuf;
 
 import org.infinispan.protostream.SerializationContextInitializer;
 import org.infinispan.protostream.annotations.AutoProtoSchemaBuilder;
+import org.jboss.pnc.rex.common.enums.JobType;
 import org.jboss.pnc.rex.common.enums.Method;
 import org.jboss.pnc.rex.common.enums.Mode;
 import org.jboss.pnc.rex.common.enums.State;
 import org.jboss.pnc.rex.common.enums.StopFlag;
 import org.jboss.pnc.rex.model.Header;
+import org.jboss.pnc.rex.model.OutboxEntry;
+import org.jboss.pnc.rex.model.QueueEntry;
 import org.jboss.pnc.rex.model.Request;
 import org.jboss.pnc.rex.model.ServerResponse;
 import org.jboss.pnc.rex.model.Task;
+import org.jboss.pnc.rex.model.TaskDefinition;
 
 /**
  * Generates .proto schemas and infinispan protobuf marshallers of proto-annotated classes in includeClasses
@@ -17,11 +21,15 @@ import org.jboss.pnc.rex.model.Task;
 @AutoProtoSchemaBuilder(schemaPackageName = "org.jboss.pnc.rex.model",
         includeClasses = {ServerResponse.class,
                 Task.class,
+                TaskDefinition.class,
                 Header.class,
                 Method.class,
                 Mode.class,
                 State.class,
                 StopFlag.class,
-                Request.class})
+                Request.class,
+                QueueEntry.class,
+                JobType.class,
+                OutboxEntry.class})
 interface TaskProtobufContextInitializer extends SerializationContextInitializer {
 }
@@ -0,0 +1,37 @@
+package org.jboss.pnc.rex.core.jobs;
+
+import org.jboss.pnc.rex.core.api.TaskQueue;
+import org.jboss.pnc.rex.model.Task;
+
+import javax.enterprise.event.TransactionPhase;
+import javax.enterprise.inject.spi.CDI;
+
+/**
+ * Adds the Task at the end of the queue of ENQUEUED Tasks of its group. The Job runs within the transaction of the transition.
+ */
+public class AddToQueueJob extends ControllerJob {
+
+    private static final TransactionPhase INVOCATION_PHASE = TransactionPhase.IN_PROGRESS;
+
+    private final TaskQueue queue;
+
+    public AddToQueueJob(Task context) {
+        super(INVOCATION_PHASE, context);
+        this.queue = CDI.current().select(TaskQueue.class).get();
+    }
+
+    @Override
+    void beforeExecute() {}
+
+    @Override
+    void afterExecute() {}
+
+    @Override
+    boolean execute() {
+        queue.add(context);
+        return true;
+    }
+
+    @Override
+    void onException(Throwable e) {}
+}
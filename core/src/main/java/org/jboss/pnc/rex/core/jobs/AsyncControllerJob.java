@@ -0,0 +1,54 @@
+package org.jboss.pnc.rex.core.jobs;
+
+import io.smallrye.mutiny.Uni;
+import org.jboss.pnc.rex.model.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.event.TransactionPhase;
+
+/**
+ * Template for Controller Jobs that start an asynchronous operation (f.e. a remote HTTP call). The operation is
+ * subscribed to during execution of the Job and the Job returns without waiting for its completion, therefore the
+ * invoking thread is never blocked by the operation. Failures of the operation are handled by the Uni returned from
+ * recover(), which is chained to the operation as well. The outbox entry of the Job is acknowledged after the operation
+ * and its recovery terminate.
+ */
+public abstract class AsyncControllerJob extends ControllerJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncControllerJob.class);
+
+    protected AsyncControllerJob(TransactionPhase invocationPhase, Task context) {
+        super(invocationPhase, context);
+    }
+
+    @Override
+    boolean execute() {
+        Uni.createFrom().deferred(this::executeAsync)
+            .onFailure().call(this::recover)
+            .onTermination().invoke(this::acknowledge)
+            .subscribe().with(ignored -> {}, t -> logger.error("JOB " + context.getName() + ": Recovery failed.", t));
+        return true;
+    }
+
+    @Override
+    final void onException(Throwable e) {
+        recover(e).subscribe().with(ignored -> {}, t -> logger.error("JOB " + context.getName() + ": Recovery failed.", t));
+    }
+
+    /**
+     * @param e failure of the operation
+     * @return lazy recovery from the failure
+     */
+    abstract Uni<Void> recover(Throwable e);
+
+    @Override
+    void completed() {
+        // acknowledged after the operation terminates
+    }
+
+    /**
+     * @return lazy operation of the Job
+     */
+    abstract Uni<Void> executeAsync();
+}
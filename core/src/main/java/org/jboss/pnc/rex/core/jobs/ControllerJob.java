@@ -1,8 +1,11 @@
 package org.jboss.pnc.rex.core.jobs;
 
+import org.jboss.pnc.rex.core.api.Outbox;
+import org.jboss.pnc.rex.core.tracing.TaskTracing;
 import org.jboss.pnc.rex.model.Task;
 
 import javax.enterprise.event.TransactionPhase;
+import javax.enterprise.inject.spi.CDI;
 import java.util.Optional;
 
 /**
@@ -22,13 +25,25 @@ public abstract class ControllerJob implements Runnable {
 
     protected Task context;
 
+    /**
+     * Id of the outbox entry of a {@link DurableJob}. Null if the Job was not recorded.
+     */
+    protected String outboxId;
+
     protected ControllerJob(TransactionPhase invocationPhase, Task context) {
         this.invocationPhase = invocationPhase;
         this.context = context;
     }
 
+    /**
+     * Runs the Job in a span of the trace of its Task.
+     */
     @Override
     public void run() {
+        CDI.current().select(TaskTracing.class).get().run(getClass().getSimpleName(), context, this::doRun);
+    }
+
+    private void doRun() {
         try {
             beforeExecute();
             if (!execute()) return;
@@ -37,9 +52,31 @@ public abstract class ControllerJob implements Runnable {
             throw e;
         } finally {
             afterExecute();
+            completed();
+        }
+    }
+
+    /**
+     * Invoked after the Job finished. Jobs that complete asynchronously acknowledge the outbox entry on their own.
+     */
+    void completed() {
+        acknowledge();
+    }
+
+    /**
+     * Removes the outbox entry of the Job so that it is not replayed.
+     */
+    protected void acknowledge() {
+        if (outboxId != null) {
+            CDI.current().select(Outbox.class).get().acknowledge(outboxId);
+            outboxId = null;
         }
     }
 
+    public void setOutboxId(String outboxId) {
+        this.outboxId = outboxId;
+    }
+
     abstract void beforeExecute();
     abstract void afterExecute();
     abstract boolean execute();
@@ -2,12 +2,20 @@ package org.jboss.pnc.rex.core.jobs;
 
 import org.jboss.pnc.rex.core.api.QueueManager;
 import org.jboss.pnc.rex.model.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.enterprise.event.TransactionPhase;
 import javax.enterprise.inject.spi.CDI;
 
+/**
+ * Releases the running permit of a finished Task once the transaction of the transition commits. The permit is never
+ * released by a transaction that rolls back, therefore it is released exactly once and the maximum is never exceeded.
+ */
 public class DecreaseCounterJob extends ControllerJob {
 
+    private static final Logger log = LoggerFactory.getLogger(DecreaseCounterJob.class);
+
     private static final TransactionPhase INVOCATION_PHASE = TransactionPhase.IN_PROGRESS;
 
     private final QueueManager queueManager;
@@ -25,10 +33,13 @@ public class DecreaseCounterJob extends ControllerJob {
 
     @Override
     boolean execute() {
-        queueManager.decreaseRunningCounter();
+        queueManager.decreaseRunningCounter(context.getGroup() == null ? Task.DEFAULT_GROUP : context.getGroup());
         return true;
     }
 
     @Override
-    void onException(Throwable e) {}
+    void onException(Throwable e) {
+        log.error("COUNTER {}: Running permit could not be released. The transition is rolled back.",
+                context.getName(), e);
+    }
 }
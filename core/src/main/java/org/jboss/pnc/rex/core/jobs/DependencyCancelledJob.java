@@ -1,5 +1,6 @@
 package org.jboss.pnc.rex.core.jobs;
 
+import org.jboss.pnc.rex.common.enums.DependencySignal;
 import org.jboss.pnc.rex.model.Task;
 
 import javax.enterprise.event.TransactionPhase;
@@ -13,7 +14,7 @@ public class DependencyCancelledJob extends DependentControllerJob {
     }
 
     @Override
-    void inform(String dependentName) {
-        dependentAPI.dependencyCancelled(dependentName);
+    DependencySignal getSignal() {
+        return DependencySignal.CANCELLED;
     }
 }
@@ -1,6 +1,7 @@
 package org.jboss.pnc.rex.core.jobs;
 
-import org.jboss.pnc.rex.core.api.DependentMessenger;
+import org.jboss.pnc.rex.common.enums.DependencySignal;
+import org.jboss.pnc.rex.core.api.DependantPropagator;
 import org.jboss.pnc.rex.model.Task;
 
 import javax.enterprise.event.TransactionPhase;
@@ -17,23 +18,21 @@ public abstract class DependentControllerJob extends ControllerJob {
 
     private final Set<String> dependents;
 
-    protected DependentMessenger dependentAPI;
+    protected DependantPropagator propagator;
 
     protected DependentControllerJob(Task task, TransactionPhase invocationPhase) {
         super(invocationPhase, task);
         this.dependents = task.getDependants();
-        this.dependentAPI = CDI.current().select(DependentMessenger.class).get();
+        this.propagator = CDI.current().select(DependantPropagator.class).get();
     }
 
     @Override
     boolean execute() {
-        for (String dependent : dependents) {
-            inform(dependent);
-        }
+        propagator.propagate(getSignal(), dependents);
         return true;
     }
 
-    abstract void inform(final String dependentName);
+    abstract DependencySignal getSignal();
 
     @Override
     void beforeExecute() {}
@@ -0,0 +1,20 @@
+package org.jboss.pnc.rex.core.jobs;
+
+import org.jboss.pnc.rex.model.OutboxEntry;
+
+/**
+ * Job which is recorded in the outbox in the transaction that scheduled it. If the node dies before the Job completes,
+ * the Job is replayed by another node.
+ */
+public interface DurableJob {
+
+    /**
+     * @return entry describing the Job; id, owner and time of the claim are filled in by the outbox
+     */
+    OutboxEntry toOutboxEntry();
+
+    /**
+     * @param id id of the entry in the outbox; the entry is acknowledged after the Job completes
+     */
+    void setOutboxId(String id);
+}
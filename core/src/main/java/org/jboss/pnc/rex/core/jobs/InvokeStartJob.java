@@ -1,9 +1,11 @@
 package org.jboss.pnc.rex.core.jobs;
 
 import io.smallrye.mutiny.Uni;
+import org.jboss.pnc.rex.common.enums.JobType;
 import org.jboss.pnc.rex.core.RemoteEntityClient;
 import org.jboss.pnc.rex.core.api.TaskController;
 import org.jboss.pnc.rex.core.delegates.WithTransactions;
+import org.jboss.pnc.rex.model.OutboxEntry;
 import org.jboss.pnc.rex.model.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +13,7 @@ import org.slf4j.LoggerFactory;
 import javax.enterprise.event.TransactionPhase;
 import javax.enterprise.inject.spi.CDI;
 
-public class InvokeStartJob extends ControllerJob {
+public class InvokeStartJob extends AsyncControllerJob implements DurableJob {
 
     private static final TransactionPhase INVOCATION_PHASE = TransactionPhase.AFTER_SUCCESS;
 
@@ -34,21 +36,26 @@ public class InvokeStartJob extends ControllerJob {
     void afterExecute() {}
 
     @Override
-    boolean execute() {
+    Uni<Void> executeAsync() {
         logger.info("START {}: STARTING", context.getName());
-        client.startJob(context);
-        return true;
+        return client.startJob(context);
     }
 
     @Override
-    void onException(Throwable e) {
-        logger.error("STOP " + context.getName() + ": UNEXPECTED exception has been thrown.", e);
-        Uni.createFrom().voidItem()
+    Uni<Void> recover(Throwable e) {
+        logger.error("START " + context.getName() + ": UNEXPECTED exception has been thrown.", e);
+        return Uni.createFrom().voidItem()
                 .onItem().invoke((ignore) -> controller.fail(context.getName(), "START : System failure. Exception: " + e.toString()))
                 .onFailure().invoke((throwable) -> logger.warn("START " + context.getName() + ": Failed to transition task to START_FAILED state. Retrying.", throwable))
                 .onFailure().retry().atMost(5)
-                .onFailure().recoverWithNull()
-                .await().indefinitely();
+                .onFailure().recoverWithNull();
     }
 
-}
\ No newline at end of file
+    @Override
+    public OutboxEntry toOutboxEntry() {
+        return OutboxEntry.builder()
+                .type(JobType.INVOKE_START)
+                .taskName(context.getName())
+                .build();
+    }
+}
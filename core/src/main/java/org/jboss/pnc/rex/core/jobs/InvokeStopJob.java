@@ -1,9 +1,11 @@
 package org.jboss.pnc.rex.core.jobs;
 
 import io.smallrye.mutiny.Uni;
+import org.jboss.pnc.rex.common.enums.JobType;
 import org.jboss.pnc.rex.core.RemoteEntityClient;
 import org.jboss.pnc.rex.core.api.TaskController;
 import org.jboss.pnc.rex.core.delegates.WithTransactions;
+import org.jboss.pnc.rex.model.OutboxEntry;
 import org.jboss.pnc.rex.model.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +13,7 @@ import org.slf4j.LoggerFactory;
 import javax.enterprise.event.TransactionPhase;
 import javax.enterprise.inject.spi.CDI;
 
-public class InvokeStopJob extends ControllerJob {
+public class InvokeStopJob extends AsyncControllerJob implements DurableJob {
 
     private static final TransactionPhase INVOCATION_PHASE = TransactionPhase.AFTER_SUCCESS;
 
@@ -28,14 +30,13 @@ public class InvokeStopJob extends ControllerJob {
     void afterExecute() {}
 
     @Override
-    void onException(Throwable e) {
+    Uni<Void> recover(Throwable e) {
         logger.error("STOP " + context.getName() + ": UNEXPECTED exception has been thrown.", e);
-        Uni.createFrom().voidItem()
+        return Uni.createFrom().voidItem()
                 .onItem().invoke((ignore) -> controller.fail(context.getName(), "STOP : System failure. Exception: " + e.toString()))
                 .onFailure().invoke((throwable) -> logger.warn("STOP " + context.getName() + ": Failed to transition task to STOP_FAILED state. Retrying.", throwable))
                 .onFailure().retry().atMost(5)
-                .onFailure().recoverWithNull()
-                .await().indefinitely();
+                .onFailure().recoverWithNull();
     }
 
     public InvokeStopJob(Task task) {
@@ -45,9 +46,16 @@ public class InvokeStopJob extends ControllerJob {
     }
 
     @Override
-    boolean execute() {
+    Uni<Void> executeAsync() {
         logger.info("STOP {}: STOPPING", context.getName());
-        client.stopJob(context);
-        return true;
+        return client.stopJob(context);
+    }
+
+    @Override
+    public OutboxEntry toOutboxEntry() {
+        return OutboxEntry.builder()
+                .type(JobType.INVOKE_STOP)
+                .taskName(context.getName())
+                .build();
     }
 }
@@ -1,7 +1,13 @@
 package org.jboss.pnc.rex.core.jobs;
 
+import io.smallrye.mutiny.Uni;
+import org.jboss.pnc.rex.common.enums.JobType;
+import org.jboss.pnc.rex.common.exceptions.NotificationBufferFullException;
 import org.jboss.pnc.rex.common.enums.Transition;
 import org.jboss.pnc.rex.core.CallerNotificationClient;
+import org.jboss.pnc.rex.core.TaskContainerImpl;
+import org.jboss.pnc.rex.model.OutboxEntry;
+import org.jboss.pnc.rex.model.Request;
 import org.jboss.pnc.rex.model.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,7 +16,7 @@ import org.slf4j.LoggerFactory;
 import javax.enterprise.event.TransactionPhase;
 import javax.enterprise.inject.spi.CDI;
 
-public class NotifyCallerJob extends ControllerJob {
+public class NotifyCallerJob extends AsyncControllerJob implements DurableJob {
 
     private static final Logger log = LoggerFactory.getLogger(NotifyCallerJob.class);
 
@@ -18,12 +24,31 @@ public class NotifyCallerJob extends ControllerJob {
 
     private final Transition transition;
 
+    private final long sequence;
+
     private final CallerNotificationClient client;
 
+    private final TaskContainerImpl container;
+
+    /**
+     * Caller notifications definition of the Task; null if the caller is not notified
+     */
+    private final Request notifications;
+
+    /**
+     * @param transition the transition
+     * @param task the Task after the transition as read for the transition (without its payload). The notification
+     *             carries the Task as it was at this point; its responses are loaded only when the notification is sent
+     *             and only if the caller is notified.
+     */
     public NotifyCallerJob(Transition transition, Task task) {
-        super(INVOCATION_PHASE, task);
+        // responses are appended to the log by index, so the copy identifies the same responses after commit
+        super(INVOCATION_PHASE, task.toBuilder().build());
         this.transition = transition;
         this.client = CDI.current().select(CallerNotificationClient.class).get();
+        this.container = CDI.current().select(TaskContainerImpl.class).get();
+        this.notifications = container.getDefinition(task).getCallerNotifications();
+        this.sequence = client.reserve(task.getName(), notifications);
     }
 
     @Override
@@ -33,13 +58,40 @@ public class NotifyCallerJob extends ControllerJob {
     void afterExecute() {}
 
     @Override
-    boolean execute() {
-        client.notifyCaller(transition, context);
-        return true;
+    Uni<Void> executeAsync() {
+        if (notifications == null) {
+            log.debug("NOTIFICATION {}: DISABLED", context.getName());
+            return Uni.createFrom().voidItem();
+        }
+        return client.notifyCaller(transition, container.withPayload(context), sequence)
+                .onFailure(NotificationBufferFullException.class).recoverWithUni(this::leaveForReplay);
+    }
+
+    /**
+     * Keeps the outbox entry so that the notification is replayed after the claim timeout.
+     */
+    private Uni<Void> leaveForReplay(Throwable e) {
+        if (outboxId == null) {
+            log.error("NOTIFICATION {}: {} DROPPING the notification.", context.getName(), e.getMessage());
+        } else {
+            log.warn("NOTIFICATION {}: {} The notification is replayed later.", context.getName(), e.getMessage());
+            outboxId = null;
+        }
+        return Uni.createFrom().voidItem();
     }
 
     @Override
-    void onException(Throwable e) {
+    Uni<Void> recover(Throwable e) {
         log.error("NOTIFICATION " + context.getName() + ": UNEXPECTED exception has been thrown.", e);
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public OutboxEntry toOutboxEntry() {
+        return OutboxEntry.builder()
+                .type(JobType.NOTIFY_CALLER)
+                .taskName(context.getName())
+                .transition(transition.name())
+                .build();
     }
 }
@@ -1,20 +1,39 @@
 package org.jboss.pnc.rex.core.jobs;
 
-import org.jboss.pnc.rex.core.api.QueueManager;
-import org.jboss.pnc.rex.core.delegates.WithRetries;
+import org.jboss.pnc.rex.common.enums.JobType;
+import org.jboss.pnc.rex.core.QueueDispatcher;
+import org.jboss.pnc.rex.model.OutboxEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.enterprise.event.TransactionPhase;
 import javax.enterprise.inject.spi.CDI;
+import java.time.Duration;
 
-public class PokeQueueJob extends ControllerJob {
+/**
+ * Requests a poke of the queue after the transaction succeeds. Requests are coalesced by {@link QueueDispatcher}.
+ */
+public class PokeQueueJob extends ControllerJob implements DurableJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PokeQueueJob.class);
 
     private static final TransactionPhase INVOCATION_PHASE = TransactionPhase.AFTER_SUCCESS;
 
-    private final QueueManager manager;
+    private final QueueDispatcher dispatcher;
+
+    private final Duration delay;
 
     public PokeQueueJob() {
+        this(Duration.ZERO);
+    }
+
+    /**
+     * @param delay the poke is requested after the delay without blocking the invoking thread
+     */
+    public PokeQueueJob(Duration delay) {
         super(INVOCATION_PHASE, null);
-        this.manager = CDI.current().select(QueueManager.class, () -> WithRetries.class).get();
+        this.delay = delay;
+        this.dispatcher = CDI.current().select(QueueDispatcher.class).get();
     }
 
     @Override
@@ -25,10 +44,19 @@ public class PokeQueueJob extends ControllerJob {
 
     @Override
     boolean execute() {
-        manager.poke();
+        dispatcher.request(delay);
         return true;
     }
 
     @Override
-    void onException(Throwable e) {}
+    void onException(Throwable e) {
+        log.error("POKE: Delayed poke of the queue failed.", e);
+    }
+
+    @Override
+    public OutboxEntry toOutboxEntry() {
+        return OutboxEntry.builder()
+                .type(JobType.POKE_QUEUE)
+                .build();
+    }
 }
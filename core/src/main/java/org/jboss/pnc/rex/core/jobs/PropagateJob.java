@@ -0,0 +1,68 @@
+package org.jboss.pnc.rex.core.jobs;
+
+import org.jboss.pnc.rex.common.enums.DependencySignal;
+import org.jboss.pnc.rex.common.enums.JobType;
+import org.jboss.pnc.rex.core.api.DependantPropagator;
+import org.jboss.pnc.rex.core.delegates.WithRetries;
+import org.jboss.pnc.rex.model.OutboxEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.event.TransactionPhase;
+import javax.enterprise.inject.spi.CDI;
+import java.util.List;
+
+/**
+ * Continues a propagation to dependants that did not fit into the transaction that started it. The continuation runs
+ * in a new transaction which also consumes the outbox entry of the Job, so it is applied exactly once.
+ */
+public class PropagateJob extends ControllerJob implements DurableJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PropagateJob.class);
+
+    private static final TransactionPhase INVOCATION_PHASE = TransactionPhase.AFTER_SUCCESS;
+
+    private final DependantPropagator propagator;
+
+    private final DependencySignal signal;
+
+    private final List<String> dependants;
+
+    public PropagateJob(DependencySignal signal, List<String> dependants) {
+        super(INVOCATION_PHASE, null);
+        this.signal = signal;
+        this.dependants = dependants;
+        this.propagator = CDI.current().select(DependantPropagator.class, () -> WithRetries.class).get();
+    }
+
+    @Override
+    void beforeExecute() {}
+
+    @Override
+    void afterExecute() {}
+
+    @Override
+    boolean execute() {
+        propagator.resume(outboxId, signal, dependants);
+        return true;
+    }
+
+    @Override
+    void completed() {
+        // the outbox entry is consumed by the transaction of the continuation; if it failed, the entry is replayed
+    }
+
+    @Override
+    void onException(Throwable e) {
+        log.error("PROPAGATION: Continuation of {} to {} dependants failed.", signal, dependants.size(), e);
+    }
+
+    @Override
+    public OutboxEntry toOutboxEntry() {
+        return OutboxEntry.builder()
+                .type(JobType.PROPAGATE)
+                .signal(signal.name())
+                .dependants(dependants)
+                .build();
+    }
+}
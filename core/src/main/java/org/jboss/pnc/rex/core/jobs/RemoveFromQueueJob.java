@@ -0,0 +1,37 @@
+package org.jboss.pnc.rex.core.jobs;
+
+import org.jboss.pnc.rex.core.api.TaskQueue;
+import org.jboss.pnc.rex.model.Task;
+
+import javax.enterprise.event.TransactionPhase;
+import javax.enterprise.inject.spi.CDI;
+
+/**
+ * Removes the Task from the queue of ENQUEUED Tasks. The Job runs within the transaction of the transition.
+ */
+public class RemoveFromQueueJob extends ControllerJob {
+
+    private static final TransactionPhase INVOCATION_PHASE = TransactionPhase.IN_PROGRESS;
+
+    private final TaskQueue queue;
+
+    public RemoveFromQueueJob(Task context) {
+        super(INVOCATION_PHASE, context);
+        this.queue = CDI.current().select(TaskQueue.class).get();
+    }
+
+    @Override
+    void beforeExecute() {}
+
+    @Override
+    void afterExecute() {}
+
+    @Override
+    boolean execute() {
+        queue.remove(context.getName());
+        return true;
+    }
+
+    @Override
+    void onException(Throwable e) {}
+}
@@ -18,6 +18,14 @@ public interface InitialTaskMapper {
     @Mapping(target = "stopFlag", constant = "NONE")
     @Mapping(target = "state", constant = "NEW")
     @Mapping(target = "starting", constant = "false")
+    @Mapping(target = "priority", source = "priority", defaultValue = "0")
+    @Mapping(target = "group", source = "group", defaultValue = Task.DEFAULT_GROUP)
+    @Mapping(target = "responseCount", constant = "0")
+    @Mapping(target = "finishedAt", ignore = true)
+    @Mapping(target = "traceParent", ignore = true)
+    @Mapping(target = "enqueuedAt", ignore = true)
+    @Mapping(target = "queueSequence", ignore = true)
+    @Mapping(target = "requeues", ignore = true)
     // Singular additions
     @Mapping(target = "serverResponse", ignore = true)
     @Mapping(target = "dependant", ignore = true)
@@ -11,6 +11,8 @@ public interface MiniTaskMapper {
 
     @BeanMapping(ignoreUnmappedSourceProperties = {"unfinishedDependencies", "dependant",
             "dependency", "serverResponse", "stringName", "stringDependencies", "stringDependants", "starting",
-            "controllerMode"})
+            "controllerMode", "priority", "group", "responseCount", "legacyRemoteStart", "legacyRemoteCancel",
+            "legacyCallerNotifications", "legacyServerResponses", "finishedAt", "traceParent", "enqueuedAt",
+            "queueSequence", "requeues"})
     MinimizedTask minimize(Task task);
 }
@@ -0,0 +1,187 @@
+package org.jboss.pnc.rex.core.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.rex.common.enums.State;
+import org.jboss.pnc.rex.common.enums.Transition;
+import org.jboss.pnc.rex.core.api.TaskRegistry;
+import org.jboss.pnc.rex.core.counter.ConcurrencyLimiter;
+import org.jboss.pnc.rex.core.counter.MaxConcurrent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Instance;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the scheduler's hot paths. Meters are published through Micrometer (Prometheus format at /q/metrics).
+ * <p>
+ * Gauges of the RUNNING and MAX counters and of the amount of Tasks per state read the cluster when scraped. Amounts
+ * of Tasks per state are read by a single query and reused for the refresh interval so that scraping every state
+ * doesn't query the cluster repeatedly.
+ */
+@Slf4j
+@ApplicationScoped
+public class SchedulerMetrics {
+
+    public static final String PREFIX = "rex.";
+
+    private final MeterRegistry registry;
+
+    private final Instance<TaskRegistry> tasks;
+
+    private final Instance<ConcurrencyLimiter> limiter;
+
+    private final Instance<org.jboss.pnc.rex.core.counter.Counter> max;
+
+    private final Map<Transition, Counter> transitions = new EnumMap<>(Transition.class);
+
+    private final Counter conflicts;
+
+    private final Timer poke;
+
+    private final Counter pokeRequests;
+
+    private final Timer installs;
+
+    private final DistributionSummary installedTasks;
+
+    @ConfigProperty(name = "scheduler.options.metrics.state-refresh-ms", defaultValue = "10000")
+    long stateRefresh;
+
+    private volatile Map<State, Long> states = Collections.emptyMap();
+
+    private volatile long statesReadAt;
+
+    public SchedulerMetrics(MeterRegistry registry,
+                            Instance<TaskRegistry> tasks,
+                            Instance<ConcurrencyLimiter> limiter,
+                            @MaxConcurrent Instance<org.jboss.pnc.rex.core.counter.Counter> max) {
+        this.registry = registry;
+        this.tasks = tasks;
+        this.limiter = limiter;
+        this.max = max;
+        for (Transition transition : Transition.values()) {
+            transitions.put(transition, Counter.builder(PREFIX + "transitions")
+                    .description("Transitions of Tasks")
+                    .tag("transition", transition.name())
+                    .register(registry));
+        }
+        this.conflicts = Counter.builder(PREFIX + "task.update.conflicts")
+                .description("Tasks updated concurrently during a transition (the transaction is rolled back)")
+                .register(registry);
+        this.poke = Timer.builder(PREFIX + "queue.poke")
+                .description("Duration of poking the queue")
+                .register(registry);
+        this.pokeRequests = Counter.builder(PREFIX + "queue.poke.requests")
+                .description("Requests to poke the queue (coalesced into fewer pokes)")
+                .register(registry);
+        this.installs = Timer.builder(PREFIX + "install")
+                .description("Duration of installing a graph of Tasks")
+                .register(registry);
+        this.installedTasks = DistributionSummary.builder(PREFIX + "install.tasks")
+                .description("Amount of new Tasks in an installed graph")
+                .register(registry);
+    }
+
+    /**
+     * Gauges are registered after startup as they are backed by beans that depend on this one.
+     */
+    void registerGauges(@Observes StartupEvent event) {
+        Gauge.builder(PREFIX + "concurrency.running", () -> limiter.get().getAcquired())
+                .description("Value of the RUNNING counter")
+                .register(registry);
+        Gauge.builder(PREFIX + "concurrency.max", () -> max.get().getMetadataValue().getValue())
+                .description("Value of the MAX counter")
+                .register(registry);
+        for (State state : State.values()) {
+            Gauge.builder(PREFIX + "tasks", () -> getStates().getOrDefault(state, 0L))
+                    .description("Amount of Tasks in the state")
+                    .tag("state", state.name())
+                    .register(registry);
+        }
+    }
+
+    public void transition(Transition transition) {
+        transitions.get(transition).increment();
+    }
+
+    public void conflict() {
+        conflicts.increment();
+    }
+
+    public void poke(Runnable poking) {
+        poke.record(poking);
+    }
+
+    public void pokeRequest() {
+        pokeRequests.increment();
+    }
+
+    /**
+     * @param query name of the query of ENQUEUED Tasks
+     */
+    public <T> T enqueuedQuery(String query, Supplier<T> querying) {
+        return Timer.builder(PREFIX + "queue.query")
+                .description("Latency of queries of ENQUEUED Tasks")
+                .tag("query", query)
+                .register(registry)
+                .record(querying);
+    }
+
+    public void install(long nanos, int newTasks) {
+        installs.record(nanos, TimeUnit.NANOSECONDS);
+        installedTasks.record(newTasks);
+    }
+
+    /**
+     * @param destination host:port of the remote endpoint
+     * @param outcome status code of the response or name of the failure
+     */
+    public void httpCall(String destination, String outcome, long nanos) {
+        Timer.builder(PREFIX + "http.client.requests")
+                .description("Latency of attempts of outbound HTTP calls")
+                .tag("destination", destination)
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param destination host:port of the remote endpoint
+     */
+    public void httpRetry(String destination) {
+        Counter.builder(PREFIX + "http.client.retries")
+                .description("Retried outbound HTTP calls")
+                .tag("destination", destination)
+                .register(registry)
+                .increment();
+    }
+
+    private Map<State, Long> getStates() {
+        long now = System.currentTimeMillis();
+        if (now - statesReadAt >= stateRefresh) {
+            synchronized (this) {
+                if (now - statesReadAt >= stateRefresh) {
+                    try {
+                        states = tasks.get().countTasksByState();
+                    } catch (RuntimeException e) {
+                        log.warn("METRICS: Couldn't count Tasks by state. Reason: {}", e.toString());
+                    }
+                    statesReadAt = now;
+                }
+            }
+        }
+        return states;
+    }
+}
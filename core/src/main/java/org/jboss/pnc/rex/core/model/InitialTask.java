@@ -26,4 +26,10 @@ public class InitialTask {
 
     @Getter
     private final Mode controllerMode;
+
+    @Getter
+    private final Integer priority;
+
+    @Getter
+    private final String group;
 }
@@ -0,0 +1,36 @@
+package org.jboss.pnc.rex.core.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+import lombok.ToString;
+import org.jboss.pnc.rex.common.enums.State;
+import org.jboss.pnc.rex.common.enums.StopFlag;
+
+import java.util.Set;
+
+/**
+ * Criteria for querying Tasks. Empty criteria match every Task.
+ */
+@Getter
+@Builder
+@ToString
+public class TaskFilter {
+
+    /**
+     * Tasks in one of these states. All states if empty.
+     */
+    @Singular
+    private final Set<State> states;
+
+    /**
+     * Tasks with one of these stop flags. All stop flags if empty.
+     */
+    @Singular
+    private final Set<StopFlag> stopFlags;
+
+    /**
+     * Tasks with a name starting with the prefix. All names if null.
+     */
+    private final String namePrefix;
+}
@@ -0,0 +1,154 @@
+package org.jboss.pnc.rex.core.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import org.jboss.pnc.rex.model.Task;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Spans of the lifecycle of Tasks. Every Task gets a root span when it is installed and its context (a W3C
+ * traceparent) is stored in the Task. Transitions, Jobs and remote calls of the Task are children of the root span, so
+ * that the lifecycle of a Task is a single trace even though it spans multiple transactions, nodes and callbacks from
+ * the remote entity.
+ */
+@ApplicationScoped
+public class TaskTracing {
+
+    public static final String INSTRUMENTATION_NAME = "org.jboss.pnc.rex";
+
+    public static final String TASK_ATTRIBUTE = "rex.task";
+
+    private static final String TRACEPARENT = "traceparent";
+
+    private static final TextMapPropagator PROPAGATOR = W3CTraceContextPropagator.getInstance();
+
+    private static final TextMapGetter<Map<String, String>> MAP_GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(Map<String, String> carrier) {
+            return carrier.keySet();
+        }
+
+        @Override
+        public String get(Map<String, String> carrier, String key) {
+            return carrier == null ? null : carrier.get(key);
+        }
+    };
+
+    private final Tracer tracer;
+
+    public TaskTracing(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+    }
+
+    /**
+     * Starts and ends the root span of a new Task as a child of the current span and stores its context in the Task.
+     */
+    public void begin(Task task) {
+        Span root = tracer.spanBuilder("task " + task.getName())
+                .setAttribute(TASK_ATTRIBUTE, task.getName())
+                .startSpan();
+        Map<String, String> carrier = new HashMap<>();
+        PROPAGATOR.inject(Context.current().with(root), carrier, Map::put);
+        task.setTraceParent(carrier.get(TRACEPARENT));
+        root.end();
+    }
+
+    /**
+     * Starts a span in the trace of the Task. If the current span belongs to another trace (f.e. a request from a
+     * client or a callback that didn't propagate the context), the new span is linked to it.
+     *
+     * @param task Task of the span; if null or without a stored context, the span is a child of the current span
+     */
+    public Span startSpan(String name, Task task, SpanKind kind) {
+        return spanBuilder(name, task, kind).startSpan();
+    }
+
+    private SpanBuilder spanBuilder(String name, Task task, SpanKind kind) {
+        SpanBuilder builder = tracer.spanBuilder(name).setSpanKind(kind);
+        Context parent = restore(task);
+        if (parent != null) {
+            builder.setParent(parent);
+            SpanContext current = Span.current().getSpanContext();
+            String traceId = Span.fromContext(parent).getSpanContext().getTraceId();
+            if (current.isValid() && !current.getTraceId().equals(traceId)) {
+                builder.addLink(current);
+            }
+        }
+        if (task != null) {
+            builder.setAttribute(TASK_ATTRIBUTE, task.getName());
+        }
+        return builder;
+    }
+
+    public void run(String name, Task task, Runnable action) {
+        inSpan(name, task, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the action with a new span of the Task as the current span. Exceptions are recorded in the span.
+     */
+    public <T> T inSpan(String name, Task task, Supplier<T> action) {
+        Span span = startSpan(name, task, SpanKind.INTERNAL);
+        try (Scope ignored = span.makeCurrent()) {
+            return action.get();
+        } catch (RuntimeException e) {
+            fail(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Records time the Task spent ENQUEUED as a span of the Task.
+     */
+    public void queueWait(Task task) {
+        if (task.getEnqueuedAt() == null) {
+            return;
+        }
+        spanBuilder("queue-wait", task, SpanKind.INTERNAL)
+                .setStartTimestamp(task.getEnqueuedAt(), TimeUnit.MILLISECONDS)
+                .startSpan()
+                .end();
+    }
+
+    /**
+     * Writes the context of the span into headers of an outbound request.
+     */
+    public void inject(Span span, BiConsumer<String, String> headers) {
+        PROPAGATOR.inject(Context.current().with(span), headers, (carrier, key, value) -> carrier.accept(key, value));
+    }
+
+    public static void fail(Span span, Throwable throwable) {
+        span.recordException(throwable);
+        span.setStatus(StatusCode.ERROR, throwable.toString());
+    }
+
+    private static Context restore(Task task) {
+        if (task == null || task.getTraceParent() == null) {
+            return null;
+        }
+        return PROPAGATOR.extract(Context.root(), Collections.singletonMap(TRACEPARENT, task.getTraceParent()),
+                MAP_GETTER);
+    }
+}
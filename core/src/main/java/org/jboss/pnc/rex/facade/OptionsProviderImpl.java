@@ -1,21 +1,41 @@
 package org.jboss.pnc.rex.facade;
 
+import org.jboss.pnc.rex.core.QueueDispatcher;
 import org.jboss.pnc.rex.core.api.QueueManager;
+import org.jboss.pnc.rex.core.api.TaskContainer;
+import org.jboss.pnc.rex.core.circuit.CircuitBreakerRegistry;
+import org.jboss.pnc.rex.core.counter.LimiterStatistics;
+import org.jboss.pnc.rex.dto.responses.CircuitBreakerResponse;
+import org.jboss.pnc.rex.dto.responses.ConcurrencyStatisticsResponse;
 import org.jboss.pnc.rex.dto.responses.LongResponse;
 import org.jboss.pnc.rex.facade.api.OptionsProvider;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.transaction.Transactional;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class OptionsProviderImpl implements OptionsProvider {
 
     private final QueueManager manager;
 
+    private final CircuitBreakerRegistry breakers;
+
+    private final QueueDispatcher dispatcher;
+
+    private final TaskContainer container;
+
     @Inject
-    public OptionsProviderImpl(QueueManager manager) {
+    public OptionsProviderImpl(QueueManager manager,
+                               CircuitBreakerRegistry breakers,
+                               QueueDispatcher dispatcher,
+                               TaskContainer container) {
         this.manager = manager;
+        this.breakers = breakers;
+        this.dispatcher = dispatcher;
+        this.container = container;
     }
 
     @Override
@@ -31,4 +51,74 @@ public class OptionsProviderImpl implements OptionsProvider {
                 .number(manager.getMaximumConcurrency())
                 .build();
     }
+
+    @Override
+    @Transactional
+    public void setGroupConcurrency(String group, Long amount) {
+        manager.setGroupConcurrency(group, amount);
+    }
+
+    @Override
+    public LongResponse getGroupConcurrency(String group) {
+        return LongResponse
+                .builder()
+                .number(manager.getGroupConcurrency(group))
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public void setGroupWeight(String group, Long weight) {
+        manager.setGroupWeight(group, weight);
+    }
+
+    @Override
+    public LongResponse getGroupWeight(String group) {
+        return LongResponse
+                .builder()
+                .number(manager.getGroupWeight(group))
+                .build();
+    }
+
+    @Override
+    public ConcurrencyStatisticsResponse getConcurrencyStatistics() {
+        LimiterStatistics statistics = manager.getConcurrencyStatistics();
+        return ConcurrencyStatisticsResponse
+                .builder()
+                .maximum(manager.getMaximumConcurrency())
+                .running(statistics.getAcquired())
+                .acquireRequests(statistics.getAcquireRequests())
+                .rejectedRequests(statistics.getRejectedRequests())
+                .contentionRetries(statistics.getContentionRetries())
+                .grantedPermits(statistics.getGrantedPermits())
+                .releasedPermits(statistics.getReleasedPermits())
+                .build();
+    }
+
+    @Override
+    public List<CircuitBreakerResponse> getCircuitBreakers() {
+        return breakers.getStatistics().stream()
+                .map(statistics -> CircuitBreakerResponse
+                        .builder()
+                        .destination(statistics.getDestination())
+                        .state(statistics.getState().name())
+                        .consecutiveFailures(statistics.getConsecutiveFailures())
+                        .calls(statistics.getCalls())
+                        .failures(statistics.getFailures())
+                        .retries(statistics.getRetries())
+                        .rejectedCalls(statistics.getRejectedCalls())
+                        .timesOpened(statistics.getTimesOpened())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void pokeQueue() {
+        dispatcher.request();
+    }
+
+    @Override
+    public void drain() {
+        container.shutdown();
+    }
 }
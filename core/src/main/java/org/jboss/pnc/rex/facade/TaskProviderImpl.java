@@ -1,11 +1,16 @@
 package org.jboss.pnc.rex.facade;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.rex.common.enums.GraphDirection;
 import org.jboss.pnc.rex.common.enums.Mode;
+import org.jboss.pnc.rex.common.exceptions.BadRequestException;
 import org.jboss.pnc.rex.common.exceptions.TaskMissingException;
 import org.jboss.pnc.rex.core.api.TaskContainer;
 import org.jboss.pnc.rex.core.api.TaskController;
 import org.jboss.pnc.rex.core.api.TaskRegistry;
 import org.jboss.pnc.rex.core.api.TaskTarget;
+import org.jboss.pnc.rex.core.model.TaskFilter;
+import org.jboss.pnc.rex.core.tracing.TaskTracing;
 import org.jboss.pnc.rex.dto.TaskDTO;
 import org.jboss.pnc.rex.dto.requests.CreateGraphRequest;
 import org.jboss.pnc.rex.facade.api.TaskProvider;
@@ -17,13 +22,25 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.transaction.Transactional;
 import javax.ws.rs.NotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class TaskProviderImpl implements TaskProvider {
 
+    private static final Set<String> FIELDS = Set.of("name", "remoteStart", "remoteCancel", "callerNotifications",
+            "state", "stopFlag", "priority", "group", "serverResponses", "dependants", "dependencies");
+
+    private static final Set<String> COMPACT_FIELDS = Set.of("name", "state", "dependants", "dependencies");
+
+    private static final Set<String> PAYLOAD_FIELDS = Set.of("remoteStart", "remoteCancel", "callerNotifications",
+            "serverResponses");
+
     private final TaskTarget target;
 
     private final TaskRegistry registry;
@@ -34,19 +51,29 @@ public class TaskProviderImpl implements TaskProvider {
 
     private final TaskController controller;
 
+    private final TaskTracing tracing;
+
+    @ConfigProperty(name = "scheduler.options.listing.page-size", defaultValue = "500")
+    int pageSize;
+
     @Inject
-    public TaskProviderImpl(TaskContainer container, TaskController controller, TaskMapper mapper, GraphsMapper graphMapper) {
+    public TaskProviderImpl(TaskContainer container,
+                            TaskController controller,
+                            TaskMapper mapper,
+                            GraphsMapper graphMapper,
+                            TaskTracing tracing) {
         this.target = container;
         this.registry = container;
         this.controller = controller;
         this.mapper = mapper;
         this.graphMapper = graphMapper;
+        this.tracing = tracing;
     }
 
     @Override
     @Transactional
     public Set<TaskDTO> create(CreateGraphRequest request) {
-        return target.install(graphMapper.toDB(request))
+        return tracing.inSpan("install", null, () -> target.install(graphMapper.toDB(request)))
                 .stream()
                 .map(mapper::toDTO)
                 .collect(Collectors.toSet());
@@ -59,10 +86,69 @@ public class TaskProviderImpl implements TaskProvider {
                 .collect(Collectors.toSet());
     }
 
+    @Override
+    public List<TaskDTO> getAll(TaskFilter filter, String cursor, int limit, Set<String> fields) {
+        assertFieldsExist(fields);
+        return registry.getTasks(filter, cursor, limit, needsPayload(fields)).stream()
+                .map(task -> project(mapper.toDTO(task), fields))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEach(TaskFilter filter, String cursor, Set<String> fields, Consumer<TaskDTO> consumer) {
+        assertFieldsExist(fields);
+        boolean withPayload = needsPayload(fields);
+        String after = cursor;
+        List<Task> page;
+        do {
+            page = registry.getTasks(filter, after, pageSize, withPayload);
+            for (Task task : page) {
+                consumer.accept(project(mapper.toDTO(task), fields));
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getName();
+            }
+        } while (page.size() == pageSize);
+    }
+
+    private static void assertFieldsExist(Set<String> fields) {
+        for (String field : fields) {
+            if (!FIELDS.contains(field)) {
+                throw new BadRequestException("Unknown field " + field + ". Known fields are " + FIELDS + ".");
+            }
+        }
+    }
+
+    /**
+     * Definitions and responses are stored outside the Task entry, they are read only if requested.
+     */
+    private static boolean needsPayload(Set<String> fields) {
+        return fields.isEmpty() || !Collections.disjoint(fields, PAYLOAD_FIELDS);
+    }
+
+    private static TaskDTO project(TaskDTO task, Set<String> fields) {
+        if (fields.isEmpty()) {
+            return task;
+        }
+        return TaskDTO.builder()
+                .name(fields.contains("name") ? task.getName() : null)
+                .remoteStart(fields.contains("remoteStart") ? task.getRemoteStart() : null)
+                .remoteCancel(fields.contains("remoteCancel") ? task.getRemoteCancel() : null)
+                .callerNotifications(fields.contains("callerNotifications") ? task.getCallerNotifications() : null)
+                .state(fields.contains("state") ? task.getState() : null)
+                .stopFlag(fields.contains("stopFlag") ? task.getStopFlag() : null)
+                .priority(fields.contains("priority") ? task.getPriority() : 0)
+                .group(fields.contains("group") ? task.getGroup() : null)
+                .serverResponses(fields.contains("serverResponses") ? task.getServerResponses() : null)
+                .dependants(fields.contains("dependants") ? task.getDependants() : null)
+                .dependencies(fields.contains("dependencies") ? task.getDependencies() : null)
+                .build();
+    }
+
     @Override
     @Transactional
     public void cancel(String taskName) {
-        controller.setMode(taskName, Mode.CANCEL);
+        tracing.run("cancel " + taskName, null, () -> controller.setMode(taskName, Mode.CANCEL));
     }
 
     @Override
@@ -77,17 +163,62 @@ public class TaskProviderImpl implements TaskProvider {
     }
 
     @Override
-    public List<TaskDTO> getAllRelated(String taskName) {
-        throw new UnsupportedOperationException("not yet implemented");
+    public List<TaskDTO> getAllRelated(String taskName, GraphDirection direction, int depth, boolean compact) {
+        List<TaskDTO> related = new ArrayList<>();
+        forEachRelated(taskName, direction, depth, compact, related::add);
+        return related;
+    }
+
+    /**
+     * Breadth-first traversal from the task. Every level is read with a single bulk read. Dependencies and dependants
+     * are followed in separate frontiers so that direction BOTH does not turn back, e.g. into dependants of a
+     * dependency.
+     */
+    @Override
+    public void forEachRelated(String taskName, GraphDirection direction, int depth, boolean compact,
+                               Consumer<TaskDTO> consumer) {
+        Set<String> fields = compact ? COMPACT_FIELDS : Collections.emptySet();
+        Set<String> visited = new HashSet<>(Set.of(taskName));
+        Set<String> dependencies = direction != GraphDirection.DEPENDANTS ? Set.of(taskName) : Set.of();
+        Set<String> dependants = direction != GraphDirection.DEPENDENCIES ? Set.of(taskName) : Set.of();
+
+        for (int level = 0; !dependencies.isEmpty() || !dependants.isEmpty(); level++) {
+            // a Task cannot be both a dependency and a dependant of the task in an acyclic graph
+            Set<String> frontier = new HashSet<>(dependencies);
+            frontier.addAll(dependants);
+            List<Task> tasks = registry.getTasks(frontier, needsPayload(fields));
+            if (level == 0 && tasks.isEmpty()) {
+                throw new NotFoundException("Task " + taskName + " was not found.");
+            }
+
+            Set<String> nextDependencies = new HashSet<>();
+            Set<String> nextDependants = new HashSet<>();
+            for (Task task : tasks) {
+                consumer.accept(project(mapper.toDTO(task), fields));
+                if (depth >= 0 && level >= depth) {
+                    continue;
+                }
+                if (dependencies.contains(task.getName())) {
+                    task.getDependencies().stream().filter(visited::add).forEach(nextDependencies::add);
+                }
+                if (dependants.contains(task.getName())) {
+                    task.getDependants().stream().filter(visited::add).forEach(nextDependants::add);
+                }
+            }
+            dependencies = nextDependencies;
+            dependants = nextDependants;
+        }
     }
 
     @Override
     @Transactional
     public void acceptRemoteResponse(String taskName, boolean positive, Object response) {
-        if (positive) {
-            controller.accept(taskName, response);
-        } else {
-            controller.fail(taskName, response);
-        }
+        tracing.run("callback " + taskName, null, () -> {
+            if (positive) {
+                controller.accept(taskName, response);
+            } else {
+                controller.fail(taskName, response);
+            }
+        });
     }
 }
@@ -1,7 +1,11 @@
 package org.jboss.pnc.rex.facade.api;
 
+import org.jboss.pnc.rex.dto.responses.CircuitBreakerResponse;
+import org.jboss.pnc.rex.dto.responses.ConcurrencyStatisticsResponse;
 import org.jboss.pnc.rex.dto.responses.LongResponse;
 
+import java.util.List;
+
 /**
  * Public interface for managing scheduler's settings on runtime.
  */
@@ -20,4 +24,60 @@ public interface OptionsProvider {
      * @return maximum concurrent Tasks
      */
     LongResponse getConcurrency();
+
+    /**
+     * Sets the maximum amount of concurrent Tasks of a group. The global maximum still applies.
+     *
+     * @param group group of Tasks
+     * @param amount amount to be set; null removes the limit
+     */
+    void setGroupConcurrency(String group, Long amount);
+
+    /**
+     * Return maximum amount of concurrent Tasks of a group.
+     *
+     * @param group group of Tasks
+     * @return maximum concurrent Tasks of the group; empty if the group is not limited
+     */
+    LongResponse getGroupConcurrency(String group);
+
+    /**
+     * Sets the weight of a group used for sharing free space between groups.
+     *
+     * @param group group of Tasks
+     * @param weight weight to be set; null resets the weight to the default
+     */
+    void setGroupWeight(String group, Long weight);
+
+    /**
+     * Return weight of a group.
+     *
+     * @param group group of Tasks
+     * @return weight of the group
+     */
+    LongResponse getGroupWeight(String group);
+
+    /**
+     * Returns statistics of running Tasks limiter. Statistics are collected on this node.
+     *
+     * @return limiter statistics
+     */
+    ConcurrencyStatisticsResponse getConcurrencyStatistics();
+
+    /**
+     * Returns state and statistics of circuit breakers of remote destinations. Breakers are local to this node.
+     *
+     * @return circuit breakers of this node
+     */
+    List<CircuitBreakerResponse> getCircuitBreakers();
+
+    /**
+     * Requests a poke of the queue on this node. Other nodes use it to forward pokes to the elected queue dispatcher.
+     */
+    void pokeQueue();
+
+    /**
+     * Drains this node before shutdown. Returns once the Jobs of this node completed or were handed off.
+     */
+    void drain();
 }
@@ -1,10 +1,13 @@
 package org.jboss.pnc.rex.facade.api;
 
+import org.jboss.pnc.rex.common.enums.GraphDirection;
+import org.jboss.pnc.rex.core.model.TaskFilter;
 import org.jboss.pnc.rex.dto.TaskDTO;
 import org.jboss.pnc.rex.dto.requests.CreateGraphRequest;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface TaskProvider {
 
@@ -17,6 +20,28 @@ public interface TaskProvider {
      */
     Set<TaskDTO> getAll(boolean waiting, boolean running, boolean finished);
 
+    /**
+     * Returns a page of tasks matching the filter ordered by name
+     *
+     * @param filter criteria the tasks have to match
+     * @param cursor name of the last task of the previous page; null for the first page
+     * @param limit maximum number of returned tasks
+     * @param fields returned fields; all fields if empty
+     * @return list of tasks
+     */
+    List<TaskDTO> getAll(TaskFilter filter, String cursor, int limit, Set<String> fields);
+
+    /**
+     * Passes every task matching the filter to the consumer in the order of their names. Tasks are read lazily page
+     * by page, so the whole result is never held in memory.
+     *
+     * @param filter criteria the tasks have to match
+     * @param cursor name of the task to continue after; null to start from the first task
+     * @param fields returned fields; all fields if empty
+     * @param consumer consumer of the tasks
+     */
+    void forEach(TaskFilter filter, String cursor, Set<String> fields, Consumer<TaskDTO> consumer);
+
     /**
      * Cancels execution of the service and its dependants
      *
@@ -33,13 +58,25 @@ public interface TaskProvider {
     TaskDTO get(String taskName);
 
     /**
-     * Returns all related services
-     * (all dependants, all dependencies, dependants of dependencies, dependencies of dependants)
+     * Returns all related tasks including the task itself, ordered by their distance from the task
+     * (with direction BOTH: all transitive dependencies and all transitive dependants, without their siblings)
      *
-     * @param taskName name of existing service
-     * @return set of related services
+     * @param taskName name of existing task
+     * @param direction edges to follow
+     * @param depth maximum distance from the task; unlimited if negative
+     * @param compact return only names, states and edges of the tasks
+     * @return list of related tasks
+     */
+    List<TaskDTO> getAllRelated(String taskName, GraphDirection direction, int depth, boolean compact);
+
+    /**
+     * Passes all related tasks to the consumer level by level. Only the current level of the graph is held in
+     * memory.
+     *
+     * @see #getAllRelated(String, GraphDirection, int, boolean)
      */
-    List<TaskDTO> getAllRelated(String taskName);
+    void forEachRelated(String taskName, GraphDirection direction, int depth, boolean compact,
+                        Consumer<TaskDTO> consumer);
 
     /**
      * Used for communication with remote entity. Invoked by remote entity by provided callback.
@@ -9,7 +9,7 @@ import org.mapstruct.Mapper;
 public interface RequestMapper extends EntityMapper<HttpRequest, Request> {
 
     @Override
-    @BeanMapping(ignoreUnmappedSourceProperties = "byteAttachment")
+    @BeanMapping(ignoreUnmappedSourceProperties = {"byteAttachment", "uri"})
     HttpRequest toDTO(Request dbEntity);
 
     @Override
@@ -12,7 +12,9 @@ public interface TaskMapper extends EntityMapper<TaskDTO, Task> {
     @Override
     @BeanMapping(ignoreUnmappedSourceProperties = {"unfinishedDependencies", "serverResponses", "dependant",
             "dependency", "serverResponse", "stringName", "stringDependencies", "stringDependants", "starting",
-            "controllerMode"})
+            "controllerMode", "responseCount", "legacyRemoteStart", "legacyRemoteCancel", "legacyCallerNotifications",
+            "legacyServerResponses", "finishedAt", "traceParent", "enqueuedAt",
+            "queueSequence", "requeues"})
     TaskDTO toDTO(Task dbEntity);
 
     @Override
@@ -23,6 +25,12 @@ public interface TaskMapper extends EntityMapper<TaskDTO, Task> {
     @Mapping(target = "dependency", ignore = true)
     @Mapping(target = "stopFlag", ignore = true)
     @Mapping(target = "starting", ignore = true)
+    @Mapping(target = "responseCount", ignore = true)
+    @Mapping(target = "finishedAt", ignore = true)
+    @Mapping(target = "traceParent", ignore = true)
+    @Mapping(target = "enqueuedAt", ignore = true)
+    @Mapping(target = "queueSequence", ignore = true)
+    @Mapping(target = "requeues", ignore = true)
     @BeanMapping(ignoreUnmappedSourceProperties = {"stopFlag"})
     Task toDB(TaskDTO dtoEntity);
 }
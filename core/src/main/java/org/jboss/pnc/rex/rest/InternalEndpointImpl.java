@@ -2,9 +2,13 @@ package org.jboss.pnc.rex.rest;
 
 import org.eclipse.microprofile.faulttolerance.Retry;
 import org.jboss.pnc.rex.common.exceptions.BadRequestException;
+import org.jboss.pnc.rex.common.exceptions.OwnerUnavailableException;
 import org.jboss.pnc.rex.common.exceptions.TaskConflictException;
 import org.jboss.pnc.rex.common.exceptions.TaskMissingException;
+import org.jboss.pnc.rex.core.TaskOwnership;
 import org.jboss.pnc.rex.dto.requests.FinishRequest;
+import org.jboss.pnc.rex.dto.responses.CircuitBreakerResponse;
+import org.jboss.pnc.rex.dto.responses.ConcurrencyStatisticsResponse;
 import org.jboss.pnc.rex.dto.responses.LongResponse;
 import org.jboss.pnc.rex.facade.api.OptionsProvider;
 import org.jboss.pnc.rex.facade.api.TaskProvider;
@@ -13,6 +17,7 @@ import org.jboss.pnc.rex.rest.api.InternalEndpoint;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.validation.ConstraintViolationException;
+import java.util.List;
 
 @ApplicationScoped
 public class InternalEndpointImpl implements InternalEndpoint {
@@ -21,10 +26,13 @@ public class InternalEndpointImpl implements InternalEndpoint {
 
     private final OptionsProvider optionsProvider;
 
+    private final TaskOwnership ownership;
+
     @Inject
-    public InternalEndpointImpl(TaskProvider provider, OptionsProvider optionsProvider) {
+    public InternalEndpointImpl(TaskProvider provider, OptionsProvider optionsProvider, TaskOwnership ownership) {
         this.taskProvider = provider;
         this.optionsProvider = optionsProvider;
+        this.ownership = ownership;
     }
 
     @Override
@@ -34,8 +42,13 @@ public class InternalEndpointImpl implements InternalEndpoint {
             abortOn = {ConstraintViolationException.class,
                     TaskMissingException.class,
                     BadRequestException.class,
-                    TaskConflictException.class})
-    public void finish(String taskName, FinishRequest result) {
+                    TaskConflictException.class,
+                    OwnerUnavailableException.class})
+    public void finish(String taskName, String forwardedBy, FinishRequest result) {
+        // the owner updates the Task without conflicting with other nodes
+        if (ownership.forwardIfNotOwner(taskName, forwardedBy, "/rest/internal/" + taskName + "/finish", result)) {
+            return;
+        }
         taskProvider.acceptRemoteResponse(taskName, result.getStatus(), result.getResponse());
     }
 
@@ -55,4 +68,58 @@ public class InternalEndpointImpl implements InternalEndpoint {
     public LongResponse getConcurrent() {
         return optionsProvider.getConcurrency();
     }
+
+    @Override
+    public ConcurrencyStatisticsResponse getConcurrencyStatistics() {
+        return optionsProvider.getConcurrencyStatistics();
+    }
+
+    @Override
+    @Retry(maxRetries = 5,
+            delay = 10,
+            jitter = 50,
+            abortOn = {ConstraintViolationException.class,
+                    TaskMissingException.class,
+                    BadRequestException.class,
+                    TaskConflictException.class})
+    public void setGroupConcurrent(String group, Long amount) {
+        optionsProvider.setGroupConcurrency(group, amount);
+    }
+
+    @Override
+    public LongResponse getGroupConcurrent(String group) {
+        return optionsProvider.getGroupConcurrency(group);
+    }
+
+    @Override
+    @Retry(maxRetries = 5,
+            delay = 10,
+            jitter = 50,
+            abortOn = {ConstraintViolationException.class,
+                    TaskMissingException.class,
+                    BadRequestException.class,
+                    TaskConflictException.class})
+    public void setGroupWeight(String group, Long weight) {
+        optionsProvider.setGroupWeight(group, weight);
+    }
+
+    @Override
+    public LongResponse getGroupWeight(String group) {
+        return optionsProvider.getGroupWeight(group);
+    }
+
+    @Override
+    public List<CircuitBreakerResponse> getCircuitBreakers() {
+        return optionsProvider.getCircuitBreakers();
+    }
+
+    @Override
+    public void pokeQueue() {
+        optionsProvider.pokeQueue();
+    }
+
+    @Override
+    public void drain() {
+        optionsProvider.drain();
+    }
 }
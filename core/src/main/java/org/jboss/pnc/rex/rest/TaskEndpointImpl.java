@@ -1,29 +1,56 @@
 package org.jboss.pnc.rex.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.faulttolerance.Retry;
+import org.jboss.pnc.rex.common.enums.State;
 import org.jboss.pnc.rex.common.exceptions.BadRequestException;
 import org.jboss.pnc.rex.common.exceptions.CircularDependencyException;
+import org.jboss.pnc.rex.common.exceptions.NodeShuttingDownException;
 import org.jboss.pnc.rex.common.exceptions.TaskConflictException;
 import org.jboss.pnc.rex.common.exceptions.TaskMissingException;
+import org.jboss.pnc.rex.core.model.TaskFilter;
 import org.jboss.pnc.rex.dto.TaskDTO;
 import org.jboss.pnc.rex.dto.requests.CreateGraphRequest;
 import org.jboss.pnc.rex.facade.api.TaskProvider;
 import org.jboss.pnc.rex.rest.api.TaskEndpoint;
+import org.jboss.pnc.rex.rest.parameters.GraphParameters;
 import org.jboss.pnc.rex.rest.parameters.TaskFilterParameters;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.validation.ConstraintViolationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class TaskEndpointImpl implements TaskEndpoint {
 
     private final TaskProvider taskProvider;
 
+    private final ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "scheduler.options.api.default-page-size", defaultValue = "1000")
+    int defaultPageSize;
+
+    @ConfigProperty(name = "scheduler.options.api.max-page-size", defaultValue = "1000")
+    int maxPageSize;
+
     @Inject
-    public TaskEndpointImpl(TaskProvider taskProvider) {
+    public TaskEndpointImpl(TaskProvider taskProvider, ObjectMapper objectMapper) {
         this.taskProvider = taskProvider;
+        this.objectMapper = objectMapper;
     }
 
     @Override
@@ -34,20 +61,125 @@ public class TaskEndpointImpl implements TaskEndpoint {
                     TaskMissingException.class,
                     CircularDependencyException.class,
                     BadRequestException.class,
-                    TaskConflictException.class})
+                    TaskConflictException.class,
+                    NodeShuttingDownException.class})
     public Set<TaskDTO> start(CreateGraphRequest request) {
         return taskProvider.create(request);
     }
 
     @Override
     public Set<TaskDTO> getAll(TaskFilterParameters filterParameters) {
-        Boolean allFiltersAreFalse = !filterParameters.getFinished() && !filterParameters.getRunning() && !filterParameters.getWaiting();
+        if (matchesNothing(filterParameters)) {
+            return Collections.emptySet();
+        }
+        TaskFilter filter = toFilter(filterParameters);
+        Set<String> fields = toFields(filterParameters);
+
+        // keeps the order of names
+        Set<TaskDTO> tasks = new LinkedHashSet<>();
+        if (filterParameters.getLimit() == null && filterParameters.getCursor() == null) {
+            // a listing that does not page returns every Task as it always did
+            taskProvider.forEach(filter, null, fields, tasks::add);
+            return tasks;
+        }
+
+        int limit = filterParameters.getLimit() == null
+                ? defaultPageSize
+                : Math.min(filterParameters.getLimit(), maxPageSize);
+        tasks.addAll(taskProvider.getAll(filter, filterParameters.getCursor(), limit, fields));
+        return tasks;
+    }
+
+    @Override
+    public StreamingOutput streamAll(TaskFilterParameters filterParameters) {
+        if (matchesNothing(filterParameters)) {
+            return output -> {};
+        }
+        TaskFilter filter = toFilter(filterParameters);
+        Set<String> fields = toFields(filterParameters);
+
+        return ndjson(consumer -> taskProvider.forEach(filter, filterParameters.getCursor(), fields, consumer));
+    }
+
+    @Override
+    public List<TaskDTO> getGraph(String taskID, GraphParameters graphParameters) {
+        return taskProvider.getAllRelated(taskID,
+                graphParameters.getDirection(),
+                graphParameters.getDepth(),
+                graphParameters.getCompact());
+    }
+
+    @Override
+    public StreamingOutput streamGraph(String taskID, GraphParameters graphParameters) {
+        // fail before the response is committed if the task doesn't exist
+        taskProvider.get(taskID);
+
+        return ndjson(consumer -> taskProvider.forEachRelated(taskID,
+                graphParameters.getDirection(),
+                graphParameters.getDepth(),
+                graphParameters.getCompact(),
+                consumer));
+    }
+
+    /**
+     * Writes every Task passed to the consumer as a single line of JSON.
+     */
+    private StreamingOutput ndjson(Consumer<Consumer<TaskDTO>> producer) {
+        ObjectWriter writer = objectMapper.writerFor(TaskDTO.class);
+
+        return output -> {
+            try {
+                producer.accept(task -> {
+                    try {
+                        output.write(writer.writeValueAsBytes(task));
+                        output.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    /**
+     * Flags that are set but all false select no state.
+     */
+    private static boolean matchesNothing(TaskFilterParameters parameters) {
+        List<Boolean> flags = Arrays.asList(parameters.getWaiting(), parameters.getRunning(), parameters.getFinished());
+        return parameters.getStates().isEmpty()
+                && flags.stream().anyMatch(Objects::nonNull)
+                && flags.stream().noneMatch(Boolean.TRUE::equals);
+    }
+
+    private static TaskFilter toFilter(TaskFilterParameters parameters) {
+        Set<State> states = EnumSet.noneOf(State.class);
+        states.addAll(parameters.getStates());
+        for (State state : State.values()) {
+            if ((state.isIdle() || state.isQueued()) && Boolean.TRUE.equals(parameters.getWaiting())
+                    || state.isRunning() && Boolean.TRUE.equals(parameters.getRunning())
+                    || state.isFinal() && Boolean.TRUE.equals(parameters.getFinished())) {
+                states.add(state);
+            }
+        }
+
+        // no states mean all states
+        return TaskFilter.builder()
+                .states(states)
+                .stopFlags(parameters.getStopFlags())
+                .namePrefix(parameters.getPrefix())
+                .build();
+    }
 
-        //If query is empty return all services
-        if (allFiltersAreFalse) {
-            return taskProvider.getAll(true,true,true);
+    private static Set<String> toFields(TaskFilterParameters parameters) {
+        if (parameters.getFields() == null || parameters.getFields().isBlank()) {
+            return Collections.emptySet();
         }
-        return taskProvider.getAll(filterParameters.getWaiting(), filterParameters.getRunning(), filterParameters.getFinished());
+        return Arrays.stream(parameters.getFields().split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
     }
 
     @Override
@@ -1,12 +1,15 @@
 package org.jboss.pnc.rex.rest.api;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.pnc.rex.dto.requests.FinishRequest;
+import org.jboss.pnc.rex.dto.responses.CircuitBreakerResponse;
+import org.jboss.pnc.rex.dto.responses.ConcurrencyStatisticsResponse;
 import org.jboss.pnc.rex.dto.responses.ErrorResponse;
 import org.jboss.pnc.rex.dto.responses.LongResponse;
 
@@ -16,12 +19,14 @@ import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import java.util.List;
 
 import static org.jboss.pnc.rex.rest.openapi.OpenapiConstants.INVALID_CODE;
 import static org.jboss.pnc.rex.rest.openapi.OpenapiConstants.INVALID_DESCRIPTION;
@@ -46,7 +51,9 @@ public interface InternalEndpoint {
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
     @POST
-    void finish(@PathParam("taskName") @NotEmpty String taskName, @Valid @NotNull FinishRequest result);
+    void finish(@PathParam("taskName") @NotEmpty String taskName,
+                @HeaderParam(FinishRequest.FORWARDED_HEADER) String forwardedBy,
+                @Valid @NotNull FinishRequest result);
 
     @Path("/options/concurrency")
     @Operation(summary = "[ADMIN] Sets the amount of possible concurrent builds. Tasks that are currently running are never affected.")
@@ -72,4 +79,96 @@ public interface InternalEndpoint {
     })
     @GET
     LongResponse getConcurrent();
+
+    @Path("/options/concurrency/statistics")
+    @Operation(summary = "Returns statistics of the concurrency limiter collected on this node.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ConcurrencyStatisticsResponse.class))),
+            @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GET
+    ConcurrencyStatisticsResponse getConcurrencyStatistics();
+
+    @Path("/options/groups/{group}/concurrency")
+    @Operation(summary = "[ADMIN] Sets the amount of possible concurrent builds of a group on top of the global amount. Omitting the amount removes the limit.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION),
+            @APIResponse(responseCode = INVALID_CODE, description = INVALID_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @POST
+    void setGroupConcurrent(@PathParam("group") @NotEmpty String group, @QueryParam("amount") @Min(0) Long amount);
+
+    @Path("/options/groups/{group}/concurrency")
+    @Operation(summary = "Returns amount of possible concurrent builds of a group. Empty if the group is not limited.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = LongResponse.class))),
+            @APIResponse(responseCode = INVALID_CODE, description = INVALID_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GET
+    LongResponse getGroupConcurrent(@PathParam("group") @NotEmpty String group);
+
+    @Path("/options/groups/{group}/weight")
+    @Operation(summary = "[ADMIN] Sets the share of free space a group receives when other groups wait as well. Omitting the weight resets it to 1.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION),
+            @APIResponse(responseCode = INVALID_CODE, description = INVALID_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @POST
+    void setGroupWeight(@PathParam("group") @NotEmpty String group, @QueryParam("weight") @Min(1) Long weight);
+
+    @Path("/options/groups/{group}/weight")
+    @Operation(summary = "Returns the weight of a group.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = LongResponse.class))),
+            @APIResponse(responseCode = INVALID_CODE, description = INVALID_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GET
+    LongResponse getGroupWeight(@PathParam("group") @NotEmpty String group);
+
+    @Path("/http/circuit-breakers")
+    @Operation(summary = "Returns state and statistics of circuit breakers of remote destinations on this node.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = CircuitBreakerResponse.class, type = SchemaType.ARRAY))),
+            @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GET
+    List<CircuitBreakerResponse> getCircuitBreakers();
+
+    @Path("/queue/poke")
+    @Operation(summary = "[ADMIN] Requests a poke of the queue. Used by nodes to forward pokes to the elected queue dispatcher.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION),
+            @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @POST
+    void pokeQueue();
+
+    @Path("/drain")
+    @Operation(summary = "[ADMIN] Drains the node before shutdown. New graphs are rejected and Jobs in progress are completed or handed off to other nodes. Returns once the node is drained.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION),
+            @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @POST
+    void drain();
 }
@@ -10,7 +10,9 @@ import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.pnc.rex.dto.TaskDTO;
 import org.jboss.pnc.rex.dto.requests.CreateGraphRequest;
 import org.jboss.pnc.rex.dto.responses.ErrorResponse;
+import org.jboss.pnc.rex.dto.responses.TaskListResponse;
 import org.jboss.pnc.rex.dto.responses.TaskSetResponse;
+import org.jboss.pnc.rex.rest.parameters.GraphParameters;
 import org.jboss.pnc.rex.rest.parameters.TaskFilterParameters;
 
 import javax.validation.Valid;
@@ -25,6 +27,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import java.util.List;
 import java.util.Set;
 
 import static org.jboss.pnc.rex.rest.openapi.OpenapiConstants.CONFLICTED_CODE;
@@ -64,7 +68,11 @@ public interface TaskEndpoint {
     @Consumes(MediaType.APPLICATION_JSON)
     Set<TaskDTO> start(@Valid @NotNull CreateGraphRequest request);
 
-    @Operation(summary = "Returns list of all tasks with optional filtering.")
+    String NDJSON = "application/x-ndjson";
+
+    @Operation(summary = "Returns list of all tasks with optional filtering.",
+            description = "Tasks are ordered by name. Use 'limit' and 'cursor' to read large results page by page " +
+                    "or request " + NDJSON + " to stream them.")
     @APIResponses(value = {
             @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION,
                     content = @Content(schema = @Schema(implementation = TaskSetResponse.class))),
@@ -77,7 +85,22 @@ public interface TaskEndpoint {
     })
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    Set<TaskDTO> getAll(@BeanParam TaskFilterParameters filterParameters);
+    Set<TaskDTO> getAll(@Valid @BeanParam TaskFilterParameters filterParameters);
+
+    @Operation(summary = "Streams all tasks with optional filtering as newline delimited JSON.",
+            description = "Tasks are read lazily and written one task per line as they are read, so the response " +
+                    "is never held in memory.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION,
+                    content = @Content(mediaType = NDJSON, schema = @Schema(implementation = TaskDTO.class))),
+            @APIResponse(responseCode = INVALID_CODE, description = INVALID_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GET
+    @Produces(NDJSON + ";qs=0.5")
+    StreamingOutput streamAll(@Valid @BeanParam TaskFilterParameters filterParameters);
 
     @Path("/{taskID}")
     @Operation(summary = "Returns a specific task.")
@@ -105,15 +128,38 @@ public interface TaskEndpoint {
     @PUT
     void cancel(@Parameter(description = TASK_ID) @PathParam("taskID") @NotBlank String taskID);
 
-  /*  @Path("/{serviceName}/graph")
+    @Path("/{taskID}/graph")
+    @Operation(summary = "Returns the task and its transitive dependencies and/or dependants.",
+            description = "Tasks are ordered by their distance from the task. Request " + NDJSON + " to stream them.")
     @APIResponses(value = {
             @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION,
-                    content = @Content(schema = @Schema(implementation = ServiceListResponse.class))),
-            @APIResponse(responseCode = NOT_FOUND_CODE, description = NOT_FOUND_DESCRIPTION),
+                    content = @Content(schema = @Schema(implementation = TaskListResponse.class))),
+            @APIResponse(responseCode = INVALID_CODE, description = INVALID_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @APIResponse(responseCode = NOT_FOUND_CODE, description = NOT_FOUND_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    List<TaskDTO> getGraph(@Parameter(description = SERVICE_NAME) @PathParam("serviceName") String serviceName);*/
+    List<TaskDTO> getGraph(@Parameter(description = TASK_ID) @PathParam("taskID") @NotBlank String taskID,
+                           @Valid @BeanParam GraphParameters graphParameters);
+
+    @Path("/{taskID}/graph")
+    @Operation(summary = "Streams the task and its transitive dependencies and/or dependants as newline delimited JSON.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = SUCCESS_CODE, description = SUCCESS_DESCRIPTION,
+                    content = @Content(mediaType = NDJSON, schema = @Schema(implementation = TaskDTO.class))),
+            @APIResponse(responseCode = INVALID_CODE, description = INVALID_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @APIResponse(responseCode = NOT_FOUND_CODE, description = NOT_FOUND_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @APIResponse(responseCode = SERVER_ERROR_CODE, description = SERVER_ERROR_DESCRIPTION,
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GET
+    @Produces(NDJSON + ";qs=0.5")
+    StreamingOutput streamGraph(@Parameter(description = TASK_ID) @PathParam("taskID") @NotBlank String taskID,
+                                @Valid @BeanParam GraphParameters graphParameters);
 }
@@ -0,0 +1,29 @@
+package org.jboss.pnc.rex.rest.parameters;
+
+import lombok.Data;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.jboss.pnc.rex.common.enums.GraphDirection;
+
+import javax.validation.constraints.Min;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.QueryParam;
+
+@Data
+public class GraphParameters {
+
+    @Parameter(description = "Which edges should be followed?")
+    @QueryParam("direction")
+    @DefaultValue("BOTH")
+    private GraphDirection direction;
+
+    @Parameter(description = "Maximum distance of returned tasks from the task. Unlimited if -1.")
+    @QueryParam("depth")
+    @DefaultValue("-1")
+    @Min(-1)
+    private Integer depth;
+
+    @Parameter(description = "Should return only names, states and edges of the tasks (adjacency list)?")
+    @QueryParam("compact")
+    @DefaultValue("false")
+    private Boolean compact;
+}
@@ -2,26 +2,56 @@ package org.jboss.pnc.rex.rest.parameters;
 
 import lombok.Data;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.jboss.pnc.rex.common.enums.State;
+import org.jboss.pnc.rex.common.enums.StopFlag;
 
-import javax.ws.rs.DefaultValue;
+import javax.validation.constraints.Min;
 import javax.ws.rs.QueryParam;
+import java.util.HashSet;
+import java.util.Set;
 
 @Data
 public class TaskFilterParameters {
 
+    // flags that are not set do not filter; flags that are all set to false match no task
+
     @Parameter(description = "Should include running tasks?")
     @QueryParam("running")
-    @DefaultValue("false")
     private Boolean running;
 
     @Parameter(description = "Should include waiting tasks?")
     @QueryParam("waiting")
-    @DefaultValue("false")
     private Boolean waiting;
 
     @Parameter(description = "Should include finished tasks?")
     @QueryParam("finished")
-    @DefaultValue("false")
     private Boolean finished;
 
+    @Parameter(description = "Should include tasks in these states? Can be repeated and combined with the flags above.")
+    @QueryParam("state")
+    private Set<State> states = new HashSet<>();
+
+    @Parameter(description = "Include only tasks with one of these stop flags. Can be repeated.")
+    @QueryParam("stopFlag")
+    private Set<StopFlag> stopFlags = new HashSet<>();
+
+    @Parameter(description = "Include only tasks with a name starting with the prefix.")
+    @QueryParam("prefix")
+    private String prefix;
+
+    @Parameter(description = "Maximum number of returned tasks. Tasks are ordered by name. Capped by the configured " +
+            "page size; use the cursor to get the next page. All tasks are returned if neither limit nor cursor is set.")
+    @QueryParam("limit")
+    @Min(1)
+    private Integer limit;
+
+    @Parameter(description = "Return only tasks with a name greater than the cursor. The name of the last task of a " +
+            "page is the cursor of the next page.")
+    @QueryParam("cursor")
+    private String cursor;
+
+    @Parameter(description = "Comma separated list of returned fields (f.e. 'name,state,dependants'). All fields are " +
+            "returned if not set.")
+    @QueryParam("fields")
+    private String fields;
 }
@@ -0,0 +1,27 @@
+package org.jboss.pnc.rex.rest.providers;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+import org.jboss.pnc.rex.common.exceptions.NodeShuttingDownException;
+import org.jboss.pnc.rex.dto.responses.ErrorResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Provider
+public class NodeShuttingDownExceptionMapper implements ExceptionMapper<NodeShuttingDownException> {
+    @Override
+    public Response toResponse(NodeShuttingDownException e) {
+        Response.Status status = Response.Status.SERVICE_UNAVAILABLE;
+        log.info("Request rejected by a draining node: " + e);
+        // the load balancer sends the retry to another node
+        return Response.status(status)
+                .header("Retry-After", 1)
+                .entity(new ErrorResponse(e))
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+}
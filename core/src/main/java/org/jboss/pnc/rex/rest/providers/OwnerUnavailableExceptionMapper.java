@@ -0,0 +1,27 @@
+package org.jboss.pnc.rex.rest.providers;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+import org.jboss.pnc.rex.common.exceptions.OwnerUnavailableException;
+import org.jboss.pnc.rex.dto.responses.ErrorResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Provider
+public class OwnerUnavailableExceptionMapper implements ExceptionMapper<OwnerUnavailableException> {
+    @Override
+    public Response toResponse(OwnerUnavailableException e) {
+        Response.Status status = Response.Status.SERVICE_UNAVAILABLE;
+        log.warn("Request could not be forwarded to the owner: " + e);
+        // the remote entity repeats the callback, by then the owner responds or another node took its Tasks over
+        return Response.status(status)
+                .header("Retry-After", 1)
+                .entity(new ErrorResponse(e))
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package org.jboss.pnc.rex.core;
+
+import org.jboss.pnc.rex.common.enums.Method;
+import org.jboss.pnc.rex.common.enums.State;
+import org.jboss.pnc.rex.common.util.SerializationUtils;
+import org.jboss.pnc.rex.model.Request;
+import org.jboss.pnc.rex.model.ServerResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.InvalidClassException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jboss.pnc.rex.common.util.SerializationUtils.convertToByteArray;
+
+public class AttachmentCodecTest {
+
+    @Test
+    void testAttachmentIsEncodedAsJson() {
+        Request request = new Request("http://localhost", Method.POST, List.of(), null, false);
+        Request withAttachment = request.toBuilder().attachment(Map.of("id", 100)).build();
+
+        byte[] encoded = withAttachment.getByteAttachment();
+
+        assertThat(new String(encoded, StandardCharsets.UTF_8)).isEqualTo("{\"id\":100}");
+        // encoded only once
+        assertThat(withAttachment.getByteAttachment()).isSameAs(encoded);
+
+        Request decoded = new Request("http://localhost", Method.POST, List.of(), encoded, false);
+        assertThat(decoded.getAttachment()).isEqualTo(Map.of("id", 100));
+        assertThat(decoded.getByteAttachment()).isSameAs(encoded);
+    }
+
+    @Test
+    void testJavaSerializedBodyIsMigrated() throws Exception {
+        HashMap<String, Object> body = new HashMap<>();
+        body.put("status", "done");
+        byte[] legacy = convertToByteArray(body);
+
+        SerializationUtils.setLegacyDecoding(true);
+        try {
+            ServerResponse response = new ServerResponse(State.UP, true, legacy);
+
+            assertThat(response.getBody()).isEqualTo(body);
+            assertThat(new String(response.getByteBody(), StandardCharsets.UTF_8)).isEqualTo("{\"status\":\"done\"}");
+        } finally {
+            SerializationUtils.setLegacyDecoding(false);
+        }
+    }
+
+    @Test
+    void testJavaSerializedBodyIsKeptWithoutMigration() throws Exception {
+        HashMap<String, Object> body = new HashMap<>();
+        body.put("status", "done");
+        byte[] legacy = convertToByteArray(body);
+
+        ServerResponse response = new ServerResponse(State.UP, true, legacy);
+
+        assertThat(response.getBody()).isNull();
+        // the entry is not lost on the next write
+        assertThat(response.getByteBody()).isSameAs(legacy);
+    }
+
+    @Test
+    void testOnlyJdkValuesAreDeserialized() throws Exception {
+        HashMap<String, Object> body = new HashMap<>();
+        body.put("values", List.of(1, 2L, "three"));
+        assertThat(SerializationUtils.convertToObject(convertToByteArray(body))).isEqualTo(body);
+
+        body.put("file", new File("/tmp"));
+        byte[] rejected = convertToByteArray(body);
+        assertThatThrownBy(() -> SerializationUtils.convertToObject(rejected)).isInstanceOf(InvalidClassException.class);
+    }
+
+    @Test
+    void testNullAttachmentIsNotEncoded() {
+        Request request = new Request("http://localhost", Method.POST, List.of(), null, false);
+
+        assertThat(request.getAttachment()).isNull();
+        assertThat(request.getByteAttachment()).isNull();
+    }
+}
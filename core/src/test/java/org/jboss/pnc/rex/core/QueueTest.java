@@ -1,12 +1,22 @@
 package org.jboss.pnc.rex.core;
 
+import io.quarkus.infinispan.client.Remote;
 import io.quarkus.test.junit.QuarkusTest;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.jboss.pnc.rex.common.enums.JobType;
 import org.jboss.pnc.rex.common.enums.State;
+import org.jboss.pnc.rex.core.api.TaskQueue;
+import org.jboss.pnc.rex.core.counter.ConcurrencyLimiter;
 import org.jboss.pnc.rex.core.counter.Counter;
-import org.jboss.pnc.rex.core.counter.Running;
+import org.jboss.pnc.rex.core.counter.GroupLimiters;
+import org.jboss.pnc.rex.core.counter.MaxConcurrent;
+import org.jboss.pnc.rex.core.counter.QueueDepths;
 import org.jboss.pnc.rex.core.endpoints.HttpEndpoint;
 import org.jboss.pnc.rex.dto.TaskDTO;
 import org.jboss.pnc.rex.dto.requests.CreateGraphRequest;
+import org.jboss.pnc.rex.dto.responses.ConcurrencyStatisticsResponse;
+import org.jboss.pnc.rex.model.OutboxEntry;
+import org.jboss.pnc.rex.model.QueueEntry;
 import org.jboss.pnc.rex.rest.api.InternalEndpoint;
 import org.jboss.pnc.rex.rest.api.TaskEndpoint;
 import org.jboss.pnc.rex.rest.parameters.TaskFilterParameters;
@@ -17,27 +27,61 @@ import javax.inject.Inject;
 
 import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.jboss.pnc.rex.common.enums.State.ENQUEUED;
+import static org.jboss.pnc.rex.common.enums.State.UP;
+import static org.jboss.pnc.rex.core.common.Assertions.waitSynchronouslyFor;
 import static org.jboss.pnc.rex.core.common.Assertions.waitTillTasksAre;
 import static org.jboss.pnc.rex.core.common.RandomDAGGeneration.generateDAG;
 import static org.jboss.pnc.rex.core.common.TestData.getAllParameters;
 import static org.jboss.pnc.rex.core.common.TestData.getComplexGraph;
 import static org.jboss.pnc.rex.core.common.TestData.getSingleWithoutStart;
+import static org.jboss.pnc.rex.model.Task.DEFAULT_GROUP;
 
 @QuarkusTest
 public class QueueTest {
 
     public static final String EXISTING_KEY = "omg.wtf.whatt";
 
+    @Inject
+    QueueDepths depths;
+
     @Inject
     TaskContainerImpl container;
 
     @Inject
-    @Running
-    Counter running;
+    @Remote("enqueued")
+    RemoteCache<String, QueueEntry> queue;
+
+    @Inject
+    @Remote("outbox")
+    RemoteCache<String, OutboxEntry> outbox;
+
+    @Inject
+    @Remote("membership")
+    RemoteCache<String, String> membership;
+
+    @Inject
+    @MaxConcurrent
+    Counter max;
+
+    @Inject
+    TaskQueue taskQueue;
+
+    @Inject
+    TaskQueueImpl taskQueueImpl;
+
+    @Inject
+    GroupLimiters groupLimiters;
+
+    @Inject
+    ConcurrencyLimiter limiter;
+
+    @Inject
+    CounterReconciler reconciler;
 
     @Inject
     TaskEndpoint taskEndpoint;
@@ -50,8 +94,13 @@ public class QueueTest {
 
     @BeforeEach
     void before() {
-        running.initialize(0L);
+        limiter.reset(0);
+        groupLimiters.resetAll();
         container.getCache().clear();
+        queue.clear();
+        depths.resetAll();
+        outbox.clear();
+        membership.remove(QueueLeaderElection.LEASE_KEY);
     }
 
     @Test
@@ -83,8 +132,9 @@ public class QueueTest {
         CreateGraphRequest graph = getComplexGraph(true);
         taskEndpoint.start(graph);
 
-        //wait a 1/10 sec
-        Thread.sleep(100);
+        // Tasks without dependencies reach the queue, but none of them can start
+        waitSynchronouslyFor(() -> taskEndpoint.getAll(getAllParameters()).stream()
+                .anyMatch(task -> task.getState() == ENQUEUED), 5, TimeUnit.SECONDS);
         Set<TaskDTO> all = taskEndpoint.getAll(getAllParameters());
         assertThat(all)
                 .extracting("state", State.class)
@@ -128,4 +178,244 @@ public class QueueTest {
         Collection<Long> queueRecords = httpEndpoint.stopRecording();
         assertThat(queueRecords).allMatch(record -> record <=1);
     }
+
+    @Test
+    void testRunningQueueWithBurstCompletion() throws Exception {
+        internalEndpoint.setConcurrent(3L);
+        ConcurrencyStatisticsResponse before = internalEndpoint.getConcurrencyStatistics();
+
+        int seed = 2000;
+        httpEndpoint.startRecordingQueue();
+
+        // wide graph with many Tasks finishing at once
+        CreateGraphRequest graph = generateDAG(seed, 10, 20, 2, 3, 0.3F);
+        taskEndpoint.start(graph);
+
+        waitTillTasksAre(State.SUCCESSFUL, container, 20, graph.getVertices().keySet().toArray(new String[0]));
+
+        Collection<Long> queueRecords = httpEndpoint.stopRecording();
+        assertThat(queueRecords).allMatch(record -> record <= 3);
+
+        // permits are released by transitions that are still committing
+        waitSynchronouslyFor(() -> internalEndpoint.getConcurrencyStatistics().getRunning() == 0L, 5, TimeUnit.SECONDS);
+        ConcurrencyStatisticsResponse after = internalEndpoint.getConcurrencyStatistics();
+        assertThat(after.getMaximum()).isEqualTo(3L);
+        assertThat(after.getRunning()).isEqualTo(0L);
+        // permits of rolled back dequeues are released as well
+        assertThat(after.getGrantedPermits() - before.getGrantedPermits())
+                .isEqualTo(after.getReleasedPermits() - before.getReleasedPermits())
+                .isGreaterThanOrEqualTo(graph.getVertices().size());
+    }
+
+    @Test
+    void testLostPermitsAreReconciled() {
+        // permits of Tasks that are not running, f.e. left by a node that died before its transaction committed
+        limiter.reset(2);
+        groupLimiters.get(DEFAULT_GROUP).reset(2);
+
+        // the first check only observes the difference
+        assertThat(reconciler.reconcile()).isEqualTo(0);
+        assertThat(limiter.getAcquired()).isEqualTo(2L);
+
+        assertThat(reconciler.reconcile()).isEqualTo(2);
+        assertThat(limiter.getAcquired()).isEqualTo(0L);
+        assertThat(groupLimiters.get(DEFAULT_GROUP).getAcquired()).isEqualTo(0L);
+    }
+
+    @Test
+    void testQueueDepthsFollowTheQueue() {
+        internalEndpoint.setConcurrent(0L);
+        taskEndpoint.start(getSingleWithoutStart("first"));
+        taskEndpoint.start(getSingleWithoutStart("second"));
+        assertThat(taskQueue.getGroups()).containsEntry(DEFAULT_GROUP, 2L);
+
+        internalEndpoint.setConcurrent(1L);
+        waitTillTasksAre(State.UP, container, container.getTask("first"));
+        assertThat(taskQueue.getGroups()).containsEntry(DEFAULT_GROUP, 1L);
+
+        // depth left off by a node that died before updating it
+        assertThat(depths.compareAndSet(DEFAULT_GROUP, 1L, 5L)).isTrue();
+        assertThat(reconciler.reconcile()).isEqualTo(0);
+        assertThat(reconciler.reconcile()).isEqualTo(1);
+        assertThat(taskQueue.getGroups()).isEqualTo(taskQueue.countGroups());
+    }
+
+    @Test
+    void testSequenceIsSeededFromTheQueue() {
+        internalEndpoint.setConcurrent(0L);
+        // entry stored before the sequence counter was lost
+        long stored = Long.MAX_VALUE / 2;
+        queue.put("stored", QueueEntry.builder()
+                .name("stored")
+                .sequence(stored)
+                .priority(0)
+                .group(DEFAULT_GROUP)
+                .build());
+
+        taskQueueImpl.seedSequence();
+        taskEndpoint.start(getSingleWithoutStart("new"));
+
+        assertThat(queue.get("new").getSequence()).isGreaterThan(stored);
+        assertThat(taskQueue.peek(10)).containsExactly("stored", "new");
+        queue.remove("stored");
+    }
+
+    @Test
+    void testQueueIsFifo() {
+        internalEndpoint.setConcurrent(0L);
+        taskEndpoint.start(getSingleWithoutStart("first"));
+        taskEndpoint.start(getSingleWithoutStart("second"));
+        taskEndpoint.start(getSingleWithoutStart("third"));
+
+        assertThat(taskQueue.peek(10)).containsExactly("first", "second", "third");
+
+        internalEndpoint.setConcurrent(1L);
+        waitTillTasksAre(State.UP, container, container.getTask("first"));
+
+        assertThat(taskQueue.peek(10)).containsExactly("second", "third");
+        assertThat(container.getTask("second").getState()).isEqualTo(ENQUEUED);
+    }
+
+    @Test
+    void testPriorityWithinGroup() {
+        internalEndpoint.setConcurrent(0L);
+        taskEndpoint.start(getSingleWithoutStart("low", DEFAULT_GROUP, 0));
+        taskEndpoint.start(getSingleWithoutStart("high", DEFAULT_GROUP, 10));
+        taskEndpoint.start(getSingleWithoutStart("low2", DEFAULT_GROUP, 0));
+
+        assertThat(taskQueue.peek(DEFAULT_GROUP, 10))
+                .extracting(QueueEntry::getName)
+                .containsExactly("high", "low", "low2");
+
+        internalEndpoint.setConcurrent(1L);
+        waitTillTasksAre(State.UP, container, container.getTask("high"));
+
+        assertThat(container.getTask("low").getState()).isEqualTo(ENQUEUED);
+        assertThat(container.getTask("low2").getState()).isEqualTo(ENQUEUED);
+    }
+
+    @Test
+    void testFairSharingBetweenGroups() {
+        internalEndpoint.setConcurrent(0L);
+        for (int i = 0; i < 4; i++) {
+            taskEndpoint.start(getSingleWithoutStart("bulk-" + i, "bulk", 0));
+        }
+        taskEndpoint.start(getSingleWithoutStart("interactive", "interactive", 0));
+
+        assertThat(taskQueue.getGroups()).containsEntry("bulk", 4L).containsEntry("interactive", 1L);
+
+        // the newest Task gets the second slot although 4 older Tasks wait in the other group
+        internalEndpoint.setConcurrent(2L);
+        waitTillTasksAre(State.UP, container, container.getTask("bulk-0"), container.getTask("interactive"));
+
+        assertThat(container.getTask("bulk-1").getState()).isEqualTo(ENQUEUED);
+        assertThat(groupLimiters.get("bulk").getAcquired()).isEqualTo(1L);
+        assertThat(groupLimiters.get("interactive").getAcquired()).isEqualTo(1L);
+    }
+
+    @Test
+    void testWeightedSharingBetweenGroups() {
+        internalEndpoint.setConcurrent(0L);
+        internalEndpoint.setGroupWeight("heavy", 2L);
+        for (int i = 0; i < 3; i++) {
+            taskEndpoint.start(getSingleWithoutStart("light-" + i, "light", 0));
+            taskEndpoint.start(getSingleWithoutStart("heavy-" + i, "heavy", 0));
+        }
+
+        internalEndpoint.setConcurrent(3L);
+        waitTillTasksAre(State.UP,
+                container,
+                container.getTask("light-0"),
+                container.getTask("heavy-0"),
+                container.getTask("heavy-1"));
+
+        assertThat(container.getTask("light-1").getState()).isEqualTo(ENQUEUED);
+        assertThat(container.getTask("heavy-2").getState()).isEqualTo(ENQUEUED);
+        assertThat(internalEndpoint.getGroupWeight("heavy").getNumber()).isEqualTo(2L);
+        assertThat(internalEndpoint.getGroupWeight("light").getNumber()).isEqualTo(1L);
+    }
+
+    @Test
+    void testGroupConcurrencyLimit() {
+        internalEndpoint.setConcurrent(5L);
+        internalEndpoint.setGroupConcurrent("limited", 1L);
+        taskEndpoint.start(getSingleWithoutStart("limited-0", "limited", 0));
+        taskEndpoint.start(getSingleWithoutStart("limited-1", "limited", 0));
+        taskEndpoint.start(getSingleWithoutStart("limited-2", "limited", 0));
+        taskEndpoint.start(getSingleWithoutStart("unlimited", DEFAULT_GROUP, 0));
+
+        waitTillTasksAre(State.UP, container, container.getTask("limited-0"), container.getTask("unlimited"));
+        assertThat(container.getTask("limited-1").getState()).isEqualTo(ENQUEUED);
+        assertThat(container.getTask("limited-2").getState()).isEqualTo(ENQUEUED);
+
+        // raising the limit pokes the queue
+        internalEndpoint.setGroupConcurrent("limited", 2L);
+        waitTillTasksAre(State.UP, container, container.getTask("limited-1"));
+        assertThat(container.getTask("limited-2").getState()).isEqualTo(ENQUEUED);
+
+        // removing the limit leaves only the global maximum
+        internalEndpoint.setGroupConcurrent("limited", null);
+        assertThat(internalEndpoint.getGroupConcurrent("limited").getNumber()).isNull();
+        waitTillTasksAre(State.UP, container, container.getTask("limited-2"));
+    }
+
+    @Test
+    void testStaleOutboxEntryIsReplayed() {
+        internalEndpoint.setConcurrent(0L);
+        taskEndpoint.start(getSingleWithoutStart(EXISTING_KEY));
+        waitTillTasksAre(ENQUEUED, container, EXISTING_KEY);
+
+        // raise the limit without poking the queue, as if the node died before running the PokeQueueJob
+        max.initialize(1L);
+        outbox.put("stale-poke", OutboxEntry.builder()
+                .id("stale-poke")
+                .type(JobType.POKE_QUEUE)
+                .owner("dead-node")
+                .claimedAt(0)
+                .build());
+
+        waitTillTasksAre(UP, container, EXISTING_KEY);
+        assertThat(outbox.containsKey("stale-poke")).isFalse();
+    }
+
+    @Test
+    void testLeaseIsTakenOverAfterExpiryAndResignation() {
+        QueueLeaderElection first = election("first");
+        QueueLeaderElection second = election("second");
+
+        first.renew();
+        second.renew();
+        assertThat(first.isLeader()).isTrue();
+        assertThat(second.isLeader()).isFalse();
+        assertThat(second.getLeaderUrl()).contains("http://first");
+
+        // the leader stops renewing (f.e. it died), the lease expires and is taken over
+        waitSynchronouslyFor(() -> {
+            second.renew();
+            return second.isLeader();
+        }, 5, TimeUnit.SECONDS);
+        first.renew();
+        assertThat(first.isLeader()).isFalse();
+        assertThat(first.getLeaderUrl()).contains("http://second");
+
+        // the leader resigns, the lease is taken over without waiting for the expiry
+        second.resign();
+        assertThat(second.isLeader()).isFalse();
+        first.renew();
+        assertThat(first.isLeader()).isTrue();
+
+        // a resigned node does not run for the lease again
+        first.resign();
+        second.renew();
+        assertThat(second.isLeader()).isFalse();
+    }
+
+    private QueueLeaderElection election(String name) {
+        QueueLeaderElection election = new QueueLeaderElection(name);
+        election.leases = membership;
+        election.enabled = true;
+        election.lease = 1000;
+        election.baseUrl = "http://" + name;
+        return election;
+    }
 }
@@ -1,39 +1,77 @@
 package org.jboss.pnc.rex.core;
 
+import static io.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.jboss.pnc.rex.core.common.Assertions.assertCorrectTaskRelations;
+import static org.jboss.pnc.rex.core.common.Assertions.waitSynchronouslyFor;
 import static org.jboss.pnc.rex.core.common.Assertions.waitTillTasksAre;
 import static org.jboss.pnc.rex.core.common.TestData.getComplexGraph;
 import static org.jboss.pnc.rex.core.common.TestData.getEndpointWithStart;
+import static org.jboss.pnc.rex.core.common.TestData.getMockTask;
 import static org.jboss.pnc.rex.core.common.TestData.getMockTaskWithStart;
 import static org.jboss.pnc.rex.core.common.RandomDAGGeneration.generateDAG;
 import static org.jboss.pnc.rex.core.common.TestData.getMockTaskWithoutStart;
 import static org.jboss.pnc.rex.core.common.TestData.getRequestWithoutStart;
 import static org.jboss.pnc.rex.core.common.TestData.getSingleWithoutStart;
+import static org.jboss.pnc.rex.core.common.TestData.getSlowRequestWithoutStart;
 import static org.jboss.pnc.rex.core.common.TestData.getStopRequest;
 
 import javax.inject.Inject;
 import javax.transaction.RollbackException;
 import javax.transaction.TransactionManager;
 
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.infinispan.client.Remote;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.restassured.http.ContentType;
+import org.eclipse.microprofile.health.HealthCheckResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.infinispan.client.hotrod.MetadataValue;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.jboss.pnc.rex.common.enums.GraphDirection;
+import org.jboss.pnc.rex.common.enums.JobType;
+import org.jboss.pnc.rex.common.enums.Method;
 import org.jboss.pnc.rex.common.enums.Mode;
 import org.jboss.pnc.rex.common.enums.State;
+import org.jboss.pnc.rex.common.enums.StopFlag;
 import org.jboss.pnc.rex.common.exceptions.BadRequestException;
 import org.jboss.pnc.rex.common.exceptions.CircularDependencyException;
 import org.jboss.pnc.rex.common.exceptions.TaskConflictException;
+import org.jboss.pnc.rex.core.api.Outbox;
 import org.jboss.pnc.rex.core.api.TaskController;
+import org.jboss.pnc.rex.core.counter.ConcurrencyLimiter;
 import org.jboss.pnc.rex.core.counter.Counter;
 import org.jboss.pnc.rex.core.counter.MaxConcurrent;
-import org.jboss.pnc.rex.core.counter.Running;
+import org.jboss.pnc.rex.core.counter.QueueDepths;
+import org.jboss.pnc.rex.core.health.DrainReadinessCheck;
 import org.jboss.pnc.rex.dto.CreateTaskDTO;
 import org.jboss.pnc.rex.dto.EdgeDTO;
+import org.jboss.pnc.rex.dto.HttpRequest;
+import org.jboss.pnc.rex.dto.TaskDTO;
 import org.jboss.pnc.rex.dto.requests.CreateGraphRequest;
+import org.jboss.pnc.rex.dto.responses.CircuitBreakerResponse;
+import org.jboss.pnc.rex.model.OutboxEntry;
+import org.jboss.pnc.rex.model.QueueEntry;
 import org.jboss.pnc.rex.model.Request;
 import org.jboss.pnc.rex.model.Task;
+import org.jboss.pnc.rex.model.TaskDefinition;
+import org.jboss.pnc.rex.rest.api.InternalEndpoint;
 import org.jboss.pnc.rex.rest.api.TaskEndpoint;
+import org.jboss.pnc.rex.rest.parameters.GraphParameters;
+import org.jboss.pnc.rex.rest.parameters.TaskFilterParameters;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.RepeatedTest;
@@ -47,18 +85,53 @@ class TaskContainerImplTest {
 
     public static final String EXISTING_KEY = "omg.wtf.whatt";
 
+    @Inject
+    QueueDepths depths;
+
     @Inject
     TaskContainerImpl container;
 
+    @Inject
+    @Remote("enqueued")
+    RemoteCache<String, QueueEntry> queue;
+
     @Inject
     TaskController controller;
 
+    @Inject
+    RetentionSweeper retention;
+
+    @Inject
+    QueueDispatcher dispatcher;
+
+    @Inject
+    TaskOwnership ownership;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Outbox outbox;
+
+    @Inject
+    @Remote("outbox")
+    RemoteCache<String, OutboxEntry> outboxCache;
+
+    @Inject
+    DrainReadinessCheck readiness;
+
     @Inject
     TaskEndpoint taskEndpoint;
 
+    @TestHTTPEndpoint(TaskEndpoint.class)
+    @TestHTTPResource
+    URI taskEndpointURI;
+
     @Inject
-    @Running
-    Counter running;
+    InternalEndpoint internalEndpoint;
+
+    @Inject
+    ConcurrencyLimiter running;
 
     @Inject
     @MaxConcurrent
@@ -68,8 +141,10 @@ class TaskContainerImplTest {
     public void before() throws Exception {
         log.info("Clearing cache and initializing counters");
         max.initialize(1000L);
-        running.initialize(0L);
+        running.reset(0);
         container.getCache().clear();
+        queue.clear();
+        depths.resetAll();
         taskEndpoint.start(CreateGraphRequest.builder()
                 .vertex(EXISTING_KEY, CreateTaskDTO.builder()
                         .name(EXISTING_KEY)
@@ -96,13 +171,13 @@ class TaskContainerImplTest {
         Task old = container.getTask(EXISTING_KEY);
         Request start = old.getRemoteStart().toBuilder().attachment("another useless string").build();
         container.getCache().put(old.getName(), old.toBuilder().remoteStart(start).build());
-        running.replaceValue(0L, 10L);
+        max.replaceValue(1000L, 10L);
         tm.setRollbackOnly();
         assertThatThrownBy(tm::commit)
                 .isInstanceOf(RollbackException.class);
 
         assertThat(container.getTask(EXISTING_KEY).getRemoteStart().getAttachment()).isEqualTo("{id: 100}");
-        assertThat(running.getValue()).isEqualTo(0);
+        assertThat(max.getValue()).isEqualTo(1000);
     }
 
     @Test
@@ -150,6 +225,432 @@ class TaskContainerImplTest {
         assertThat(task.getState()).isEqualTo(State.UP);
     }
 
+    @Test
+    public void testTaskEntryDoesNotCarryPayload() throws Exception {
+        TransactionManager manager = container.getTransactionManager();
+        manager.begin();
+        controller.setMode(EXISTING_KEY, Mode.ACTIVE, true);
+        manager.commit();
+        waitTillTasksAre(State.UP, container, EXISTING_KEY);
+
+        // definitions and responses are stored outside the Task entry
+        Task entry = container.getCache().get(EXISTING_KEY);
+        assertThat(entry.getRemoteStart()).isNull();
+        assertThat(entry.getServerResponses()).isEmpty();
+        assertThat(entry.getResponseCount()).isEqualTo(1);
+
+        Task task = container.getTask(EXISTING_KEY);
+        assertThat(task.getRemoteStart().getAttachment()).isEqualTo("{id: 100}");
+        assertThat(task.getServerResponses()).hasSize(1);
+        assertThat(task.getServerResponses().get(0).getState()).isEqualTo(State.STARTING);
+    }
+
+    @Test
+    public void testTraceContextIsStored() throws Exception {
+        // root span of the Task is stored as a W3C traceparent
+        String traceParent = container.getTask(EXISTING_KEY).getTraceParent();
+        assertThat(traceParent).matches("00-[0-9a-f]{32}-[0-9a-f]{16}-[0-9a-f]{2}");
+
+        TransactionManager manager = container.getTransactionManager();
+        manager.begin();
+        controller.setMode(EXISTING_KEY, Mode.ACTIVE, true);
+        manager.commit();
+        waitTillTasksAre(State.UP, container, EXISTING_KEY);
+
+        Task task = container.getTask(EXISTING_KEY);
+        assertThat(task.getTraceParent()).isEqualTo(traceParent);
+        assertThat(task.getEnqueuedAt()).isNull();
+    }
+
+    @Test
+    public void testRetentionRemovesFinishedTasks() throws Exception {
+        String dependant = "dependant.service";
+        String dependency = "dependency.service";
+        taskEndpoint.start(CreateGraphRequest.builder()
+                .edge(new EdgeDTO(dependant, dependency))
+                .vertex(dependant, getMockTaskWithStart(dependant, Mode.IDLE))
+                .vertex(dependency, getMockTaskWithStart(dependency, Mode.ACTIVE))
+                .build());
+        waitTillTasksAre(State.SUCCESSFUL, container, dependency);
+        assertThat(container.getTask(dependency).getFinishedAt()).isNotNull();
+
+        // only finished Tasks can be removed
+        TransactionManager manager = container.getTransactionManager();
+        manager.begin();
+        assertThatThrownBy(() -> container.removeTask(dependant)).isInstanceOf(BadRequestException.class);
+        manager.rollback();
+
+        int removed = retention.removeFinishedBefore(System.currentTimeMillis() + 1);
+
+        assertThat(removed).isEqualTo(1);
+        assertThat(container.getTask(dependency)).isNull();
+        assertThat(container.getDefinitions().get(dependency)).isNull();
+        Task survivor = container.getTask(dependant);
+        assertThat(survivor.getDependencies()).isEmpty();
+        assertThat(survivor.getState()).isEqualTo(State.NEW);
+    }
+
+    @Test
+    public void testRetentionRemovesAllBatches() {
+        CreateGraphRequest.CreateGraphRequestBuilder graph = CreateGraphRequest.builder();
+        for (int i = 0; i < 5; i++) {
+            graph.vertex("expired." + i, getMockTaskWithStart("expired." + i, Mode.ACTIVE));
+        }
+        CreateGraphRequest request = graph.build();
+        taskEndpoint.start(request);
+        waitTillTasksAre(State.SUCCESSFUL, container, request.getVertices().keySet().toArray(new String[0]));
+
+        // batches of 2 in tests
+        int removed = retention.removeAllFinishedBefore(System.currentTimeMillis() + 1);
+
+        assertThat(removed).isEqualTo(5);
+        for (String name : request.getVertices().keySet()) {
+            assertThat(container.getTask(name)).isNull();
+        }
+    }
+
+    @Test
+    public void testPaginatedListing() {
+        CreateGraphRequest.CreateGraphRequestBuilder graph = CreateGraphRequest.builder();
+        for (int i = 0; i < 5; i++) {
+            graph.vertex("page." + i, getMockTaskWithoutStart("page." + i, Mode.IDLE));
+        }
+        taskEndpoint.start(graph.build());
+
+        TaskFilterParameters params = new TaskFilterParameters();
+        params.setPrefix("page.");
+        params.setLimit(2);
+        params.setFields("name,state");
+
+        List<String> names = new ArrayList<>();
+        int pages = 0;
+        Set<TaskDTO> page;
+        do {
+            page = taskEndpoint.getAll(params);
+            for (TaskDTO task : page) {
+                assertThat(task.getState()).isEqualTo(State.NEW);
+                assertThat(task.getRemoteStart()).isNull();
+                assertThat(task.getDependants()).isNull();
+                names.add(task.getName());
+                params.setCursor(task.getName());
+            }
+            pages++;
+        } while (page.size() == params.getLimit());
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(names).containsExactly("page.0", "page.1", "page.2", "page.3", "page.4");
+    }
+
+    @Test
+    public void testListingFlags() {
+        CreateGraphRequest.CreateGraphRequestBuilder graph = CreateGraphRequest.builder();
+        for (int i = 0; i < 3; i++) {
+            graph.vertex("flags." + i, getMockTaskWithoutStart("flags." + i, Mode.IDLE));
+        }
+        taskEndpoint.start(graph.build());
+
+        // no flags, no limit and no cursor list every Task
+        TaskFilterParameters params = new TaskFilterParameters();
+        params.setPrefix("flags.");
+        assertThat(taskEndpoint.getAll(params)).hasSize(3);
+
+        // flags set to false select nothing
+        params.setWaiting(false);
+        params.setRunning(false);
+        params.setFinished(false);
+        assertThat(taskEndpoint.getAll(params)).isEmpty();
+
+        params.setWaiting(true);
+        assertThat(taskEndpoint.getAll(params)).hasSize(3);
+    }
+
+    @Test
+    public void testStreamedListing() {
+        CreateGraphRequest.CreateGraphRequestBuilder graph = CreateGraphRequest.builder();
+        for (int i = 0; i < 5; i++) {
+            graph.vertex("stream." + i, getMockTaskWithoutStart("stream." + i, Mode.IDLE));
+        }
+        taskEndpoint.start(graph.build());
+
+        String body = given()
+                .accept(TaskEndpoint.NDJSON)
+                .queryParam("prefix", "stream.")
+                .when()
+                .get(taskEndpointURI.getPath())
+                .then()
+                .statusCode(200)
+                .contentType(TaskEndpoint.NDJSON)
+                .extract().asString();
+        assertThat(body.lines()).hasSize(5).allMatch(line -> line.contains("\"state\":\"NEW\""));
+
+        // JSON stays the default representation
+        given()
+                .queryParam("prefix", "stream.")
+                .when()
+                .get(taskEndpointURI.getPath())
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON);
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        TransactionManager manager = container.getTransactionManager();
+        manager.begin();
+        controller.setMode(EXISTING_KEY, Mode.ACTIVE, true);
+        manager.commit();
+        waitTillTasksAre(State.UP, container, EXISTING_KEY);
+
+        String metrics = given()
+                .when()
+                .get("/q/metrics")
+                .then()
+                .statusCode(200)
+                .extract().asString();
+        assertThat(metrics)
+                .contains("rex_transitions_total{transition=\"NEW_to_ENQUEUED\",}")
+                .contains("rex_install_seconds_count")
+                .contains("rex_queue_poke_seconds_count")
+                .contains("rex_concurrency_running")
+                .contains("rex_tasks{state=\"UP\",}");
+    }
+
+    @Test
+    public void testRolledBackTransitionsAreNotCounted() throws Exception {
+        io.micrometer.core.instrument.Counter enqueued = registry.counter("rex.transitions",
+                "transition", "NEW_to_ENQUEUED");
+        double before = enqueued.count();
+
+        TransactionManager manager = container.getTransactionManager();
+        manager.begin();
+        controller.setMode(EXISTING_KEY, Mode.ACTIVE);
+        manager.rollback();
+        assertThat(enqueued.count()).isEqualTo(before);
+
+        manager.begin();
+        controller.setMode(EXISTING_KEY, Mode.ACTIVE);
+        manager.commit();
+        assertThat(enqueued.count()).isEqualTo(before + 1);
+    }
+
+    @Test
+    public void testPokesAreCoalesced() throws Exception {
+        long before = registry.timer("rex.queue.poke").count();
+
+        for (int i = 0; i < 500; i++) {
+            dispatcher.request();
+        }
+
+        waitSynchronouslyFor(() -> registry.timer("rex.queue.poke").count() > before, 5, TimeUnit.SECONDS);
+        // let the pokes requested during the first pass finish
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertThat(registry.timer("rex.queue.poke").count() - before).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    public void testForwardedPokeIsServed() {
+        long before = registry.timer("rex.queue.poke").count();
+
+        // election is disabled, the node serves forwarded pokes itself
+        internalEndpoint.pokeQueue();
+
+        waitSynchronouslyFor(() -> registry.timer("rex.queue.poke").count() > before, 5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testNodeOwnsAllTasksWithoutOwnership() {
+        // ownership is disabled, callbacks are addressed to this node
+        assertThat(ownership.isOwner(EXISTING_KEY)).isTrue();
+        assertThat(ownership.getOwnerUrl(EXISTING_KEY)).isEqualTo(container.getBaseUrl());
+    }
+
+    @Test
+    public void testOwnersAreStableAndSpread() {
+        NavigableMap<Long, String> ring = TaskOwnership.buildRing(Set.of("http://a", "http://b", "http://c"), 64);
+        NavigableMap<Long, String> rebuilt = TaskOwnership.buildRing(
+                new TreeSet<>(Set.of("http://c", "http://b", "http://a")), 64);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String owner = TaskOwnership.ownerOf(ring, "task." + i);
+            // every node computes the same owner regardless of the order it learned about the members
+            assertThat(TaskOwnership.ownerOf(rebuilt, "task." + i)).isEqualTo(owner);
+            owned.merge(owner, 1, Integer::sum);
+        }
+        assertThat(owned).containsOnlyKeys("http://a", "http://b", "http://c");
+        assertThat(owned.values()).allMatch(count -> count > 500);
+    }
+
+    @Test
+    public void testOnlyTasksOfChangedMemberMove() {
+        NavigableMap<Long, String> ring = TaskOwnership.buildRing(Set.of("http://a", "http://b", "http://c"), 64);
+        NavigableMap<Long, String> left = TaskOwnership.buildRing(Set.of("http://a", "http://b"), 64);
+        NavigableMap<Long, String> joined = TaskOwnership.buildRing(
+                Set.of("http://a", "http://b", "http://c", "http://d"), 64);
+
+        int moved = 0;
+        for (int i = 0; i < 3000; i++) {
+            String task = "task." + i;
+            String owner = TaskOwnership.ownerOf(ring, task);
+            if (!owner.equals("http://c")) {
+                // Tasks of the remaining members keep their owner
+                assertThat(TaskOwnership.ownerOf(left, task)).isEqualTo(owner);
+            }
+            String newOwner = TaskOwnership.ownerOf(joined, task);
+            if (!newOwner.equals(owner)) {
+                // Tasks move only to the joining member
+                assertThat(newOwner).isEqualTo("http://d");
+                moved++;
+            }
+        }
+        assertThat(moved).isPositive();
+    }
+
+    @Test
+    public void testForwardedRequestIsNotForwardedAgain() {
+        // without a client, any attempt to forward would fail
+        TaskOwnership other = new TaskOwnership(null);
+        other.enabled = true;
+        other.virtualNodes = 64;
+        other.baseUrl = "http://self";
+        other.setMembers(Set.of("http://owner"));
+        assertThat(other.isOwner(EXISTING_KEY)).isFalse();
+
+        assertThat(other.forwardIfNotOwner(EXISTING_KEY, "http://forwarder", "/rest/internal/x/finish", Map.of()))
+                .isFalse();
+    }
+
+    @Test
+    public void testNothingIsLeftToDrainAfterTasksFinish() {
+        taskEndpoint.start(CreateGraphRequest.builder()
+                .vertex("drained", getMockTaskWithStart("drained", Mode.ACTIVE))
+                .build());
+        waitTillTasksAre(State.SUCCESSFUL, container, "drained");
+
+        // all Jobs were acknowledged, a drain would not have to wait or hand anything off
+        waitSynchronouslyFor(() -> outbox.getPending() == 0, 5, TimeUnit.SECONDS);
+        assertThat(container.isShutdown()).isFalse();
+        assertThat(readiness.call().getStatus()).isEqualTo(HealthCheckResponse.Status.UP);
+    }
+
+    @Test
+    public void testDrainRejectsInstallationsAndHandsOffPendingJobs() throws Exception {
+        // a Job of this node that never completes
+        OutboxEntry entry = OutboxEntry.builder()
+                .id("never-completes")
+                .type(JobType.POKE_QUEUE)
+                .owner("other-node")
+                .claimedAt(System.currentTimeMillis())
+                .build();
+        outboxCache.put(entry.getId(), entry);
+        assertThat(outbox.claim(entry)).isPresent();
+
+        CompletableFuture<Void> draining = CompletableFuture.runAsync(container::shutdown);
+        try {
+            waitSynchronouslyFor(container::isShutdown, 5, TimeUnit.SECONDS);
+            assertThat(readiness.call().getStatus()).isEqualTo(HealthCheckResponse.Status.DOWN);
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(getSingleWithoutStart("rejected"))
+                    .when()
+                    .post(taskEndpointURI.getPath())
+                    .then()
+                    .statusCode(503)
+                    .header("Retry-After", "1");
+            assertThat(container.getTask("rejected")).isNull();
+            // the drain waits for the Job until the drain timeout
+            assertThat(draining).isNotDone();
+        } finally {
+            draining.get(10, TimeUnit.SECONDS);
+            container.resume();
+        }
+
+        // the Job is handed off to other nodes, which replay it on their next sweep
+        assertThat(outbox.getPending()).isZero();
+        OutboxEntry handedOff = outboxCache.get(entry.getId());
+        assertThat(handedOff == null || handedOff.getClaimedAt() == 0).isTrue();
+        outboxCache.remove(entry.getId());
+        assertThat(readiness.call().getStatus()).isEqualTo(HealthCheckResponse.Status.UP);
+    }
+
+    @Test
+    public void testGraphTraversal() {
+        // graph.0 <- graph.1 <- graph.2 <- graph.3
+        CreateGraphRequest.CreateGraphRequestBuilder graph = CreateGraphRequest.builder();
+        for (int i = 0; i < 4; i++) {
+            graph.vertex("graph." + i, getMockTaskWithoutStart("graph." + i, Mode.IDLE));
+            if (i > 0) {
+                graph.edge(new EdgeDTO("graph." + i, "graph." + (i - 1)));
+            }
+        }
+        taskEndpoint.start(graph.build());
+
+        GraphParameters params = new GraphParameters();
+        params.setDirection(GraphDirection.BOTH);
+        params.setDepth(-1);
+        params.setCompact(true);
+        List<TaskDTO> related = taskEndpoint.getGraph("graph.1", params);
+        assertThat(related).extracting(TaskDTO::getName).startsWith("graph.1")
+                .containsExactlyInAnyOrder("graph.0", "graph.1", "graph.2", "graph.3");
+        assertThat(related).allMatch(task -> task.getRemoteStart() == null && task.getDependants() != null);
+
+        params.setDirection(GraphDirection.DEPENDANTS);
+        params.setDepth(1);
+        assertThat(taskEndpoint.getGraph("graph.1", params))
+                .extracting(TaskDTO::getName)
+                .containsExactly("graph.1", "graph.2");
+
+        params.setDirection(GraphDirection.DEPENDENCIES);
+        params.setDepth(-1);
+        params.setCompact(false);
+        assertThat(taskEndpoint.getGraph("graph.3", params))
+                .extracting(TaskDTO::getName)
+                .containsExactly("graph.3", "graph.2", "graph.1", "graph.0");
+
+        // diamond.top -> diamond.left, diamond.right -> diamond.bottom <- diamond.sibling
+        taskEndpoint.start(CreateGraphRequest.builder()
+                .vertex("diamond.top", getMockTaskWithoutStart("diamond.top", Mode.IDLE))
+                .vertex("diamond.left", getMockTaskWithoutStart("diamond.left", Mode.IDLE))
+                .vertex("diamond.right", getMockTaskWithoutStart("diamond.right", Mode.IDLE))
+                .vertex("diamond.bottom", getMockTaskWithoutStart("diamond.bottom", Mode.IDLE))
+                .vertex("diamond.sibling", getMockTaskWithoutStart("diamond.sibling", Mode.IDLE))
+                .edge(new EdgeDTO("diamond.top", "diamond.left"))
+                .edge(new EdgeDTO("diamond.top", "diamond.right"))
+                .edge(new EdgeDTO("diamond.left", "diamond.bottom"))
+                .edge(new EdgeDTO("diamond.right", "diamond.bottom"))
+                .edge(new EdgeDTO("diamond.sibling", "diamond.bottom"))
+                .build());
+
+        params.setDirection(GraphDirection.BOTH);
+        params.setCompact(true);
+        assertThat(taskEndpoint.getGraph("diamond.left", params))
+                .extracting(TaskDTO::getName)
+                .startsWith("diamond.left")
+                .containsExactlyInAnyOrder("diamond.left", "diamond.top", "diamond.bottom");
+        assertThat(taskEndpoint.getGraph("diamond.top", params))
+                .extracting(TaskDTO::getName)
+                .startsWith("diamond.top")
+                .endsWith("diamond.bottom")
+                .containsExactlyInAnyOrder("diamond.top", "diamond.left", "diamond.right", "diamond.bottom");
+
+        String body = given()
+                .accept(TaskEndpoint.NDJSON)
+                .queryParam("direction", "DEPENDANTS")
+                .when()
+                .get(taskEndpointURI.getPath() + "/graph.0/graph")
+                .then()
+                .statusCode(200)
+                .contentType(TaskEndpoint.NDJSON)
+                .extract().asString();
+        assertThat(body.lines()).hasSize(4);
+
+        given()
+                .when()
+                .get(taskEndpointURI.getPath() + "/missing/graph")
+                .then()
+                .statusCode(404);
+    }
+
     @Test
     public void testDependantWaiting() throws Exception {
         String dependant = "dependant.service";
@@ -170,6 +671,32 @@ class TaskContainerImplTest {
                 .isEqualTo(State.WAITING);
     }
 
+    @Test
+    public void testNewTasksAreInstalledInTheirInitialState() throws Exception {
+        String dependant = "dependant.service";
+        String independent = "independent.service";
+        taskEndpoint.start(CreateGraphRequest.builder()
+                .edge(new EdgeDTO(dependant, EXISTING_KEY))
+                .vertex(dependant, CreateTaskDTO.builder()
+                        .name(dependant)
+                        .remoteStart(getRequestWithoutStart("A payload"))
+                        .remoteCancel(getStopRequest("A payload"))
+                        .controllerMode(Mode.ACTIVE)
+                        .build())
+                .vertex(independent, CreateTaskDTO.builder()
+                        .name(independent)
+                        .remoteStart(getRequestWithoutStart("A payload"))
+                        .remoteCancel(getStopRequest("A payload"))
+                        .controllerMode(Mode.ACTIVE)
+                        .build())
+                .build());
+
+        assertThat(container.getTask(dependant).getState()).isEqualTo(State.WAITING);
+        assertThat(container.getTask(EXISTING_KEY).getState()).isEqualTo(State.NEW);
+        // the queue is poked after the install
+        waitTillTasksAre(State.UP, container, independent);
+    }
+
     @Test
     public void testDependantStartsThroughDependency() throws Exception {
         String dependant = "dependant.service";
@@ -273,7 +800,7 @@ class TaskContainerImplTest {
 
         Task existingTask = container.getTask(EXISTING_KEY);
         Task updatedTask = existingTask.toBuilder().remoteStart(getEndpointWithStart(EXISTING_KEY)).build();
-        container.getCache().put(EXISTING_KEY, updatedTask);
+        container.getDefinitions().put(EXISTING_KEY, TaskDefinition.of(updatedTask));
 
         CreateGraphRequest graph = getComplexGraph(true).toBuilder()
                 .edge(new EdgeDTO(f, EXISTING_KEY))
@@ -290,7 +817,7 @@ class TaskContainerImplTest {
 
         // sleep because running counter takes time to update
         Thread.sleep(100);
-        assertThat(running.getValue()).isEqualTo(0);
+        assertThat(running.getAcquired()).isEqualTo(0);
     }
 
     @Test
@@ -347,6 +874,29 @@ class TaskContainerImplTest {
         waitTillTasksAre(State.STOPPED, container, services);
     }
 
+    @Test
+    public void testCancellationOfLongChain() throws Exception {
+        // longer than the transaction limit of the propagation, continues in chained transactions
+        int size = 300;
+        String[] services = new String[size];
+        CreateGraphRequest.CreateGraphRequestBuilder builder = CreateGraphRequest.builder();
+        for (int i = 0; i < size; i++) {
+            services[i] = "chain" + i;
+            builder.vertex(services[i], getMockTaskWithStart(services[i], Mode.IDLE));
+            if (i > 0) {
+                builder.edge(new EdgeDTO(services[i], services[i - 1]));
+            }
+        }
+        taskEndpoint.start(builder.build());
+
+        container.getCache().getTransactionManager().begin();
+        controller.setMode(services[0], Mode.CANCEL);
+        container.getCache().getTransactionManager().commit();
+
+        waitTillTasksAre(State.STOPPED, container, services);
+        assertThat(container.getTask(services[size - 1]).getStopFlag()).isEqualTo(StopFlag.CANCELLED);
+    }
+
     @Test
     public void testQuery() throws Exception {
         taskEndpoint.start(getComplexGraph(false));
@@ -368,6 +918,21 @@ class TaskContainerImplTest {
                 .isInstanceOf(CircularDependencyException.class);
     }
 
+    @Test
+    public void testCycleThroughExistingTasks() throws Exception {
+        taskEndpoint.start(getComplexGraph(false));
+
+        // a -> i creates a i->f->c->a->i cycle where f and c are not part of the request
+        CreateGraphRequest request = CreateGraphRequest.builder()
+                .edge(new EdgeDTO("a", "i"))
+                .build();
+
+        assertThatThrownBy(() -> taskEndpoint.start(request))
+                .isInstanceOf(CircularDependencyException.class)
+                .hasMessageContaining("->f->c->");
+        assertThat(container.getTask("a").getDependencies()).isEmpty();
+    }
+
     @Test
     public void shouldFailOnAddingDependencyToNonIdleTask() throws Exception {
         TransactionManager manager = container.getTransactionManager();
@@ -391,6 +956,43 @@ class TaskContainerImplTest {
                 .isInstanceOf(TaskConflictException.class);
     }
 
+    @Test
+    public void shouldFailOnTryingToScheduleExistingTaskInBatch() {
+        CreateGraphRequest.CreateGraphRequestBuilder builder = CreateGraphRequest.builder();
+        for (int i = 0; i < 10; i++) {
+            builder.vertex("new" + i, getMockTaskWithoutStart("new" + i, Mode.IDLE));
+        }
+        CreateGraphRequest request = builder
+                .vertex(EXISTING_KEY, getMockTaskWithoutStart(EXISTING_KEY, Mode.IDLE))
+                .build();
+
+        assertThatThrownBy(() -> taskEndpoint.start(request))
+                .isInstanceOf(TaskConflictException.class);
+        assertThat(container.getTask("new0")).isNull();
+    }
+
+    @Test
+    public void testInstallLargeGraph() {
+        int size = 2500;
+        CreateGraphRequest.CreateGraphRequestBuilder builder = CreateGraphRequest.builder();
+        for (int i = 0; i < size; i++) {
+            String name = "large" + i;
+            builder.vertex(name, getMockTaskWithoutStart(name, Mode.IDLE));
+            if (i > 0) {
+                builder.edge(new EdgeDTO(name, "large" + (i - 1)));
+            }
+        }
+        // existing task gains a dependency on the whole chain
+        builder.edge(new EdgeDTO(EXISTING_KEY, "large" + (size - 1)));
+
+        taskEndpoint.start(builder.build());
+
+        assertThat(container.getCache().keySet()).hasSize(size + 1);
+        assertThat(container.getTask("large0").getDependants()).containsExactly("large1");
+        assertThat(container.getTask(EXISTING_KEY).getDependencies()).containsExactly("large" + (size - 1));
+        assertThat(container.getTask(EXISTING_KEY).getUnfinishedDependencies()).isEqualTo(1);
+    }
+
     @Test
     public void shouldFailOnTryingToCreateReflexiveEdge() {
 
@@ -413,6 +1015,82 @@ class TaskContainerImplTest {
                 .isInstanceOf(BadRequestException.class);
     }
 
+    @Test
+    public void testStartDoesNotWaitForRemoteEntity() {
+        CreateGraphRequest.CreateGraphRequestBuilder builder = CreateGraphRequest.builder();
+        String[] names = new String[10];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "slow-" + i;
+            builder.vertex(names[i], getMockTask(names[i],
+                    Mode.ACTIVE,
+                    getSlowRequestWithoutStart("{id: " + i + "}"),
+                    getStopRequest("{id: " + i + "}"),
+                    null));
+        }
+
+        // each remote entity takes a second to respond, sequential calls would take at least 10 seconds
+        long start = System.currentTimeMillis();
+        taskEndpoint.start(builder.build());
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+
+        waitTillTasksAre(State.UP, container, names);
+    }
+
+    @Test
+    public void testRemoteUrlKeepsQuery() {
+        HttpRequest withQuery = HttpRequest.builder()
+                .url("http://localhost:8081/test/acceptWithToken?token=abc")
+                .method(Method.POST)
+                .attachment("{id: 100}")
+                .build();
+        taskEndpoint.start(CreateGraphRequest.builder()
+                .vertex("query", getMockTask("query", Mode.ACTIVE, withQuery, getStopRequest("{id: 100}"), null))
+                .build());
+
+        waitTillTasksAre(State.UP, container, "query");
+
+        assertThat(WebClientRegistry.destination(URI.create("https://example.com/path"))).isEqualTo("https://example.com:443");
+        assertThat(WebClientRegistry.requestUri(URI.create("http://example.com/path?a=b"))).isEqualTo("/path?a=b");
+    }
+
+    @Test
+    public void testTaskIsRequeuedWhenCircuitBreakerOpens() {
+        HttpRequest unreachable = HttpRequest.builder()
+                .url("http://localhost:8089/test/accept")
+                .method(Method.POST)
+                .attachment("{id: 100}")
+                .build();
+        taskEndpoint.start(CreateGraphRequest.builder()
+                .vertex("unreachable", getMockTask("unreachable",
+                        Mode.ACTIVE,
+                        unreachable,
+                        getStopRequest("{id: 100}"),
+                        null))
+                .build());
+
+        waitSynchronouslyFor(() -> internalEndpoint.getCircuitBreakers().stream()
+                .anyMatch(breaker -> breaker.getDestination().equals("localhost:8089") && breaker.getTimesOpened() > 0),
+                5, TimeUnit.SECONDS);
+        Long sequence = container.getTask("unreachable").getQueueSequence();
+        assertThat(sequence).isNotNull();
+
+        CircuitBreakerResponse breaker = internalEndpoint.getCircuitBreakers().stream()
+                .filter(response -> response.getDestination().equals("localhost:8089"))
+                .findFirst()
+                .orElseThrow();
+        // all attempts of a call count as a single failure
+        assertThat(breaker.getRetries()).isGreaterThanOrEqualTo(5L);
+        assertThat(breaker.getFailures()).isPositive().isLessThan(breaker.getRetries());
+
+        // the Task is failed once it was requeued the maximum number of times (3 in tests)
+        waitTillTasksAre(State.START_FAILED, container, 20, "unreachable");
+        Task task = container.getTask("unreachable");
+        assertThat(task.getRequeues()).isEqualTo(3);
+        assertThat(task.getQueueSequence()).isEqualTo(sequence);
+        assertThat(task.getServerResponses()).hasSize(1);
+        assertThat(task.getServerResponses().get(0).isPositive()).isFalse();
+    }
+
     /**
      * Generates random DAG graph, and tests whether all Task have finished
      * <p>
@@ -429,7 +1107,7 @@ class TaskContainerImplTest {
 
         // sleep because running counter takes time to update
         Thread.sleep(100);
-        assertThat(running.getValue()).isEqualTo(0);
+        assertThat(running.getAcquired()).isEqualTo(0);
     }
 
 }
\ No newline at end of file
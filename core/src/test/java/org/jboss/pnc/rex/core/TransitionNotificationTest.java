@@ -1,14 +1,19 @@
 package org.jboss.pnc.rex.core;
 
+import io.quarkus.infinispan.client.Remote;
 import io.quarkus.test.junit.QuarkusTest;
+import org.infinispan.client.hotrod.RemoteCache;
 import org.jboss.pnc.rex.common.enums.State;
 import org.jboss.pnc.rex.common.enums.Transition;
 import org.jboss.pnc.rex.core.common.TestData;
-import org.jboss.pnc.rex.core.counter.Counter;
-import org.jboss.pnc.rex.core.counter.Running;
+import org.jboss.pnc.rex.core.counter.ConcurrencyLimiter;
+import org.jboss.pnc.rex.core.counter.QueueDepths;
 import org.jboss.pnc.rex.core.endpoints.TransitionRecorderEndpoint;
+import org.jboss.pnc.rex.dto.HeaderDTO;
+import org.jboss.pnc.rex.dto.HttpRequest;
 import org.jboss.pnc.rex.dto.TaskDTO;
 import org.jboss.pnc.rex.dto.requests.CreateGraphRequest;
+import org.jboss.pnc.rex.model.QueueEntry;
 import org.jboss.pnc.rex.rest.api.InternalEndpoint;
 import org.jboss.pnc.rex.rest.api.TaskEndpoint;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,6 +21,8 @@ import org.junit.jupiter.api.Test;
 
 import javax.inject.Inject;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -31,14 +38,22 @@ import static org.jboss.pnc.rex.common.enums.Transition.UP_to_SUCCESSFUL;
 import static org.jboss.pnc.rex.common.enums.Transition.WAITING_to_ENQUEUED;
 import static org.jboss.pnc.rex.common.enums.Transition.WAITING_to_STOPPED;
 import static org.jboss.pnc.rex.core.common.Assertions.waitTillTasksAre;
+import static org.jboss.pnc.rex.core.common.TestData.getBatchedNotificationsRequest;
 import static org.jboss.pnc.rex.core.common.TestData.getComplexGraph;
 
 @QuarkusTest
 public class TransitionNotificationTest {
 
+    @Inject
+    QueueDepths depths;
+
     @Inject
     TaskContainerImpl container;
 
+    @Inject
+    @Remote("enqueued")
+    RemoteCache<String, QueueEntry> queue;
+
     @Inject
     TaskEndpoint endpoint;
 
@@ -46,18 +61,19 @@ public class TransitionNotificationTest {
     InternalEndpoint internalEndpoint;
 
     @Inject
-    @Running
-    Counter running;
+    ConcurrencyLimiter running;
 
     @Inject
     TransitionRecorderEndpoint recorderEndpoint;
 
     @BeforeEach
     void before() {
-        running.initialize(0L);
+        running.reset(0);
         internalEndpoint.setConcurrent(10L);
         recorderEndpoint.flush();
         container.getCache().clear();
+        queue.clear();
+        depths.resetAll();
     }
 
     @Test
@@ -81,6 +97,51 @@ public class TransitionNotificationTest {
         assertThat(records.get("j")).containsExactlyInAnyOrderElementsOf(Set.of(NEW_to_WAITING, WAITING_to_ENQUEUED, ENQUEUED_to_STARTING, STARTING_to_UP, UP_to_SUCCESSFUL));
     }
 
+    @Test
+    void testBatchedNotifications() throws InterruptedException {
+        CreateGraphRequest request = getComplexGraph(true, true);
+        request.getVertices().values().forEach(task -> task.callerNotifications = getBatchedNotificationsRequest());
+        endpoint.start(request);
+        waitTillTasksAre(State.SUCCESSFUL, container, request.getVertices().keySet().toArray(new String[0]));
+
+        // wait for the last window to elapse
+        Thread.sleep(1000);
+        Map<String, List<Transition>> records = recorderEndpoint.getOrderedRecords();
+        assertThat(records.keySet()).containsExactlyInAnyOrderElementsOf(request.getVertices().keySet());
+        assertThat(records.get("a")).containsExactly(NEW_to_ENQUEUED, ENQUEUED_to_STARTING, STARTING_to_UP, UP_to_SUCCESSFUL);
+        assertThat(records.get("b")).containsExactly(NEW_to_ENQUEUED, ENQUEUED_to_STARTING, STARTING_to_UP, UP_to_SUCCESSFUL);
+        for (String task : List.of("c", "d", "e", "f", "g", "h", "i", "j")) {
+            assertThat(records.get(task)).containsExactly(NEW_to_WAITING, WAITING_to_ENQUEUED, ENQUEUED_to_STARTING, STARTING_to_UP, UP_to_SUCCESSFUL);
+        }
+
+        int notifications = records.values().stream().mapToInt(List::size).sum();
+        assertThat(recorderEndpoint.getBatchCount()).isLessThan(notifications);
+    }
+
+    @Test
+    void testBatchesAreSeparatedByHeaders() throws InterruptedException {
+        CreateGraphRequest request = getComplexGraph(true, true);
+        request.getVertices().forEach((name, task) -> {
+            HttpRequest notifications = getBatchedNotificationsRequest();
+            List<HeaderDTO> headers = new ArrayList<>(notifications.headers);
+            headers.add(HeaderDTO.builder().name("X-Caller").value(callerOf(name)).build());
+            notifications.headers = headers;
+            task.callerNotifications = notifications;
+        });
+        endpoint.start(request);
+        waitTillTasksAre(State.SUCCESSFUL, container, request.getVertices().keySet().toArray(new String[0]));
+
+        // wait for the last window to elapse
+        Thread.sleep(1000);
+        Map<String, Set<String>> callers = recorderEndpoint.getCallers();
+        assertThat(callers.keySet()).containsExactlyInAnyOrderElementsOf(request.getVertices().keySet());
+        callers.forEach((name, values) -> assertThat(values).containsExactly(callerOf(name)));
+    }
+
+    private static String callerOf(String taskName) {
+        return taskName.compareTo("e") < 0 ? "first" : "second";
+    }
+
     @Test
     void testNotificationOnCancel() throws InterruptedException {
         CreateGraphRequest request = TestData.getComplexGraphWithoutEnd(true, true);
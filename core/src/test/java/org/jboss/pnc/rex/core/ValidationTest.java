@@ -68,6 +68,17 @@ public class ValidationTest {
                     .body("errorType", containsString("ViolationException"));
     }
 
+    @Test
+    void testListWithInvalidLimit() {
+        given()
+                .when()
+                    .queryParam("limit", 0)
+                    .get(taskEndpointURI.getPath())
+                .then()
+                    .statusCode(400)
+                    .body("errorType", containsString("ViolationException"));
+    }
+
     @Test
     void testCreateWithNullTask() {
         CreateGraphRequest body = CreateGraphRequest.builder()
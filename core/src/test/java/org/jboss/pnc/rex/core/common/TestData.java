@@ -48,6 +48,13 @@ public class TestData {
                 .build();
     }
 
+    public static CreateGraphRequest getSingleWithoutStart(String name, String group, int priority) {
+        CreateGraphRequest request = getSingleWithoutStart(name);
+        request.getVertices().get(name).group = group;
+        request.getVertices().get(name).priority = priority;
+        return request;
+    }
+
     public static CreateTaskDTO getMockTask(String name, Mode mode, HttpRequest startRequest, HttpRequest stopRequest, HttpRequest notificationsRequest) {
         return CreateTaskDTO.builder()
                 .name(name)
@@ -70,6 +77,18 @@ public class TestData {
                 .build();
     }
 
+    public static HttpRequest getSlowRequestWithoutStart(String payload) {
+        return HttpRequest.builder()
+                .url("http://localhost:8081/test/slowAccept")
+                .method(Method.POST)
+                .headers(List.of(HeaderDTO.builder()
+                        .name("Content-Type")
+                        .value("application/json")
+                        .build()))
+                .attachment(payload)
+                .build();
+    }
+
     public static HttpRequest getStopRequest(String payload) {
         return HttpRequest.builder()
                 .url("http://localhost:8081/test/stop")
@@ -106,6 +125,19 @@ public class TestData {
                 .build();
     }
 
+    public static HttpRequest getBatchedNotificationsRequest() {
+        return HttpRequest.builder()
+                .method(Method.POST)
+                .headers(List.of(HeaderDTO.builder()
+                        .name("Content-Type")
+                        .value("application/json")
+                        .build()))
+                .attachment("hello")
+                .url("http://localhost:8081/transition/record-batch")
+                .batched(true)
+                .build();
+    }
+
     public static Request getEndpointWithStart(String payload) {
         return Request.builder()
                 .url("http://localhost:8081/test/acceptAndStart")
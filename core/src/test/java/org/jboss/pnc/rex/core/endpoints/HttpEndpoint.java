@@ -5,17 +5,20 @@ import io.vertx.mutiny.ext.web.client.HttpResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.microprofile.context.ManagedExecutor;
 import org.jboss.pnc.rex.common.enums.Method;
+import org.jboss.pnc.rex.common.enums.State;
 import org.jboss.pnc.rex.core.GenericVertxHttpClient;
-import org.jboss.pnc.rex.core.counter.Counter;
-import org.jboss.pnc.rex.core.counter.Running;
+import org.jboss.pnc.rex.core.api.TaskRegistry;
+import org.jboss.pnc.rex.core.counter.ConcurrencyLimiter;
 import org.jboss.pnc.rex.dto.requests.FinishRequest;
 import org.jboss.pnc.rex.model.Header;
+import org.jboss.pnc.rex.model.Task;
 import org.jboss.pnc.rex.model.requests.StartRequest;
 
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.net.URI;
@@ -24,6 +27,8 @@ import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import static org.jboss.pnc.rex.core.GenericVertxHttpClient.invoking;
+
 @Slf4j
 @Path("/test")
 public class HttpEndpoint {
@@ -35,8 +40,10 @@ public class HttpEndpoint {
     ManagedExecutor executor;
 
     @Inject
-    @Running
-    Counter running;
+    ConcurrencyLimiter running;
+
+    @Inject
+    TaskRegistry registry;
 
     private final Queue<Long> record = new ConcurrentLinkedQueue<>();
 
@@ -50,6 +57,26 @@ public class HttpEndpoint {
         return Response.ok().build();
     }
 
+    @POST
+    @Path("/acceptWithToken")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response acceptWithToken(@QueryParam("token") String token, String request) {
+        record();
+        if (token == null) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        return Response.ok().build();
+    }
+
+    @POST
+    @Path("/slowAccept")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response slowAccept(String request) throws InterruptedException {
+        record();
+        Thread.sleep(1000);
+        return Response.ok().build();
+    }
+
     @POST
     @Path("/stop")
     @Consumes(MediaType.APPLICATION_JSON)
@@ -70,6 +97,7 @@ public class HttpEndpoint {
     private void finishTask(StartRequest request) {
         try {
             Thread.sleep(30);
+            waitForStartResponse(request.getCallback());
         } catch (InterruptedException e) {
             //ignore
         }
@@ -78,8 +106,26 @@ public class HttpEndpoint {
                 Method.POST,
                 List.of(Header.builder().name("Content-Type").value("application/json").build()),
                 body,
-                this::onResponse,
-                throwable -> log.error("Couldn't reach local scheduler.", throwable));
+                invoking(this::onResponse),
+                invoking(throwable -> log.error("Couldn't reach local scheduler.", throwable)))
+                .await().indefinitely();
+    }
+
+    /**
+     * A real remote entity cannot finish before its response to the start request arrives. Waits until the response
+     * was processed so that the finish callback never overtakes it.
+     */
+    private void waitForStartResponse(String callback) throws InterruptedException {
+        // callback has format '<baseUrl>/rest/internal/<name>/finish'
+        String path = URI.create(callback).getPath();
+        String name = path.substring("/rest/internal/".length(), path.length() - "/finish".length());
+        for (int i = 0; i < 500; i++) {
+            Task task = registry.getTask(name);
+            if (task == null || task.getState() != State.STARTING) {
+                return;
+            }
+            Thread.sleep(10);
+        }
     }
 
     private void onResponse(HttpResponse<Buffer> response) {
@@ -92,7 +138,7 @@ public class HttpEndpoint {
 
     private void record() {
         if (shouldRecord) {
-            record.offer(running.getValue());
+            record.offer(running.getAcquired());
         }
     }
 
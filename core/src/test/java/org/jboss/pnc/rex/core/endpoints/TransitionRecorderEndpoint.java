@@ -5,22 +5,32 @@ import org.jboss.pnc.rex.common.enums.Transition;
 import org.jboss.pnc.rex.model.requests.NotificationRequest;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Path("/transition")
 public class TransitionRecorderEndpoint {
 
     private final Map<String, Set<Transition>> recorder = new ConcurrentHashMap<>();
 
+    private final Map<String, List<Transition>> orderedRecorder = new ConcurrentHashMap<>();
+
+    private final AtomicInteger batches = new AtomicInteger();
+
+    private final Map<String, Set<String>> callers = new ConcurrentHashMap<>();
+
     @POST
     @Path("/record")
     @Consumes(MediaType.APPLICATION_JSON)
@@ -35,13 +45,50 @@ public class TransitionRecorderEndpoint {
                 .findFirst();
         if (transition.isPresent()) {
             recorder.get(taskName).add(transition.get());
+            orderedRecorder.computeIfAbsent(taskName, name -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(transition.get());
             return Response.ok().build();
         }
         return Response.serverError().build();
     }
 
+    @POST
+    @Path("/record-batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response recordBatch(List<NotificationRequest> requests, @HeaderParam("X-Caller") String caller) {
+        batches.incrementAndGet();
+        for (NotificationRequest request : requests) {
+            if (caller != null) {
+                callers.computeIfAbsent(request.getTask().getName(), name -> new ConcurrentHashSet<>()).add(caller);
+            }
+            Response response = record(request);
+            if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                return response;
+            }
+        }
+        return Response.ok().build();
+    }
+
     public void flush() {
         recorder.clear();
+        orderedRecorder.clear();
+        batches.set(0);
+        callers.clear();
+    }
+
+    /**
+     * @return values of the X-Caller header the notifications of every Task arrived with
+     */
+    public Map<String, Set<String>> getCallers() {
+        return Collections.unmodifiableMap(callers);
+    }
+
+    public Map<String, List<Transition>> getOrderedRecords() {
+        return Collections.unmodifiableMap(orderedRecorder);
+    }
+
+    public int getBatchCount() {
+        return batches.get();
     }
 
     public Map<String, Set<Transition>> getRecords() {
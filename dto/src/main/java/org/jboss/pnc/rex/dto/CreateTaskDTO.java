@@ -27,4 +27,14 @@ public class CreateTaskDTO {
     public HttpRequest callerNotifications;
 
     public Mode controllerMode;
+
+    /**
+     * Priority of the Task within its group. Tasks with higher priority are started first. Default is 0.
+     */
+    public Integer priority;
+
+    /**
+     * Group (e.g. tenant or caller) of the Task. Concurrency is shared fairly between groups. Default is 'default'.
+     */
+    public String group;
 }
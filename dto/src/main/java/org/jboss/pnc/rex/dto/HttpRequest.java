@@ -26,4 +26,10 @@ public class HttpRequest {
     public List<@Valid HeaderDTO> headers;
 
     public Object attachment;
+
+    /**
+     * Only applies to caller notifications. If true, transitions are buffered per url and delivered together as a
+     * JSON array of notifications. Default is false.
+     */
+    public boolean batched;
 }
@@ -1,5 +1,6 @@
 package org.jboss.pnc.rex.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -19,6 +20,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class TaskDTO {
 
     public String name;
@@ -33,6 +35,10 @@ public class TaskDTO {
 
     public StopFlag stopFlag;
 
+    public int priority;
+
+    public String group;
+
     public List<ServerResponseDTO> serverResponses = new ArrayList<>();
 
     public Set<String> dependants = new HashSet<>();
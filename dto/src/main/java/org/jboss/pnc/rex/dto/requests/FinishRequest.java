@@ -13,6 +13,12 @@ import javax.validation.constraints.NotNull;
 @ToString
 public class FinishRequest {
 
+    /**
+     * Header of a request forwarded to the owner of the Task by another node. Forwarded requests are never forwarded
+     * again.
+     */
+    public static final String FORWARDED_HEADER = "Rex-Forwarded-By";
+
     @NotNull
     public Boolean status;
 
@@ -0,0 +1,29 @@
+package org.jboss.pnc.rex.dto.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CircuitBreakerResponse {
+
+    public String destination;
+
+    public String state;
+
+    public Integer consecutiveFailures;
+
+    public Long calls;
+
+    public Long failures;
+
+    public Long retries;
+
+    public Long rejectedCalls;
+
+    public Long timesOpened;
+}
@@ -0,0 +1,27 @@
+package org.jboss.pnc.rex.dto.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConcurrencyStatisticsResponse {
+
+    public Long maximum;
+
+    public Long running;
+
+    public Long acquireRequests;
+
+    public Long rejectedRequests;
+
+    public Long contentionRetries;
+
+    public Long grantedPermits;
+
+    public Long releasedPermits;
+}
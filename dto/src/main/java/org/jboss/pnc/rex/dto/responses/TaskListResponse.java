@@ -0,0 +1,18 @@
+package org.jboss.pnc.rex.dto.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.jboss.pnc.rex.dto.TaskDTO;
+
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskListResponse {
+
+    public List<TaskDTO> taskDTOS;
+}
@@ -0,0 +1,79 @@
+package org.jboss.pnc.rex.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.infinispan.protostream.annotations.ProtoDoc;
+import org.infinispan.protostream.annotations.ProtoFactory;
+import org.infinispan.protostream.annotations.ProtoField;
+import org.infinispan.protostream.descriptors.Type;
+import org.jboss.pnc.rex.common.enums.JobType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Job that has to run after a successful transaction. The entry is written in the same transaction as the transition
+ * that scheduled the Job and removed once the Job completes. Entries that are not removed in time (f.e. the node
+ * crashed) are claimed and replayed by any node. Entries are indexed by the time of their claim so that a sweep reads
+ * only the stale ones.
+ */
+@ToString
+@ProtoDoc("@Indexed")
+@Builder(toBuilder = true)
+@AllArgsConstructor(onConstructor_ = {@ProtoFactory})
+public class OutboxEntry {
+
+    /**
+     * Unique identifier of the entry. Serves as a key in Infinispan cache.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 1)})
+    private final String id;
+
+    @Getter(onMethod_ = {@ProtoField(number = 2, type = Type.ENUM)})
+    private final JobType type;
+
+    /**
+     * Name of the Task the Job is associated with. Null for Jobs without a Task (f.e. poke of the queue).
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 3)})
+    private final String taskName;
+
+    /**
+     * Name of the transition for caller notifications.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 4)})
+    private final String transition;
+
+    /**
+     * Node that currently owns the entry.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 5)})
+    private final String owner;
+
+    /**
+     * Time in millis when the entry was created or last claimed. Entries claimed for too long are replayed.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 6, defaultValue = "0"), @ProtoDoc("@Field @SortableField")})
+    private final long claimedAt;
+
+    /**
+     * Number of times the Job was replayed.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 7, defaultValue = "0")})
+    private final int replays;
+
+    /**
+     * Name of the signal for dependants of a continued propagation.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 8)})
+    private final String signal;
+
+    /**
+     * Dependants of a continued propagation in the order they are informed. A name can repeat if the dependant is
+     * informed by more of its dependencies.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 9, collectionImplementation = ArrayList.class)})
+    private final List<String> dependants;
+}
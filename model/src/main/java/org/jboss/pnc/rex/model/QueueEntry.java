@@ -0,0 +1,46 @@
+package org.jboss.pnc.rex.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.infinispan.protostream.annotations.ProtoDoc;
+import org.infinispan.protostream.annotations.ProtoFactory;
+import org.infinispan.protostream.annotations.ProtoField;
+
+/**
+ * Entry of a Task in the queue of ENQUEUED Tasks. Entries are kept in a separate cache so that the queue does not have
+ * to be searched for among all Tasks. Entries are indexed by group, priority and sequence so that the head of the queue
+ * of a group is read without scanning the queue.
+ */
+@ToString
+@ProtoDoc("@Indexed")
+@Builder(toBuilder = true)
+@AllArgsConstructor(onConstructor_ = {@ProtoFactory})
+public class QueueEntry {
+
+    /**
+     * Name of the ENQUEUED Task. Serves as a key in Infinispan cache.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 1)})
+    private final String name;
+
+    /**
+     * Cluster-wide sequence number assigned when the Task was enqueued. Tasks of the same priority
+     * are dequeued in ascending order.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 2, defaultValue = "0"), @ProtoDoc("@Field @SortableField")})
+    private final long sequence;
+
+    /**
+     * Priority of the Task within its group. Entries with higher priority are dequeued first.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 3, defaultValue = "0"), @ProtoDoc("@Field @SortableField")})
+    private final int priority;
+
+    /**
+     * Group of the Task. Each group is dequeued separately.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 4), @ProtoDoc("@Field")})
+    private final String group;
+}
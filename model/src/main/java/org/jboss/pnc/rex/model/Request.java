@@ -1,5 +1,6 @@
 package org.jboss.pnc.rex.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -12,10 +13,13 @@ import org.infinispan.protostream.descriptors.Type;
 import org.jboss.pnc.rex.common.enums.Method;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static org.jboss.pnc.rex.common.util.SerializationUtils.convertToByteArray;
-import static org.jboss.pnc.rex.common.util.SerializationUtils.convertToObject;
+import static org.jboss.pnc.rex.common.util.SerializationUtils.decodeAttachment;
+import static org.jboss.pnc.rex.common.util.SerializationUtils.encodeAttachment;
+import static org.jboss.pnc.rex.common.util.SerializationUtils.isCurrentEncoding;
 
 @ToString
 @Builder(toBuilder = true)
@@ -33,17 +37,41 @@ public class Request {
     @Getter(onMethod_ = {@ProtoField(number = 3)})
     private final List<Header> headers;
 
+    /**
+     * Treated as immutable; it is encoded only once per instance.
+     */
     @Getter
     private final Object attachment;
 
+    /**
+     * Only applies to caller notifications. If true, notifications for the same url are buffered and delivered
+     * together as a JSON array.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 5, defaultValue = "false")})
+    private final Boolean batched;
+
+    /**
+     * Parsed url. It is parsed only once per instance and is not serialized.
+     */
+    @ToString.Exclude
+    @Getter(lazy = true, onMethod_ = {@JsonIgnore})
+    private final URI uri = URI.create(url);
+
+    /**
+     * Encoded attachment. Kept from unmarshalling so that the attachment is not re-encoded on every marshal.
+     */
+    @ToString.Exclude
+    private final AtomicReference<byte[]> encodedAttachment = new AtomicReference<>();
+
     @ProtoFactory
-    public Request(String url, Method method, List<Header> headers, byte[] byteAttachment) {
+    public Request(String url, Method method, List<Header> headers, byte[] byteAttachment, Boolean batched) {
         this.url = url;
         this.method = method;
         this.headers = headers;
+        this.batched = batched;
         Object attachment;
         try {
-            attachment = convertToObject(byteAttachment);
+            attachment = decodeAttachment(byteAttachment);
         } catch (IOException exception) {
             log.error("Unexpected IO error during construction of Request.class object. " + this, exception);
             attachment = null;
@@ -52,12 +80,23 @@ public class Request {
             attachment = null;
         }
         this.attachment = attachment;
+        if (attachment == null || isCurrentEncoding(byteAttachment)) {
+            // entries in other encodings (f.e. Java serialization) are re-encoded on the next write, unreadable
+            // entries are kept as they are
+            encodedAttachment.set(byteAttachment);
+        }
     }
 
     @ProtoField(number = 4, type = Type.BYTES)
     public byte[] getByteAttachment() {
+        byte[] encoded = encodedAttachment.get();
+        if (encoded != null || attachment == null) {
+            return encoded;
+        }
         try {
-            return convertToByteArray(attachment);
+            encoded = encodeAttachment(attachment);
+            encodedAttachment.set(encoded);
+            return encoded;
         } catch (IOException exception) {
             log.error("Unexpected IO error when serializing Request.class attachment. " + this, exception);
         }
@@ -11,9 +11,11 @@ import org.infinispan.protostream.descriptors.Type;
 import org.jboss.pnc.rex.common.enums.State;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static org.jboss.pnc.rex.common.util.SerializationUtils.convertToByteArray;
-import static org.jboss.pnc.rex.common.util.SerializationUtils.convertToObject;
+import static org.jboss.pnc.rex.common.util.SerializationUtils.decodeAttachment;
+import static org.jboss.pnc.rex.common.util.SerializationUtils.encodeAttachment;
+import static org.jboss.pnc.rex.common.util.SerializationUtils.isCurrentEncoding;
 
 @Builder
 @AllArgsConstructor
@@ -30,16 +32,24 @@ public class ServerResponse {
     @Getter(onMethod_ = {@ProtoField(number = 2, defaultValue = "true")})
     private final boolean positive;
 
+    /**
+     * Treated as immutable; it is encoded only once per instance.
+     */
     @Getter
     private final Object body;
 
+    /**
+     * Encoded body. Kept from unmarshalling so that the body is not re-encoded on every marshal.
+     */
+    private final AtomicReference<byte[]> encodedBody = new AtomicReference<>();
+
     @ProtoFactory
     public ServerResponse(State state, boolean positive, byte[] byteBody) {
         this.state = state;
         this.positive = positive;
         Object body;
         try {
-            body = convertToObject(byteBody);
+            body = decodeAttachment(byteBody);
         } catch (IOException exception) {
             log.error("Unexpected IO error during construction of ServerResponse.class object. " + this, exception);
             body = null;
@@ -48,6 +58,11 @@ public class ServerResponse {
             body = null;
         }
         this.body = body;
+        if (body == null || isCurrentEncoding(byteBody)) {
+            // entries in other encodings (f.e. Java serialization) are re-encoded on the next write, unreadable
+            // entries are kept as they are
+            encodedBody.set(byteBody);
+        }
     }
 
     public boolean isNegative() {
@@ -56,8 +71,14 @@ public class ServerResponse {
 
     @ProtoField(number = 3, type = Type.BYTES)
     public byte[] getByteBody() {
+        byte[] encoded = encodedBody.get();
+        if (encoded != null || body == null) {
+            return encoded;
+        }
         try {
-            return convertToByteArray(this.body);
+            encoded = encodeAttachment(body);
+            encodedBody.set(encoded);
+            return encoded;
         } catch (IOException exception) {
             log.error("Unexpected IO error when serializing ServerResponse.class body. " + this, exception);
         }
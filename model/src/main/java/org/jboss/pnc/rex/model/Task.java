@@ -14,6 +14,7 @@ import org.jboss.pnc.rex.common.enums.State;
 import org.jboss.pnc.rex.common.enums.StopFlag;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -33,30 +34,39 @@ import java.util.Set;
 @ToString
 @Builder(toBuilder = true)
 @ProtoDoc("@Indexed")
-@AllArgsConstructor(onConstructor_ = {@ProtoFactory})
+@AllArgsConstructor
 public class Task {
+
+    public static final String DEFAULT_GROUP = "default";
+
     /**
-     * Uniquely identifies a Task and serves as a key in Infinispan cache.
+     * Uniquely identifies a Task and serves as a key in Infinispan cache. Indexed for listing of Tasks ordered by name.
      */
-    @Getter(onMethod_ = {@ProtoField(number = 1)})
+    @Getter(onMethod_ = {@ProtoField(number = 1), @ProtoDoc("@Field @SortableField")})
     private final String name;
 
     /**
      * Definition of a request to remote entity for starting a Task
+     * <p>
+     * Stored separately in {@link TaskDefinition}. Null in Tasks read for a transition.
      */
-    @Getter(onMethod_ = @ProtoField(number = 2))
+    @Getter
     private Request remoteStart;
 
     /**
      * Definition of a request to remote entity for cancelling a Task
+     * <p>
+     * Stored separately in {@link TaskDefinition}. Null in Tasks read for a transition.
      */
-    @Getter(onMethod_ = @ProtoField(number = 3))
+    @Getter
     private Request remoteCancel;
 
     /**
      * Definition of a request to the initial caller which is used for transition notifications
+     * <p>
+     * Stored separately in {@link TaskDefinition}. Null in Tasks read for a transition.
      */
-    @Getter(onMethod_ = @ProtoField(number = 4))
+    @Getter
     private Request callerNotifications;
 
     /**
@@ -98,14 +108,17 @@ public class Task {
     /**
      * Flag which signifies a reason why the Task stopped execution.
      */
-    @Getter(onMethod_ = @ProtoField(number = 10))
+    @Getter(onMethod_ = {@ProtoField(number = 10), @ProtoDoc("@Field")})
     private StopFlag stopFlag;
 
     /**
-     * List of all responses(bodies) received from remote entity.
+     * List of responses(bodies) received from remote entity.
+     * <p>
+     * Responses are stored in a separate append-only log. In Tasks read for a transition, the list holds only
+     * responses received in the current transaction that were not yet appended to the log.
      */
     @Singular
-    @Getter(onMethod_ = @ProtoField(number = 11))
+    @Getter
     private List<ServerResponse> serverResponses = new ArrayList<>();
 
     /**
@@ -114,6 +127,135 @@ public class Task {
     @Getter(onMethod_ = @ProtoField(number = 12, defaultValue = "false"))
     private Boolean starting;
 
+    /**
+     * Priority of the Task among ENQUEUED Tasks of the same group. Tasks with higher priority are dequeued first.
+     */
+    @Getter(onMethod_ = @ProtoField(number = 13, defaultValue = "0"))
+    private int priority;
+
+    /**
+     * Group (tenant) of the Task. Free space in the queue is shared fairly between groups and each group can have its
+     * own concurrency limit.
+     */
+    @Getter(onMethod_ = @ProtoField(number = 14))
+    private String group;
+
+    /**
+     * Number of responses in the response log of the Task. Used as an index of the next appended response.
+     */
+    @Getter(onMethod_ = @ProtoField(number = 15, defaultValue = "0"))
+    private int responseCount;
+
+    /**
+     * Time (in milliseconds since epoch) when the Task reached a state in the FINAL group. Finished Tasks are removed
+     * after a retention period since this time.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 16), @ProtoDoc("@Field")})
+    private Long finishedAt;
+
+    /**
+     * Context (W3C traceparent) of the root span of the Task. Spans of the Task's lifecycle are its children.
+     */
+    @Getter(onMethod_ = @ProtoField(number = 17))
+    private String traceParent;
+
+    /**
+     * Time (in milliseconds since epoch) when the Task was last ENQUEUED. Used to trace time spent in the queue.
+     */
+    @Getter(onMethod_ = @ProtoField(number = 18))
+    private Long enqueuedAt;
+
+    /**
+     * Sequence of the Task in the queue assigned when it was first ENQUEUED. A Task returned to the queue keeps its
+     * place among the Tasks of the same priority.
+     */
+    @Getter(onMethod_ = @ProtoField(number = 19))
+    private Long queueSequence;
+
+    /**
+     * Number of times the Task was returned to the queue because its remote entity could not be reached.
+     */
+    @Getter(onMethod_ = @ProtoField(number = 20, defaultValue = "0"))
+    private int requeues;
+
+    /**
+     * Task entries stored before definitions and responses were split out of the Task keep them in fields 2, 3, 4 and
+     * 11. They are read so that the entries can be migrated, but never written again.
+     */
+    @ProtoFactory
+    public static Task create(String name,
+                       Request legacyRemoteStart,
+                       Request legacyRemoteCancel,
+                       Request legacyCallerNotifications,
+                       Mode controllerMode,
+                       State state,
+                       Set<String> dependants,
+                       int unfinishedDependencies,
+                       Set<String> dependencies,
+                       StopFlag stopFlag,
+                       List<ServerResponse> legacyServerResponses,
+                       Boolean starting,
+                       int priority,
+                       String group,
+                       int responseCount,
+                       Long finishedAt,
+                       String traceParent,
+                       Long enqueuedAt,
+                       Long queueSequence,
+                       int requeues) {
+        return new Task(name,
+                legacyRemoteStart,
+                legacyRemoteCancel,
+                legacyCallerNotifications,
+                controllerMode,
+                state,
+                dependants,
+                unfinishedDependencies,
+                dependencies,
+                stopFlag,
+                legacyServerResponses == null ? new ArrayList<>() : legacyServerResponses,
+                starting,
+                priority,
+                group,
+                responseCount,
+                finishedAt,
+                traceParent,
+                enqueuedAt,
+                queueSequence,
+                requeues);
+    }
+
+    @Deprecated
+    @ProtoField(number = 2)
+    public Request getLegacyRemoteStart() {
+        return null;
+    }
+
+    @Deprecated
+    @ProtoField(number = 3)
+    public Request getLegacyRemoteCancel() {
+        return null;
+    }
+
+    @Deprecated
+    @ProtoField(number = 4)
+    public Request getLegacyCallerNotifications() {
+        return null;
+    }
+
+    @Deprecated
+    @ProtoField(number = 11)
+    public List<ServerResponse> getLegacyServerResponses() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return true if the Task carries its definition (new Task or an entry stored before the split)
+     */
+    public boolean hasDefinition() {
+        return remoteStart != null || remoteCancel != null || callerNotifications != null;
+    }
+
     public void incUnfinishedDependencies() {
         unfinishedDependencies++;
     }
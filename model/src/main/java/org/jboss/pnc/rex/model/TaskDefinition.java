@@ -0,0 +1,49 @@
+package org.jboss.pnc.rex.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.infinispan.protostream.annotations.ProtoFactory;
+import org.infinispan.protostream.annotations.ProtoField;
+
+/**
+ * Immutable part of a Task. It is written once when the Task is installed and kept apart from the Task entry, so that
+ * transitions of the Task do not rewrite the requests and their attachments.
+ */
+@ToString
+@Builder
+@AllArgsConstructor(onConstructor_ = {@ProtoFactory})
+public class TaskDefinition {
+
+    /**
+     * Name of the Task. Serves as a key in Infinispan cache.
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 1)})
+    private final String name;
+
+    /**
+     * Definition of a request to remote entity for starting a Task
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 2)})
+    private final Request remoteStart;
+
+    /**
+     * Definition of a request to remote entity for cancelling a Task
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 3)})
+    private final Request remoteCancel;
+
+    /**
+     * Definition of a request to the initial caller which is used for transition notifications
+     */
+    @Getter(onMethod_ = {@ProtoField(number = 4)})
+    private final Request callerNotifications;
+
+    public static TaskDefinition of(Task task) {
+        return new TaskDefinition(task.getName(),
+                task.getRemoteStart(),
+                task.getRemoteCancel(),
+                task.getCallerNotifications());
+    }
+}
@@ -0,0 +1,34 @@
+#!/bin/bash
+# Starts NODES Rex nodes on ports 8080, 8081, ... against a local Infinispan (see run-ispn.sh) and runs the load test
+# against all of them. Additional arguments are passed to the load test JVM, e.g. -Dgraphs=10 -Dranks=50.
+# Requires 'mvn clean install -Pbenchmarks -DskipTests'.
+
+NODES=${NODES:-1}
+ISPN_NODE=${ISPN_NODE:-localhost:11222}
+ISPN_USER=${ISPN_USER:-user}
+ISPN_PASSWORD=${ISPN_PASSWORD:-1234}
+
+PIDS=()
+URLS=()
+trap 'kill "${PIDS[@]}" 2>/dev/null' EXIT
+
+for ((i = 0; i < NODES; i++)); do
+	PORT=$((8080 + i))
+	java -Dquarkus.http.port=$PORT \
+		-Dscheduler.baseUrl=http://localhost:$PORT \
+		-Dquarkus.infinispan-client.server-list=$ISPN_NODE \
+		-Dquarkus.infinispan-client.auth-username=$ISPN_USER \
+		-Dquarkus.infinispan-client.auth-password=$ISPN_PASSWORD \
+		-jar core/target/quarkus-app/quarkus-run.jar > rex-node-$i.log 2>&1 &
+	PIDS+=($!)
+	URLS+=(http://localhost:$PORT)
+done
+
+for url in "${URLS[@]}"; do
+	until curl -sf "$url/q/metrics" > /dev/null; do
+		sleep 1
+	done
+done
+
+java -Drex.urls=$(IFS=,; echo "${URLS[*]}") "$@" \
+	-cp benchmarks/target/benchmarks.jar org.jboss.pnc.rex.benchmarks.load.LoadTest